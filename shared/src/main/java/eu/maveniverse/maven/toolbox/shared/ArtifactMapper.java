@@ -140,9 +140,12 @@ public interface ArtifactMapper extends Function<Artifact, Artifact> {
     static ArtifactMapper build(Map<String, ?> properties, String spec) {
         requireNonNull(properties, "properties");
         requireNonNull(spec, "spec");
-        ArtifactMapperBuilder builder = new ArtifactMapperBuilder(properties);
-        SpecParser.parse(spec).accept(builder);
-        return builder.build();
+        return SpecParser.build(
+                ArtifactMapper.class,
+                spec,
+                properties,
+                () -> new ArtifactMapperBuilder(properties),
+                ArtifactMapperBuilder::build);
     }
 
     class ArtifactMapperBuilder extends SpecParser.Builder {
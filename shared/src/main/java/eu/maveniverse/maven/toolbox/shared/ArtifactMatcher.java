@@ -9,21 +9,25 @@ package eu.maveniverse.maven.toolbox.shared;
 
 import static java.util.Objects.requireNonNull;
 
+import eu.maveniverse.maven.toolbox.shared.internal.CompactKeySet;
 import eu.maveniverse.maven.toolbox.shared.internal.SpecParser;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 
 /**
- * Artifact matcher. Supports {@code "*"} pattern as "any", and {@code "xxx*"} as "starts with" and
- * {@code "*xxx"} as "ends with".
+ * Artifact matcher. Artifact patterns support {@code "*"} pattern as "any", and {@code "xxx*"} as "starts with" and
+ * {@code "*xxx"} as "ends with", and full globs as well ({@code *}, {@code ?} and {@code [...]} character classes),
+ * while {@link #regex(String)} matches regular expressions. Patterns are compiled once, when matcher is created.
  */
 public interface ArtifactMatcher extends Predicate<Artifact> {
     static ArtifactMatcher not(ArtifactMatcher matcher) {
@@ -58,6 +62,9 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
     }
 
     static ArtifactMatcher or(Collection<ArtifactMatcher> matchers) {
+        if (PatternSetMatcher.isCompilable(matchers)) {
+            return new PatternSetMatcher(matchers);
+        }
         return new ArtifactMatcher() {
             @Override
             public boolean test(Artifact artifact) {
@@ -76,12 +83,7 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
     }
 
     static ArtifactMatcher artifact(String coordinate) {
-        Artifact prototype = parsePrototype(coordinate);
-        return a -> matches(prototype.getGroupId(), a.getGroupId())
-                && matches(prototype.getArtifactId(), a.getArtifactId())
-                && matches(prototype.getVersion(), a.getVersion())
-                && matches(prototype.getExtension(), a.getExtension())
-                && matches(prototype.getClassifier(), a.getClassifier());
+        return new PatternMatcher(coordinate);
     }
 
     static ArtifactMatcher any() {
@@ -102,7 +104,29 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
     }
 
     static ArtifactMatcher uniqueBy(ArtifactNameMapper mapper) {
-        HashSet<String> keys = new HashSet<>();
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        return new ArtifactMatcher() {
+            @Override
+            public boolean test(Artifact artifact) {
+                return keys.add(mapper.apply(artifact));
+            }
+        };
+    }
+
+    /**
+     * Like {@link #unique()} but keeps 128-bit hashes of keys instead of keys, to bound memory use when matching
+     * millions of artifacts. See {@link CompactKeySet}.
+     */
+    static ArtifactMatcher uniqueCompact() {
+        return uniqueByCompact(ArtifactNameMapper.GACEVKey());
+    }
+
+    /**
+     * Like {@link #uniqueBy(ArtifactNameMapper)} but keeps 128-bit hashes of keys instead of keys, to bound memory
+     * use when matching millions of artifacts. See {@link CompactKeySet}.
+     */
+    static ArtifactMatcher uniqueByCompact(ArtifactNameMapper mapper) {
+        CompactKeySet keys = new CompactKeySet();
         return new ArtifactMatcher() {
             @Override
             public boolean test(Artifact artifact) {
@@ -114,9 +138,294 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
     static ArtifactMatcher build(Map<String, ?> properties, String spec) {
         requireNonNull(properties, "properties");
         requireNonNull(spec, "spec");
-        ArtifactMatcherBuilder builder = new ArtifactMatcherBuilder(properties);
-        SpecParser.parse(spec).accept(builder);
-        return builder.build();
+        return SpecParser.build(
+                ArtifactMatcher.class,
+                spec,
+                properties,
+                () -> new ArtifactMatcherBuilder(properties),
+                ArtifactMatcherBuilder::build);
+    }
+
+    /**
+     * Matcher of artifact coordinate patterns, that exposes its patterns, to make it possible to index it.
+     */
+    final class PatternMatcher implements ArtifactMatcher {
+        private final Artifact prototype;
+        private final Predicate<String> groupId;
+        private final Predicate<String> artifactId;
+        private final Predicate<String> version;
+        private final Predicate<String> extension;
+        private final Predicate<String> classifier;
+
+        private PatternMatcher(String coordinate) {
+            this.prototype = parsePrototype(coordinate);
+            this.groupId = compile(prototype.getGroupId());
+            this.artifactId = compile(prototype.getArtifactId());
+            this.version = compile(prototype.getVersion());
+            this.extension = compile(prototype.getExtension());
+            this.classifier = compile(prototype.getClassifier());
+        }
+
+        public String getGroupId() {
+            return prototype.getGroupId();
+        }
+
+        public String getArtifactId() {
+            return prototype.getArtifactId();
+        }
+
+        public String getExtension() {
+            return prototype.getExtension();
+        }
+
+        public String getClassifier() {
+            return prototype.getClassifier();
+        }
+
+        public String getVersion() {
+            return prototype.getVersion();
+        }
+
+        @Override
+        public boolean test(Artifact a) {
+            return groupId.test(a.getGroupId())
+                    && artifactId.test(a.getArtifactId())
+                    && version.test(a.getVersion())
+                    && extension.test(a.getExtension())
+                    && classifier.test(a.getClassifier());
+        }
+
+        /**
+         * Compiles glob pattern, where literal patterns and patterns having only leading or trailing {@code *} are
+         * evaluated without regular expressions.
+         */
+        private static Predicate<String> compile(String pattern) {
+            if (isAny(pattern)) {
+                return s -> true;
+            } else if (isExact(pattern)) {
+                return pattern::equals;
+            } else if (isPrefix(pattern)) {
+                String prefix = pattern.substring(0, pattern.length() - 1);
+                return s -> s.startsWith(prefix);
+            } else if (isSuffix(pattern)) {
+                String suffix = pattern.substring(1);
+                return s -> s.endsWith(suffix);
+            } else {
+                Pattern regex = Pattern.compile(globToRegex(pattern));
+                return s -> regex.matcher(s).matches();
+            }
+        }
+
+        /**
+         * Translates glob to regular expression: {@code *} matches any sequence of characters, {@code ?} any one
+         * character, and {@code [...]} any character of character class (negated with leading {@code !} or
+         * {@code ^}), while all other characters match themselves.
+         */
+        private static String globToRegex(String glob) {
+            StringBuilder result = new StringBuilder(glob.length() + 16);
+            for (int i = 0; i < glob.length(); i++) {
+                char ch = glob.charAt(i);
+                if (ch == '*') {
+                    result.append(".*");
+                } else if (ch == '?') {
+                    result.append('.');
+                } else if (ch == '[' && glob.indexOf(']', i + 2) > 0) {
+                    int end = glob.indexOf(']', i + 2);
+                    String chars = glob.substring(i + 1, end);
+                    result.append('[');
+                    if (chars.startsWith("!") || chars.startsWith("^")) {
+                        result.append('^');
+                        chars = chars.substring(1);
+                    }
+                    for (int j = 0; j < chars.length(); j++) {
+                        char c = chars.charAt(j);
+                        if (c == '\\' || c == '[' || c == ']' || c == '&' || c == '^') {
+                            result.append('\\');
+                        }
+                        result.append(c);
+                    }
+                    result.append(']');
+                    i = end;
+                } else {
+                    result.append(Pattern.quote(String.valueOf(ch)));
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * Matcher of regular expression, that is matched against whole
+     * {@code groupId:artifactId:extension:classifier:version} string (classifier being empty string if not present).
+     * Regular expressions without special characters are evaluated as plain string comparison.
+     */
+    static ArtifactMatcher regex(String regex) {
+        requireNonNull(regex, "regex");
+        boolean literal = true;
+        for (int i = 0; i < regex.length() && literal; i++) {
+            literal = "\\^$.|?*+()[]{}".indexOf(regex.charAt(i)) < 0;
+        }
+        Predicate<String> predicate;
+        if (literal) {
+            predicate = regex::equals;
+        } else {
+            Pattern pattern = Pattern.compile(regex);
+            predicate = s -> pattern.matcher(s).matches();
+        }
+        return new ArtifactMatcher() {
+            @Override
+            public boolean test(Artifact artifact) {
+                return predicate.test(new StringBuilder(64)
+                        .append(artifact.getGroupId())
+                        .append(':')
+                        .append(artifact.getArtifactId())
+                        .append(':')
+                        .append(artifact.getExtension())
+                        .append(':')
+                        .append(artifact.getClassifier())
+                        .append(':')
+                        .append(artifact.getVersion())
+                        .toString());
+            }
+        };
+    }
+
+    /**
+     * Matcher that is "or" of many {@link PatternMatcher}s (ie. allow or deny lists), compiled into indexes, so
+     * evaluation does not depend on count of patterns: exact groupId and artifactId, exact groupId or exact artifactId
+     * patterns are looked up in hash maps, groupId prefix patterns (ie. {@code org.foo*}) in a prefix trie and
+     * artifactId suffix patterns (ie. {@code *-bom}) in a suffix trie, while remaining patterns are kept in a residual
+     * list. Indexes only select candidate patterns, that are then evaluated, so semantics equal that of plain "or".
+     */
+    final class PatternSetMatcher implements ArtifactMatcher {
+        private static final int COMPILE_THRESHOLD = 8;
+
+        /**
+         * Returns {@code true} if all matchers are patterns, and there are enough of them to make compiling worth.
+         * Other matchers may be stateful, and plain "or" evaluates them in order, hence they are not compiled.
+         */
+        static boolean isCompilable(Collection<ArtifactMatcher> matchers) {
+            if (matchers.size() < COMPILE_THRESHOLD) {
+                return false;
+            }
+            for (ArtifactMatcher matcher : matchers) {
+                if (!(matcher instanceof PatternMatcher)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private final HashMap<String, Map<String, List<PatternMatcher>>> exactGroupAndArtifact;
+        private final HashMap<String, List<PatternMatcher>> exactGroup;
+        private final HashMap<String, List<PatternMatcher>> exactArtifact;
+        private final Trie groupPrefixes;
+        private final Trie artifactSuffixes;
+        private final ArrayList<PatternMatcher> residual;
+        private final int size;
+
+        private PatternSetMatcher(Collection<ArtifactMatcher> matchers) {
+            this.exactGroupAndArtifact = new HashMap<>();
+            this.exactGroup = new HashMap<>();
+            this.exactArtifact = new HashMap<>();
+            this.groupPrefixes = new Trie();
+            this.artifactSuffixes = new Trie();
+            this.residual = new ArrayList<>();
+            this.size = matchers.size();
+            for (ArtifactMatcher matcher : matchers) {
+                PatternMatcher pattern = (PatternMatcher) matcher;
+                String groupId = pattern.getGroupId();
+                String artifactId = pattern.getArtifactId();
+                if (isExact(groupId) && isExact(artifactId)) {
+                    exactGroupAndArtifact
+                            .computeIfAbsent(groupId, k -> new HashMap<>())
+                            .computeIfAbsent(artifactId, k -> new ArrayList<>(1))
+                            .add(pattern);
+                } else if (isExact(groupId)) {
+                    exactGroup.computeIfAbsent(groupId, k -> new ArrayList<>(1)).add(pattern);
+                } else if (isPrefix(groupId)) {
+                    groupPrefixes.add(groupId.substring(0, groupId.length() - 1), false, pattern);
+                } else if (isAny(groupId) && isExact(artifactId)) {
+                    exactArtifact
+                            .computeIfAbsent(artifactId, k -> new ArrayList<>(1))
+                            .add(pattern);
+                } else if (isAny(groupId) && isSuffix(artifactId)) {
+                    artifactSuffixes.add(artifactId.substring(1), true, pattern);
+                } else {
+                    residual.add(pattern);
+                }
+            }
+        }
+
+        /**
+         * Returns count of patterns.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns count of patterns that are not indexed, and are evaluated one by one.
+         */
+        public int getResidualSize() {
+            return residual.size();
+        }
+
+        @Override
+        public boolean test(Artifact artifact) {
+            Map<String, List<PatternMatcher>> artifacts = exactGroupAndArtifact.get(artifact.getGroupId());
+            return (artifacts != null && anyMatches(artifacts.get(artifact.getArtifactId()), artifact))
+                    || anyMatches(exactGroup.get(artifact.getGroupId()), artifact)
+                    || anyMatches(exactArtifact.get(artifact.getArtifactId()), artifact)
+                    || groupPrefixes.anyMatches(artifact.getGroupId(), false, artifact)
+                    || artifactSuffixes.anyMatches(artifact.getArtifactId(), true, artifact)
+                    || anyMatches(residual, artifact);
+        }
+
+        private static boolean anyMatches(List<PatternMatcher> patterns, Artifact artifact) {
+            if (patterns != null) {
+                for (PatternMatcher pattern : patterns) {
+                    if (pattern.test(artifact)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Character trie, where patterns are stored on node of their prefix (or reversed suffix).
+         */
+        private static final class Trie {
+            private final HashMap<Character, Trie> children = new HashMap<>();
+            private List<PatternMatcher> patterns;
+
+            private void add(String key, boolean reversed, PatternMatcher pattern) {
+                Trie node = this;
+                for (int i = 0; i < key.length(); i++) {
+                    char ch = key.charAt(reversed ? key.length() - 1 - i : i);
+                    node = node.children.computeIfAbsent(ch, k -> new Trie());
+                }
+                if (node.patterns == null) {
+                    node.patterns = new ArrayList<>(1);
+                }
+                node.patterns.add(pattern);
+            }
+
+            private boolean anyMatches(String value, boolean reversed, Artifact artifact) {
+                Trie node = this;
+                for (int i = 0; node != null; i++) {
+                    if (PatternSetMatcher.anyMatches(node.patterns, artifact)) {
+                        return true;
+                    }
+                    if (i == value.length()) {
+                        break;
+                    }
+                    node = node.children.get(value.charAt(reversed ? value.length() - 1 - i : i));
+                }
+                return false;
+            }
+        }
     }
 
     class ArtifactMatcherBuilder extends SpecParser.Builder {
@@ -126,7 +435,9 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
 
         @Override
         public boolean visitEnter(SpecParser.Node node) {
-            return super.visitEnter(node) && !"uniqueBy".equals(node.getValue());
+            return super.visitEnter(node)
+                    && !"uniqueBy".equals(node.getValue())
+                    && !"uniqueByCompact".equals(node.getValue());
         }
 
         @Override
@@ -148,7 +459,12 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
                     params.add(artifact(stringParam(node.getValue())));
                     break;
                 }
+                case "regex": {
+                    params.add(regex(stringParam(node.getValue())));
+                    break;
+                }
                 case "unique": {
+                    stateful = true;
                     params.add(unique());
                     break;
                 }
@@ -159,8 +475,24 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
                     ArtifactNameMapper.ArtifactNameMapperBuilder nameMapper =
                             new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
                     node.getChildren().get(0).accept(nameMapper);
+                    stateful = true;
                     params.add(uniqueBy(nameMapper.build()));
-                    node.getChildren().clear();
+                    break;
+                }
+                case "uniqueCompact": {
+                    stateful = true;
+                    params.add(uniqueCompact());
+                    break;
+                }
+                case "uniqueByCompact": {
+                    if (node.getChildren().size() != 1) {
+                        throw new IllegalArgumentException("op uniqueByCompact accepts only 1 argument");
+                    }
+                    ArtifactNameMapper.ArtifactNameMapperBuilder nameMapper =
+                            new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
+                    node.getChildren().get(0).accept(nameMapper);
+                    stateful = true;
+                    params.add(uniqueByCompact(nameMapper.build()));
                     break;
                 }
                 case "not": {
@@ -211,16 +543,16 @@ public interface ArtifactMatcher extends Predicate<Artifact> {
         return "*".equals(str);
     }
 
-    private static boolean matches(String pattern, String str) {
-        if (isAny(pattern)) {
-            return true;
-        } else if (pattern.endsWith("*")) {
-            return str.startsWith(pattern.substring(0, pattern.length() - 1));
-        } else if (pattern.startsWith("*")) {
-            return str.endsWith(pattern.substring(1));
-        } else {
-            return Objects.equals(pattern, str);
-        }
+    private static boolean isPrefix(String str) {
+        return !isAny(str) && str.endsWith("*") && isExact(str.substring(0, str.length() - 1));
+    }
+
+    private static boolean isSuffix(String str) {
+        return !isAny(str) && str.startsWith("*") && isExact(str.substring(1));
+    }
+
+    private static boolean isExact(String str) {
+        return str.indexOf('*') < 0 && str.indexOf('?') < 0 && str.indexOf('[') < 0;
     }
 
     private static Artifact parsePrototype(String coordinate) {
@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
 import org.eclipse.aether.artifact.Artifact;
@@ -24,7 +25,7 @@ import org.eclipse.aether.artifact.Artifact;
  * Mapper that maps artifact onto a string (usually file system friendly).
  * <p>
  * Name mappers {@link #GAVKey()}, {@link #GAbVKey()} and {@link #GACEVKey()} are NOT file system friendly mappers,
- * they are more key-producing oriented mappers.
+ * they are more key-producing oriented mappers. Most of the fixed mappers are {@link Template}s.
  */
 public interface ArtifactNameMapper extends Function<Artifact, String> {
     @Override
@@ -38,11 +39,11 @@ public interface ArtifactNameMapper extends Function<Artifact, String> {
         return new ArtifactNameMapper() {
             @Override
             public String apply(Artifact artifact) {
-                String result = "";
+                StringBuilder result = new StringBuilder(64);
                 for (ArtifactNameMapper mapper : mappers) {
-                    result += mapper.apply(artifact);
+                    result.append(mapper.apply(artifact));
                 }
-                return result;
+                return result.toString();
             }
         };
     }
@@ -109,15 +110,15 @@ public interface ArtifactNameMapper extends Function<Artifact, String> {
     }
 
     static ArtifactNameMapper GAKey() {
-        return artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId();
+        return template("{g}:{a}");
     }
 
     static ArtifactNameMapper GAVKey() {
-        return artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+        return template("{g}:{a}:{v}");
     }
 
     static ArtifactNameMapper GAbVKey() {
-        return artifact -> artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getBaseVersion();
+        return template("{g}:{a}:{bv}");
     }
 
     static ArtifactNameMapper GACEVKey() {
@@ -153,163 +154,233 @@ public interface ArtifactNameMapper extends Function<Artifact, String> {
     }
 
     static ArtifactNameMapper GACVE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "-" + artifact.getVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}[-{c}]-{v}.{e}");
     }
 
     static ArtifactNameMapper GACbVE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "-" + artifact.getBaseVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}[-{c}]-{bv}.{e}");
     }
 
     static ArtifactNameMapper GACE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}[-{c}].{e}");
     }
 
     static ArtifactNameMapper GAVE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            result += "-" + artifact.getVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}-{v}.{e}");
     }
 
     static ArtifactNameMapper GAbVE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            result += "-" + artifact.getBaseVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}-{bv}.{e}");
     }
 
     static ArtifactNameMapper GAE() {
-        return artifact -> {
-            String result = artifact.getGroupId() + ".";
-            result += artifact.getArtifactId();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{g}.{a}.{e}");
     }
 
     static ArtifactNameMapper ACVE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "-" + artifact.getVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}[-{c}]-{v}.{e}");
     }
 
     static ArtifactNameMapper AVCE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            result += "-" + artifact.getVersion();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}-{v}[-{c}].{e}");
     }
 
     static ArtifactNameMapper ACbVE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "-" + artifact.getBaseVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}[-{c}]-{bv}.{e}");
     }
 
     static ArtifactNameMapper AbVCE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            result += "-" + artifact.getBaseVersion();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}-{bv}[-{c}].{e}");
     }
 
     static ArtifactNameMapper ACE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            if (!artifact.getClassifier().isEmpty()) {
-                result += "-" + artifact.getClassifier();
-            }
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}[-{c}].{e}");
     }
 
     static ArtifactNameMapper AVE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            result += "-" + artifact.getVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}-{v}.{e}");
     }
 
     static ArtifactNameMapper AbVE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            result += "-" + artifact.getBaseVersion();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}-{bv}.{e}");
     }
 
     static ArtifactNameMapper AE() {
-        return artifact -> {
-            String result = artifact.getArtifactId();
-            result += "." + artifact.getExtension();
-            return result;
-        };
+        return template("{a}.{e}");
+    }
+
+    /**
+     * Mapper that renders template, see {@link Template}.
+     */
+    static ArtifactNameMapper template(String template) {
+        return new Template(template);
     }
 
     static ArtifactNameMapper build(Map<String, ?> properties, String spec) {
         requireNonNull(properties, "properties");
         requireNonNull(spec, "spec");
-        ArtifactNameMapperBuilder builder = new ArtifactNameMapperBuilder(properties);
-        SpecParser.parse(spec).accept(builder);
-        return builder.build();
+        return SpecParser.build(
+                ArtifactNameMapper.class,
+                spec,
+                properties,
+                () -> new ArtifactNameMapperBuilder(properties),
+                ArtifactNameMapperBuilder::build);
+    }
+
+    /**
+     * Mapper that renders a template, that is compiled once into list of segments. Template is made of literal text,
+     * fields {@code {g}} (groupId), {@code {gp}} (groupId as path, with dots replaced by {@code /}), {@code {a}}
+     * (artifactId), {@code {v}} (version), {@code {bv}} (baseVersion), {@code {c}} (classifier) and {@code {e}}
+     * (extension), and optional groups in square brackets, that are rendered only if all fields in them are
+     * non-empty. For example, {@code {a}-{v}[-{c}].{e}} renders {@code a-1.0.jar} or {@code a-1.0-sources.jar}.
+     * Name is rendered into a reused per-thread buffer, field values are appended as they are, hence rendering
+     * allocates the resulting string only.
+     */
+    final class Template implements ArtifactNameMapper {
+        private enum Field {
+            G(Artifact::getGroupId),
+            GP(Artifact::getGroupId),
+            A(Artifact::getArtifactId),
+            V(Artifact::getVersion),
+            BV(Artifact::getBaseVersion),
+            C(Artifact::getClassifier),
+            E(Artifact::getExtension);
+
+            private final Function<Artifact, String> getter;
+
+            Field(Function<Artifact, String> getter) {
+                this.getter = getter;
+            }
+
+            /**
+             * Appends value of field, returns {@code false} if value is empty.
+             */
+            private boolean append(Artifact artifact, StringBuilder result) {
+                String value = getter.apply(artifact);
+                if (value == null || value.isEmpty()) {
+                    return false;
+                }
+                if (this == GP) {
+                    for (int i = 0; i < value.length(); i++) {
+                        char ch = value.charAt(i);
+                        result.append(ch == '.' ? '/' : ch);
+                    }
+                } else {
+                    result.append(value);
+                }
+                return true;
+            }
+        }
+
+        private static final int MAX_RETAINED_BUFFER = 1024;
+
+        private static final ThreadLocal<StringBuilder> BUFFER =
+                ThreadLocal.withInitial(() -> new StringBuilder(MAX_RETAINED_BUFFER));
+
+        private final String template;
+        private final List<Object> segments;
+
+        private Template(String template) {
+            this.template = requireNonNull(template, "template");
+            int[] position = new int[] {0};
+            this.segments = compile(position, false);
+        }
+
+        /**
+         * Compiles template into list of segments, that are {@link String} literals, {@link Field}s or lists (optional
+         * groups).
+         */
+        private List<Object> compile(int[] position, boolean optional) {
+            ArrayList<Object> result = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            while (position[0] < template.length()) {
+                char ch = template.charAt(position[0]++);
+                if (ch == '{') {
+                    int end = template.indexOf('}', position[0]);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("unclosed field in template " + template);
+                    }
+                    Field field;
+                    try {
+                        field = Field.valueOf(
+                                template.substring(position[0], end).toUpperCase(Locale.ENGLISH));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(
+                                "unknown field " + template.substring(position[0], end) + " in template " + template);
+                    }
+                    position[0] = end + 1;
+                    if (literal.length() > 0) {
+                        result.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    result.add(field);
+                } else if (ch == '[') {
+                    if (literal.length() > 0) {
+                        result.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    result.add(compile(position, true));
+                } else if (ch == ']') {
+                    if (!optional) {
+                        throw new IllegalArgumentException("misplaced ] in template " + template);
+                    }
+                    if (literal.length() > 0) {
+                        result.add(literal.toString());
+                    }
+                    return result;
+                } else if (ch == '}') {
+                    throw new IllegalArgumentException("misplaced } in template " + template);
+                } else {
+                    literal.append(ch);
+                }
+            }
+            if (optional) {
+                throw new IllegalArgumentException("unclosed optional group in template " + template);
+            }
+            if (literal.length() > 0) {
+                result.add(literal.toString());
+            }
+            return result;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        @Override
+        public String apply(Artifact artifact) {
+            StringBuilder result = BUFFER.get();
+            result.setLength(0);
+            render(segments, artifact, result);
+            String name = result.toString();
+            if (result.capacity() > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
+            }
+            return name;
+        }
+
+        /**
+         * Renders segments, returns {@code false} if any field rendered empty.
+         */
+        @SuppressWarnings("unchecked")
+        private static boolean render(List<Object> segments, Artifact artifact, StringBuilder result) {
+            boolean complete = true;
+            for (Object segment : segments) {
+                if (segment instanceof String) {
+                    result.append((String) segment);
+                } else if (segment instanceof Field) {
+                    if (!((Field) segment).append(artifact, result)) {
+                        complete = false;
+                    }
+                } else {
+                    int mark = result.length();
+                    if (!render((List<Object>) segment, artifact, result)) {
+                        result.setLength(mark);
+                    }
+                }
+            }
+            return complete;
+        }
     }
 
     class ArtifactNameMapperBuilder extends SpecParser.Builder {
@@ -400,6 +471,9 @@ public interface ArtifactNameMapper extends Function<Artifact, String> {
                 case "AE":
                     params.add(AE());
                     break;
+                case "template":
+                    params.add(template(stringParam(node.getValue())));
+                    break;
                 case "empty":
                     params.add(empty());
                     break;
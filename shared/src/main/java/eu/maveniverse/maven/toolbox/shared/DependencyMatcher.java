@@ -106,9 +106,12 @@ public interface DependencyMatcher extends Predicate<Dependency> {
     static DependencyMatcher build(Map<String, ?> properties, String spec) {
         requireNonNull(properties, "properties");
         requireNonNull(spec, "spec");
-        DependencyMatcherBuilder builder = new DependencyMatcherBuilder(properties);
-        SpecParser.parse(spec).accept(builder);
-        return builder.build();
+        return SpecParser.build(
+                DependencyMatcher.class,
+                spec,
+                properties,
+                () -> new DependencyMatcherBuilder(properties),
+                DependencyMatcherBuilder::build);
     }
 
     class DependencyMatcherBuilder extends SpecParser.Builder {
@@ -147,8 +150,8 @@ public interface DependencyMatcher extends Predicate<Dependency> {
                     ArtifactMatcher.ArtifactMatcherBuilder matcher =
                             new ArtifactMatcher.ArtifactMatcherBuilder(properties);
                     node.accept(matcher);
+                    stateful |= matcher.isStateful();
                     params.add(artifact(matcher.build()));
-                    node.getChildren().clear();
                     break;
                 }
                 case "not": {
@@ -13,6 +13,7 @@ import eu.maveniverse.maven.mima.context.Context;
 import eu.maveniverse.maven.mima.context.Runtime;
 import eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -87,6 +88,12 @@ public interface ToolboxCommando {
      */
     ArtifactSink artifactSink(Output output, String spec) throws IOException;
 
+    /**
+     * Provides {@link ArtifactSink} according to spec, that records completed artifacts into journal file. If
+     * resuming, artifacts recorded in journal as completed are skipped, otherwise existing journal is discarded.
+     */
+    ArtifactSink artifactSink(Output output, String spec, Path journal, boolean resume) throws IOException;
+
     /**
      * Shorthand method, creates {@link ResolutionRoot} out of passed in artifact.
      */
@@ -111,6 +118,8 @@ public interface ToolboxCommando {
         return result;
     }
 
+    boolean classIndex(Path index, Collection<String> names, Output output) throws IOException;
+
     boolean classpath(ResolutionScope resolutionScope, ResolutionRoot resolutionRoot, Output output) throws Exception;
 
     boolean copy(Collection<Artifact> artifacts, ArtifactSink sink, Output output) throws Exception;
@@ -124,10 +133,23 @@ public interface ToolboxCommando {
 
     boolean copyAllRecorded(ArtifactSink sink, boolean stopRecording, Output output) throws Exception;
 
-    boolean deploy(RemoteRepository remoteRepository, Supplier<Collection<Artifact>> artifactSupplier, Output output)
+    boolean deploy(
+            RemoteRepository remoteRepository,
+            Supplier<Collection<Artifact>> artifactSupplier,
+            boolean skipExisting,
+            int parallelism,
+            int retries,
+            Output output)
             throws Exception;
 
-    boolean deployAllRecorded(RemoteRepository remoteRepository, boolean stopRecording, Output output) throws Exception;
+    boolean deployAllRecorded(
+            RemoteRepository remoteRepository,
+            boolean stopRecording,
+            boolean skipExisting,
+            int parallelism,
+            int retries,
+            Output output)
+            throws Exception;
 
     boolean install(Supplier<Collection<Artifact>> artifactSupplier, Output output) throws Exception;
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Construction to accept collection of artifacts and stream them into a single archive file, in one pass.
+ * <p>
+ * Archive is written to a temporary file next to target, and is moved in place on {@link #close()}. Content that is
+ * already compressed (like JARs) is stored as is, while rest is deflated in parallel blocks, using all cores. ZIP
+ * entries deflated in parallel are spooled into a temporary file next to target, as ZIP entry header precedes the
+ * compressed data, and records its size and CRC.
+ */
+public final class ArchiveSink implements ArtifactSink {
+    /**
+     * Creates archive sink, that accepts all artifacts and writes them into archive of given format, using names
+     * according to supplied name mapper, and prevents overwrite.
+     *
+     * @param output The output.
+     * @param path The archive file to create.
+     * @param format The archive format, if {@code null}, is guessed from archive file name.
+     * @param artifactNameMapper The artifact name mapper, that decides entry name of artifact within archive.
+     */
+    public static ArchiveSink archive(
+            Output output, Path path, Format format, Function<Artifact, String> artifactNameMapper) throws IOException {
+        return new ArchiveSink(
+                output,
+                path,
+                format != null ? format : Format.of(path),
+                ArtifactMatcher.unique(),
+                a -> a,
+                artifactNameMapper);
+    }
+
+    /**
+     * Archive format.
+     */
+    public enum Format {
+        /**
+         * ZIP archive.
+         */
+        ZIP,
+
+        /**
+         * Gzip compressed tar archive.
+         */
+        TGZ;
+
+        /**
+         * Guesses format from file name: files ending with {@code .tar.gz} or {@code .tgz} are {@link #TGZ}, all
+         * others are {@link #ZIP}.
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return TGZ;
+            }
+            return ZIP;
+        }
+    }
+
+    /**
+     * Extensions of files that are already compressed, hence are not deflated again.
+     */
+    private static final List<String> COMPRESSED_EXTENSIONS =
+            Arrays.asList("jar", "war", "ear", "zip", "aar", "apk", "hpi", "nbm", "gz", "tgz", "bz2", "xz", "7z");
+
+    /**
+     * ZIP entries not bigger than single block of parallel deflate gain nothing from it, so they are deflated by
+     * {@link ZipArchiveOutputStream} directly.
+     */
+    private static final long MIN_PARALLEL_ENTRY_SIZE = ParallelDeflateOutputStream.BLOCK_SIZE;
+
+    private final Output output;
+    private final Path archive;
+    private final Path tmpArchive;
+    private Path spool;
+    private final Format format;
+    private final Predicate<Artifact> artifactMatcher;
+    private final Function<Artifact, Artifact> artifactMapper;
+    private final Function<Artifact, String> artifactNameMapper;
+    private final HashSet<String> writtenEntries;
+    private final int threads;
+    private final ExecutorService executor;
+    private final ZipArchiveOutputStream zip;
+    private final ParallelDeflateOutputStream gzip;
+    private final TarArchiveOutputStream tar;
+    private boolean cleanedUp;
+
+    private ArchiveSink(
+            Output output,
+            Path archive,
+            Format format,
+            Predicate<Artifact> artifactMatcher,
+            Function<Artifact, Artifact> artifactMapper,
+            Function<Artifact, String> artifactNameMapper)
+            throws IOException {
+        this.output = requireNonNull(output, "output");
+        this.archive = requireNonNull(archive, "archive").toAbsolutePath();
+        if (Files.isDirectory(this.archive)) {
+            throw new IllegalArgumentException("archive must not be a directory");
+        }
+        this.format = requireNonNull(format, "format");
+        this.artifactMatcher = requireNonNull(artifactMatcher, "artifactMatcher");
+        this.artifactMapper = requireNonNull(artifactMapper, "artifactMapper");
+        this.artifactNameMapper = requireNonNull(artifactNameMapper, "artifactNameMapper");
+        this.writtenEntries = new HashSet<>();
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "archive-deflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(this.archive.getParent());
+        this.tmpArchive = TempFiles.createSibling(this.archive);
+        if (format == Format.ZIP) {
+            this.zip = new ZipArchiveOutputStream(tmpArchive);
+            this.gzip = null;
+            this.tar = null;
+        } else {
+            this.zip = null;
+            this.gzip = ParallelDeflateOutputStream.gzip(
+                    new BufferedOutputStream(Files.newOutputStream(tmpArchive)), executor, threads);
+            this.tar = new TarArchiveOutputStream(gzip);
+            this.tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            this.tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+        this.cleanedUp = false;
+    }
+
+    public Path getArchive() {
+        return archive;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized void accept(Artifact artifact) throws IOException {
+        requireNonNull(artifact, "artifact");
+        output.verbose("Accept artifact {}", artifact);
+        if (artifactMatcher.test(artifact)) {
+            output.verbose("  matched");
+            String name = artifactNameMapper.apply(artifactMapper.apply(artifact));
+            output.verbose("  mapped to name {}", name);
+            if (name.startsWith("/") || Arrays.asList(name.split("[/\\\\]")).contains("..")) {
+                throw new IOException("Path escape prevented; check mappings");
+            }
+            if (!writtenEntries.add(name)) {
+                throw new IOException("Overwrite prevented; check mappings");
+            }
+            Path source = artifact.getFile().toPath();
+            boolean compressed =
+                    COMPRESSED_EXTENSIONS.contains(artifact.getExtension().toLowerCase(Locale.ENGLISH));
+            if (format == Format.ZIP) {
+                writeZipEntry(name, source, compressed);
+            } else {
+                writeTarEntry(name, source, compressed);
+            }
+        } else {
+            output.verbose("  not matched");
+        }
+    }
+
+    private void writeZipEntry(String name, Path source, boolean compressed) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setLastModifiedTime(Files.getLastModifiedTime(source));
+        long size = Files.size(source);
+        if (compressed || size <= MIN_PARALLEL_ENTRY_SIZE) {
+            entry.setMethod(compressed ? ZipArchiveEntry.STORED : ZipArchiveEntry.DEFLATED);
+            zip.putArchiveEntry(entry);
+            Files.copy(source, zip);
+            zip.closeArchiveEntry();
+        } else {
+            if (spool == null) {
+                spool = TempFiles.createSibling(archive);
+            }
+            ParallelDeflateOutputStream deflater;
+            try (OutputStream spooled = new BufferedOutputStream(Files.newOutputStream(spool))) {
+                deflater = ParallelDeflateOutputStream.deflate(spooled, executor, threads);
+                Files.copy(source, deflater);
+                deflater.finish();
+            }
+            entry.setMethod(ZipArchiveEntry.DEFLATED);
+            entry.setSize(deflater.getTotalIn());
+            entry.setCompressedSize(deflater.getTotalOut());
+            entry.setCrc(deflater.getCrc());
+            try (InputStream deflated = Files.newInputStream(spool)) {
+                zip.addRawArchiveEntry(entry, deflated);
+            }
+        }
+    }
+
+    private void writeTarEntry(String name, Path source, boolean compressed) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(Files.size(source));
+        entry.setLastModifiedTime(Files.getLastModifiedTime(source));
+        tar.putArchiveEntry(entry);
+        if (compressed) {
+            gzip.setLevel(Deflater.NO_COMPRESSION);
+        }
+        Files.copy(source, tar);
+        tar.closeArchiveEntry();
+        gzip.setLevel(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        output.error("Cleaning up: {}", archive);
+        cleanedUp = true;
+        try {
+            closeStreams();
+        } catch (IOException ex) {
+            // ignore
+        }
+        try {
+            Files.deleteIfExists(tmpArchive);
+            deleteSpool();
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cleanedUp) {
+            return;
+        }
+        try {
+            if (zip != null) {
+                zip.finish();
+            } else {
+                tar.finish();
+            }
+            closeStreams();
+            Files.move(tmpArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+            output.normal("Written {} entries into {}", writtenEntries.size(), archive);
+        } finally {
+            Files.deleteIfExists(tmpArchive);
+            deleteSpool();
+        }
+    }
+
+    private void deleteSpool() throws IOException {
+        if (spool != null) {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private void closeStreams() throws IOException {
+        try {
+            if (zip != null) {
+                zip.close();
+            } else {
+                tar.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -19,11 +19,14 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
@@ -53,24 +56,92 @@ public final class ArtifactSinks {
     static class ArtifactSinkBuilder extends SpecParser.Builder {
         private final Output output;
         private final ToolboxCommandoImpl tc;
+        private int staged;
+        private final IdentityHashMap<SpecParser.Node, String> names;
+        private final ArrayDeque<SpecParser.Node> path;
+        private SpecParser.Node timedAll;
+        private List<TimedArtifactSink> timedSinks;
 
         public ArtifactSinkBuilder(Map<String, ?> properties, Output output, ToolboxCommandoImpl tc) {
             super(properties);
             this.output = output;
             this.tc = tc;
+            this.names = new IdentityHashMap<>();
+            this.path = new ArrayDeque<>();
+        }
+
+        /**
+         * Creates builder for child sink of ops handling their children manually, that inherits state of this
+         * builder.
+         */
+        private ArtifactSinkBuilder childBuilder(SpecParser.Node node, int index) {
+            ArtifactSinkBuilder result = new ArtifactSinkBuilder(properties, output, tc);
+            SpecParser.Node child = node.getChildren().get(index);
+            result.names.put(child, names.get(node) + "/" + child.getValue() + "[" + index + "]");
+            result.timedAll = timedAll;
+            result.timedSinks = timedSinks;
+            return result;
         }
 
         @Override
         public boolean visitEnter(SpecParser.Node node) {
+            if ("staged".equals(node.getValue())) {
+                staged++;
+            }
+            if (node instanceof SpecParser.Op) {
+                if (!names.containsKey(node)) {
+                    SpecParser.Node parent = path.peek();
+                    if (parent == null || "timed".equals(parent.getValue()) || "timedAll".equals(parent.getValue())) {
+                        names.put(node, node.getValue());
+                    } else {
+                        names.put(
+                                node,
+                                names.get(parent) + "/" + node.getValue() + "["
+                                        + parent.getChildren().indexOf(node) + "]");
+                    }
+                }
+                path.push(node);
+                if (timedAll == null && "timedAll".equals(node.getValue())) {
+                    timedAll = node;
+                    timedSinks = new ArrayList<>();
+                }
+            }
             return super.visitEnter(node)
                     && !"flat".equals(node.getValue())
+                    && !"checksums".equals(node.getValue())
+                    && !"cas".equals(node.getValue())
                     && !"matching".equals(node.getValue())
                     && !"mapping".equals(node.getValue())
-                    && !"unpack".equals(node.getValue());
+                    && !"unpack".equals(node.getValue())
+                    && !"archive".equals(node.getValue())
+                    && !"repackage".equals(node.getValue());
+        }
+
+        @Override
+        public boolean visitExit(SpecParser.Node node) {
+            boolean result = super.visitExit(node);
+            if (node instanceof SpecParser.Op) {
+                path.pop();
+            }
+            return result;
         }
 
         @Override
         protected void processOp(SpecParser.Node node) {
+            processSinkOp(node);
+            if (timedSinks != null
+                    && node != timedAll
+                    && !"timed".equals(node.getValue())
+                    && !"timedAll".equals(node.getValue())
+                    && !params.isEmpty()
+                    && params.get(params.size() - 1) instanceof ArtifactSink) {
+                TimedArtifactSink timed = TimedArtifactSink.timed(names.get(node), artifactSinkParam(node.getValue()));
+                timedSinks.add(timed);
+                params.add(timed);
+            }
+        }
+
+        private void processSinkOp(SpecParser.Node node) {
             switch (node.getValue()) {
                 case "null": {
                     params.add(nullArtifactSink());
@@ -92,6 +163,78 @@ public final class ArtifactSinks {
                     params.add(nonClosingArtifactSink(artifactSinkParam(node.getValue())));
                     break;
                 }
+                case "async": {
+                    int threads = 1;
+                    int queueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+                    if (node.getChildren().size() == 3) {
+                        threads = intParam(node.getValue());
+                        queueSize = intParam(node.getValue());
+                    } else if (node.getChildren().size() == 2) {
+                        queueSize = intParam(node.getValue());
+                    } else if (node.getChildren().size() != 1) {
+                        throw new IllegalArgumentException("op async accepts only 1..3 argument");
+                    }
+                    params.add(asyncArtifactSink(artifactSinkParam(node.getValue()), queueSize, threads));
+                    break;
+                }
+                case "staged": {
+                    staged--;
+                    ArtifactSink sink = artifactSinkParam(node.getValue());
+                    ArtifactSink unwrapped = TimedArtifactSink.unwrap(sink);
+                    if (!(unwrapped instanceof DirectorySink && ((DirectorySink) unwrapped).isStaged())
+                            && !(unwrapped instanceof UnpackSink && ((UnpackSink) unwrapped).isStaged())) {
+                        sink.cleanup(null);
+                        throw new IllegalArgumentException(
+                                "op staged accepts only flat, repository, repositoryWithMetadata or unpack sink");
+                    }
+                    params.add(sink);
+                    break;
+                }
+                case "timed":
+                case "timedAll": {
+                    if (node.getChildren().isEmpty() || node.getChildren().size() > 2) {
+                        throw new IllegalArgumentException("op " + node.getValue() + " accepts only 1..2 argument");
+                    }
+                    Path report = null;
+                    if (node.getChildren().size() == 2) {
+                        report = tc.getContext().basedir().resolve(stringParam(node.getValue()));
+                    }
+                    ArtifactSink sink = artifactSinkParam(node.getValue());
+                    List<TimedArtifactSink> timed;
+                    if (node == timedAll) {
+                        timed = timedSinks;
+                        timedAll = null;
+                        timedSinks = null;
+                    } else {
+                        if (!(sink instanceof TimedArtifactSink)) {
+                            sink = TimedArtifactSink.timed(
+                                    names.get(node.getChildren().get(0)), sink);
+                        }
+                        timed = Collections.singletonList((TimedArtifactSink) sink);
+                    }
+                    params.add(TimedArtifactSink.reporting(output, timed, report, sink));
+                    break;
+                }
+                case "journal":
+                case "resume": {
+                    if (node.getChildren().size() != 2) {
+                        throw new IllegalArgumentException("op " + node.getValue() + " accepts only 2 argument");
+                    }
+                    ArtifactSink sink = artifactSinkParam(node.getValue());
+                    try {
+                        params.add(JournalingSink.journaling(
+                                output,
+                                tc.getContext().basedir().resolve(stringParam(node.getValue())),
+                                "resume".equals(node.getValue()),
+                                sink));
+                    } catch (IllegalArgumentException e) {
+                        sink.cleanup(null);
+                        throw e;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
                 case "flat": {
                     try {
                         ArtifactNameMapper p1;
@@ -112,8 +255,32 @@ public final class ArtifactSinks {
                         } else {
                             throw new IllegalArgumentException("op flat accepts only 1..2 argument");
                         }
-                        params.add(DirectorySink.flat(output, p0, p1));
-                        node.getChildren().clear();
+                        params.add(DirectorySink.flat(output, p0, p1, staged > 0));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
+                case "cas": {
+                    try {
+                        ArtifactNameMapper p2;
+                        if (node.getChildren().size() == 3) {
+                            ArtifactNameMapper.ArtifactNameMapperBuilder mapperBuilder =
+                                    new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
+                            node.getChildren().get(2).accept(mapperBuilder);
+                            p2 = mapperBuilder.build();
+                        } else if (node.getChildren().size() == 2) {
+                            p2 = ArtifactNameMapper.AbVCE();
+                        } else {
+                            throw new IllegalArgumentException("op cas accepts only 2..3 argument");
+                        }
+                        Path p0 = tc.getContext()
+                                .basedir()
+                                .resolve(node.getChildren().get(0).getValue());
+                        Path p1 = tc.getContext()
+                                .basedir()
+                                .resolve(node.getChildren().get(1).getValue());
+                        params.add(ContentAddressedSink.cas(output, p0, p1, p2));
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
                     }
@@ -122,7 +289,113 @@ public final class ArtifactSinks {
                 case "repository": {
                     try {
                         Path p0 = tc.getContext().basedir().resolve(stringParam(node.getValue()));
-                        params.add(DirectorySink.repository(output, p0));
+                        params.add(DirectorySink.repository(output, p0, staged > 0));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
+                case "repositoryWithMetadata": {
+                    if (node.getChildren().isEmpty()) {
+                        throw new IllegalArgumentException("op repositoryWithMetadata accepts only 1..n argument");
+                    }
+                    List<String> args = stringParams(node.getValue());
+                    Collections.reverse(args);
+                    List<String> algorithms = args.subList(1, args.size());
+                    try {
+                        params.add(DirectorySink.repositoryWithMetadata(
+                                output,
+                                tc.getContext().basedir().resolve(args.get(0)),
+                                algorithms.isEmpty() ? DirectorySink.DEFAULT_REPOSITORY_CHECKSUMS : algorithms,
+                                staged > 0));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
+                case "index": {
+                    try {
+                        if (node.getChildren().isEmpty()) {
+                            throw new IllegalArgumentException("op index accepts only 1..n argument");
+                        }
+                        List<String> args = stringParams(node.getValue());
+                        Collections.reverse(args);
+                        Path p0 = tc.getContext().basedir().resolve(args.get(0));
+                        boolean p1 = args.size() > 1 && Boolean.parseBoolean(args.get(1));
+                        List<IndexFileSink.Column> p2 = args.subList(Math.min(2, args.size()), args.size()).stream()
+                                .map(c -> IndexFileSink.Column.valueOf(c.toUpperCase(Locale.ENGLISH)))
+                                .collect(Collectors.toList());
+                        params.add(IndexFileSink.index(
+                                output, p0, p1, p0.getFileName().toString().endsWith(".gz"), p2));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
+                case "classIndex": {
+                    params.add(ClassIndexSink.classIndex(
+                            output,
+                            tc.getContext().basedir().resolve(stringParam(node.getValue())),
+                            Runtime.getRuntime().availableProcessors()));
+                    break;
+                }
+                case "checksums": {
+                    if (node.getChildren().isEmpty()) {
+                        throw new IllegalArgumentException("op checksums accepts only 1..n argument");
+                    }
+                    Path p0 = tc.getContext()
+                            .basedir()
+                            .resolve(node.getChildren().get(0).getValue());
+                    ArtifactNameMapper p1 = ArtifactNameMapper.AbVCE();
+                    ArrayList<String> algorithms = new ArrayList<>();
+                    for (SpecParser.Node child :
+                            node.getChildren().subList(1, node.getChildren().size())) {
+                        if (child instanceof SpecParser.Op) {
+                            ArtifactNameMapper.ArtifactNameMapperBuilder mapperBuilder =
+                                    new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
+                            child.accept(mapperBuilder);
+                            p1 = mapperBuilder.build();
+                        } else {
+                            algorithms.add(child.getValue());
+                        }
+                    }
+                    params.add(ChecksummingSink.sidecars(
+                            output,
+                            p0,
+                            p1,
+                            algorithms.isEmpty() ? ChecksummingSink.DEFAULT_ALGORITHMS : algorithms,
+                            Runtime.getRuntime().availableProcessors()));
+                    break;
+                }
+                case "checksumsManifest": {
+                    if (node.getChildren().isEmpty()) {
+                        throw new IllegalArgumentException("op checksumsManifest accepts only 1..n argument");
+                    }
+                    List<String> args = stringParams(node.getValue());
+                    Collections.reverse(args);
+                    List<String> algorithms = args.subList(1, args.size());
+                    params.add(ChecksummingSink.manifest(
+                            output,
+                            tc.getContext().basedir().resolve(args.get(0)),
+                            algorithms.isEmpty() ? ChecksummingSink.DEFAULT_ALGORITHMS : algorithms,
+                            Runtime.getRuntime().availableProcessors()));
+                    break;
+                }
+                case "verify": {
+                    List<String> algorithms = stringParams(node.getValue());
+                    Collections.reverse(algorithms);
+                    params.add(VerifyingSink.sidecars(
+                            output,
+                            algorithms.isEmpty() ? Checksums.ALGORITHMS : algorithms,
+                            Runtime.getRuntime().availableProcessors()));
+                    break;
+                }
+                case "verifyManifest": {
+                    try {
+                        params.add(VerifyingSink.manifest(
+                                output,
+                                tc.getContext().basedir().resolve(stringParam(node.getValue())),
+                                Runtime.getRuntime().availableProcessors()));
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
                     }
@@ -153,11 +426,29 @@ public final class ArtifactSinks {
                     break;
                 }
                 case "deploy": {
+                    boolean skipExisting = false;
+                    int retries = DeployingSink.DEFAULT_RETRIES;
+                    int parallelism = DeployingSink.DEFAULT_PARALLELISM;
+                    if (node.getChildren().size() == 4) {
+                        skipExisting = booleanParam(node.getValue());
+                        retries = intParam(node.getValue());
+                        parallelism = intParam(node.getValue());
+                    } else if (node.getChildren().size() == 3) {
+                        retries = intParam(node.getValue());
+                        parallelism = intParam(node.getValue());
+                    } else if (node.getChildren().size() == 2) {
+                        parallelism = intParam(node.getValue());
+                    } else if (node.getChildren().size() != 1) {
+                        throw new IllegalArgumentException("op deploy accepts only 1..4 argument");
+                    }
                     params.add(DeployingSink.deploying(
                             output,
                             tc.getToolboxResolver().getRepositorySystem(),
                             tc.getToolboxResolver().getSession(),
-                            tc.parseRemoteRepository(stringParam(node.getValue()))));
+                            tc.parseRemoteRepository(stringParam(node.getValue())),
+                            parallelism,
+                            retries,
+                            skipExisting));
                     break;
                 }
                 case "purge": {
@@ -170,14 +461,30 @@ public final class ArtifactSinks {
                                     .collect(Collectors.toList())));
                     break;
                 }
+                case "purgePlan": {
+                    params.add(PurgingSink.purging(
+                            output,
+                            PurgingSink.Mode.WHOLE,
+                            false,
+                            true,
+                            tc.getToolboxResolver().getRepositorySystem(),
+                            tc.getToolboxResolver().getSession(),
+                            stringParams(node.getValue()).stream()
+                                    .map(tc.getToolboxResolver()::parseRemoteRepository)
+                                    .collect(Collectors.toList()),
+                            PurgingSink.DEFAULT_PARALLELISM));
+                    break;
+                }
                 case "unpack": {
                     try {
                         if (node.getChildren().size() == 1) {
                             Path p0 = tc.getContext()
                                     .basedir()
                                     .resolve(node.getChildren().get(0).getValue());
-                            params.add(UnpackSink.unpack(output, p0, ArtifactNameMapper.ACVE(), true));
-                        } else if (node.getChildren().size() == 2) {
+                            params.add(UnpackSink.unpack(
+                                    output, p0, ArtifactNameMapper.ACVE(), true, UnpackSink.Mode.ALWAYS, staged > 0));
+                        } else if (node.getChildren().size() == 2
+                                || node.getChildren().size() == 3) {
                             ArtifactNameMapper.ArtifactNameMapperBuilder mapperBuilder =
                                     new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
                             node.getChildren().get(1).accept(mapperBuilder);
@@ -185,14 +492,81 @@ public final class ArtifactSinks {
                             Path p0 = tc.getContext()
                                     .basedir()
                                     .resolve(node.getChildren().get(0).getValue());
-                            params.add(UnpackSink.unpack(output, p0, p1, true));
+                            UnpackSink.Mode p2 = node.getChildren().size() == 3
+                                    ? UnpackSink.Mode.valueOf(
+                                            node.getChildren().get(2).getValue().toUpperCase(Locale.ENGLISH))
+                                    : UnpackSink.Mode.ALWAYS;
+                            params.add(UnpackSink.unpack(output, p0, p1, true, p2, staged > 0));
                         } else {
-                            throw new IllegalArgumentException("op unpack accepts only 1..2 argument");
+                            throw new IllegalArgumentException("op unpack accepts only 1..3 argument");
                         }
                     } catch (IOException e) {
                         throw new UncheckedIOException(e);
                     }
-                    node.getChildren().clear();
+                    break;
+                }
+                case "archive": {
+                    try {
+                        if (node.getChildren().isEmpty() || node.getChildren().size() > 3) {
+                            throw new IllegalArgumentException("op archive accepts only 1..3 argument");
+                        }
+                        Path p0 = tc.getContext()
+                                .basedir()
+                                .resolve(node.getChildren().get(0).getValue());
+                        ArchiveSink.Format p1 = node.getChildren().size() > 1
+                                ? ArchiveSink.Format.valueOf(
+                                        node.getChildren().get(1).getValue().toUpperCase(Locale.ENGLISH))
+                                : null;
+                        ArtifactNameMapper p2;
+                        if (node.getChildren().size() == 3) {
+                            ArtifactNameMapper.ArtifactNameMapperBuilder mapperBuilder =
+                                    new ArtifactNameMapper.ArtifactNameMapperBuilder(properties);
+                            node.getChildren().get(2).accept(mapperBuilder);
+                            p2 = mapperBuilder.build();
+                        } else {
+                            p2 = ArtifactNameMapper.AbVCE();
+                        }
+                        params.add(ArchiveSink.archive(output, p0, p1, p2));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    break;
+                }
+                case "repackage": {
+                    if (node.getChildren().isEmpty()) {
+                        throw new IllegalArgumentException("op repackage accepts only 1..4 argument");
+                    }
+                    Path p0 = tc.getContext()
+                            .basedir()
+                            .resolve(node.getChildren().get(0).getValue());
+                    ArrayList<String> includes = new ArrayList<>();
+                    ArrayList<String> excludes = new ArrayList<>();
+                    ArrayList<String> merges = new ArrayList<>();
+                    for (SpecParser.Node rule :
+                            node.getChildren().subList(1, node.getChildren().size())) {
+                        List<String> globs = rule.getChildren().stream()
+                                .map(SpecParser.Node::getValue)
+                                .collect(Collectors.toList());
+                        switch (rule.getValue()) {
+                            case "include":
+                                includes.addAll(globs);
+                                break;
+                            case "exclude":
+                                excludes.addAll(globs);
+                                break;
+                            case "merge":
+                                merges.addAll(globs);
+                                break;
+                            default:
+                                throw new IllegalArgumentException(
+                                        "op repackage accepts only include, exclude and merge rules");
+                        }
+                    }
+                    try {
+                        params.add(RepackagingSink.repackage(output, p0, includes, excludes, merges));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                     break;
                 }
                 case "matching": {
@@ -203,11 +577,10 @@ public final class ArtifactSinks {
                             new ArtifactMatcher.ArtifactMatcherBuilder(properties);
                     node.getChildren().get(0).accept(matcherBuilder);
                     ArtifactMatcher matcher = matcherBuilder.build();
-                    ArtifactSinkBuilder sinkBuilder = new ArtifactSinkBuilder(properties, output, tc);
+                    ArtifactSinkBuilder sinkBuilder = childBuilder(node, 1);
                     node.getChildren().get(1).accept(sinkBuilder);
                     ArtifactSink delegate = sinkBuilder.build();
                     params.add(matchingArtifactSink(matcher, delegate));
-                    node.getChildren().clear();
                     break;
                 }
                 case "mapping": {
@@ -218,15 +591,14 @@ public final class ArtifactSinks {
                             new ArtifactMapper.ArtifactMapperBuilder(properties);
                     node.getChildren().get(0).accept(mapperBuilder);
                     ArtifactMapper mapper = mapperBuilder.build();
-                    ArtifactSinkBuilder sinkBuilder = new ArtifactSinkBuilder(properties, output, tc);
+                    ArtifactSinkBuilder sinkBuilder = childBuilder(node, 1);
                     node.getChildren().get(1).accept(sinkBuilder);
                     ArtifactSink delegate = sinkBuilder.build();
                     params.add(mappingArtifactSink(mapper, delegate));
-                    node.getChildren().clear();
                     break;
                 }
                 case "moduleDescriptor": {
-                    params.add(new ModuleDescriptorExtractingSink(output));
+                    params.add(new ModuleDescriptorExtractingSink(output, tc.getModuleDescriptorCache()));
                     break;
                 }
                 default:
@@ -285,6 +657,10 @@ public final class ArtifactSinks {
             this.delegate = requireNonNull(delegate, "delegate");
         }
 
+        public ArtifactSink getDelegate() {
+            return delegate;
+        }
+
         public void accept(Collection<Artifact> artifacts) throws IOException {
             delegate.accept(artifacts);
         }
@@ -472,6 +848,10 @@ public final class ArtifactSinks {
             this.artifactSinks = Collections.unmodifiableCollection(new ArrayList<>(artifactSinks));
         }
 
+        public Collection<ArtifactSink> getArtifactSinks() {
+            return artifactSinks;
+        }
+
         @Override
         public void accept(Collection<Artifact> artifacts) throws IOException {
             for (ArtifactSink sink : artifactSinks) {
@@ -500,4 +880,89 @@ public final class ArtifactSinks {
             }
         }
     }
+
+    /**
+     * Default queue size of asynchronous sinks.
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1024;
+
+    /**
+     * Creates an asynchronous artifact sink, that decouples caller from delegate using a bounded queue of given size
+     * and given count of worker threads. If more than one thread is used, delegate must be thread safe.
+     */
+    public static AsyncArtifactSink asyncArtifactSink(ArtifactSink delegate, int queueSize, int threads) {
+        requireNonNull(delegate, "delegate");
+        return new AsyncArtifactSink(delegate, queueSize, threads);
+    }
+
+    /**
+     * Creates an asynchronous "tee" artifact sink out of supplied sinks.
+     */
+    public static AsyncTeeArtifactSink asyncTeeArtifactSink(ArtifactSink... artifactSinks) {
+        return asyncTeeArtifactSink(Arrays.asList(artifactSinks), DEFAULT_ASYNC_QUEUE_SIZE);
+    }
+
+    /**
+     * Creates an asynchronous "tee" artifact sink out of supplied sinks, where each sink gets own queue of given
+     * size and own worker thread, so sinks are processing artifacts concurrently, each in order they were accepted.
+     */
+    public static AsyncTeeArtifactSink asyncTeeArtifactSink(
+            Collection<? extends ArtifactSink> artifactSinks, int queueSize) {
+        requireNonNull(artifactSinks, "artifactSinks");
+        return new AsyncTeeArtifactSink(artifactSinks, queueSize);
+    }
+
+    public static class AsyncTeeArtifactSink implements ArtifactSink {
+        private final List<AsyncArtifactSink> artifactSinks;
+        private boolean cleanedUp;
+
+        private AsyncTeeArtifactSink(Collection<? extends ArtifactSink> artifactSinks, int queueSize) {
+            this.artifactSinks = artifactSinks.stream()
+                    .map(s -> new AsyncArtifactSink(s, queueSize, 1))
+                    .collect(Collectors.toList());
+            this.cleanedUp = false;
+        }
+
+        @Override
+        public void accept(Artifact artifact) throws IOException {
+            for (AsyncArtifactSink sink : artifactSinks) {
+                sink.checkFailure();
+            }
+            for (AsyncArtifactSink sink : artifactSinks) {
+                sink.accept(artifact);
+            }
+        }
+
+        @Override
+        public void cleanup(Exception e) {
+            cleanedUp = true;
+            for (AsyncArtifactSink sink : artifactSinks) {
+                sink.cancel();
+            }
+            for (AsyncArtifactSink sink : artifactSinks) {
+                sink.getDelegate().cleanup(e);
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (cleanedUp) {
+                return;
+            }
+            Exception failure = null;
+            for (AsyncArtifactSink sink : artifactSinks) {
+                Exception e = sink.drain();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                cleanup(failure);
+                throw failure;
+            }
+            for (AsyncArtifactSink sink : artifactSinks) {
+                sink.getDelegate().close();
+            }
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Sink decorator that decouples caller from delegate: accepted artifacts are put into a bounded queue, and are
+ * delivered to delegate by worker threads. When queue is full, caller blocks. With single worker thread artifacts are
+ * delivered in same order as they were accepted; with more worker threads, delegate is invoked concurrently and
+ * order is not retained. Sinks of this package are safe to be invoked concurrently: those writing single file (like
+ * archive) serialize accepts, and unpack serializes artifacts sharing root.
+ * <p>
+ * First failure of delegate is recorded, and is thrown to caller on any subsequent call; after failure worker keeps
+ * discarding queued artifacts, so caller never blocks on a failed sink. On {@link #close()} queue is drained and
+ * worker is joined, before delegate is closed (or cleaned up, if it failed meanwhile). On {@link #cleanup(Exception)}
+ * pending artifacts are discarded, worker is joined and delegate is cleaned up.
+ */
+public final class AsyncArtifactSink implements ArtifactSink {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final Object STOP = new Object();
+
+    private final ArtifactSink delegate;
+    private final BlockingQueue<Object> queue;
+    private final AtomicReference<Exception> failure;
+    private final List<Thread> workers;
+    private boolean stopped;
+    private boolean cleanedUp;
+
+    AsyncArtifactSink(ArtifactSink delegate, int queueSize, int threads) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize must be positive");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.failure = new AtomicReference<>();
+        this.workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "toolbox-async-sink-" + THREAD_COUNTER.incrementAndGet());
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        this.stopped = false;
+        this.cleanedUp = false;
+    }
+
+    public ArtifactSink getDelegate() {
+        return delegate;
+    }
+
+    private void work() {
+        try {
+            Object item = queue.take();
+            while (item != STOP) {
+                if (failure.get() == null) {
+                    try {
+                        delegate.accept((Artifact) item);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                item = queue.take();
+            }
+            // pass on stop signal to other workers; queue holds nothing else at this point
+            queue.put(STOP);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    @Override
+    public void accept(Artifact artifact) throws IOException {
+        requireNonNull(artifact, "artifact");
+        checkFailure();
+        if (stopped) {
+            throw new IllegalStateException("already closed");
+        }
+        try {
+            queue.put(artifact);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while enqueuing artifact");
+        }
+    }
+
+    void checkFailure() throws IOException {
+        Exception e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e != null) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Stops accepting artifacts, waits for worker to deliver all queued artifacts, and returns the delegate failure,
+     * if any.
+     */
+    Exception drain() throws InterruptedException {
+        if (!stopped) {
+            stopped = true;
+            queue.put(STOP);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return failure.get();
+    }
+
+    /**
+     * Stops accepting artifacts, discards queued artifacts, and waits for worker to finish.
+     */
+    void cancel() {
+        if (!stopped) {
+            stopped = true;
+            queue.clear();
+            queue.add(STOP);
+        } else {
+            queue.removeIf(o -> o != STOP);
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        cleanedUp = true;
+        cancel();
+        delegate.cleanup(e);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (cleanedUp) {
+            return;
+        }
+        Exception e = drain();
+        if (e != null) {
+            delegate.cleanup(e);
+            throw e;
+        }
+        delegate.close();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Construction to accept collection of artifacts and calculate their checksums, writing them either as sidecar files
+ * into target directory, named by an {@link ArtifactNameMapper} (like {@code foo-1.0.jar.sha1}, so usually next to
+ * artifacts copied there with same name mapper), or into one aggregated manifest file. Sidecars are never written next
+ * to artifact files themselves, as those are usually in local repository.
+ * <p>
+ * Every artifact file is read only once, sequentially, no matter how many algorithms are
+ * requested. Artifacts are hashed in parallel, on a pool of daemon threads; {@link #close()} waits for all of them.
+ * <p>
+ * Manifest file has one line per artifact: artifact id followed by tab separated {@code ALGORITHM=checksum} pairs,
+ * in order of acceptance. It is written into temporary file next to target, and is moved in place on close.
+ */
+public final class ChecksummingSink implements ArtifactSink {
+    /**
+     * Algorithms used when none specified.
+     */
+    public static final List<String> DEFAULT_ALGORITHMS =
+            Collections.unmodifiableList(Arrays.asList(Checksums.SHA_1, Checksums.SHA_256, Checksums.SHA_512));
+
+    /**
+     * Creates sink that writes sidecar files into given directory, next to path given name mapper maps artifact to.
+     */
+    public static ChecksummingSink sidecars(
+            Output output,
+            Path directory,
+            ArtifactNameMapper artifactNameMapper,
+            Collection<String> algorithms,
+            int threads) {
+        return new ChecksummingSink(
+                output,
+                requireNonNull(directory, "directory"),
+                requireNonNull(artifactNameMapper, "artifactNameMapper"),
+                null,
+                algorithms,
+                threads);
+    }
+
+    /**
+     * Creates sink that writes aggregated manifest file.
+     */
+    public static ChecksummingSink manifest(Output output, Path manifest, Collection<String> algorithms, int threads) {
+        return new ChecksummingSink(output, null, null, requireNonNull(manifest, "manifest"), algorithms, threads);
+    }
+
+    /**
+     * Reads manifest file written by this sink, as artifact id to algorithm to checksum map.
+     */
+    public static Map<String, Map<String, String>> readManifest(Path manifest) throws IOException {
+        requireNonNull(manifest, "manifest");
+        LinkedHashMap<String, Map<String, String>> result = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String[] parts = line.split("\t");
+                if (parts.length > 1) {
+                    LinkedHashMap<String, String> checksums = new LinkedHashMap<>();
+                    for (int i = 1; i < parts.length; i++) {
+                        int eq = parts[i].indexOf('=');
+                        if (eq > 0) {
+                            checksums.put(Checksums.algorithm(parts[i].substring(0, eq)), parts[i].substring(eq + 1));
+                        }
+                    }
+                    result.put(parts[0], checksums);
+                }
+                line = reader.readLine();
+            }
+        }
+        return result;
+    }
+
+    private final Output output;
+    private final Path directory;
+    private final ArtifactNameMapper artifactNameMapper;
+    private final Path manifest;
+    private final List<String> algorithms;
+    private final ExecutorService executor;
+    private final LinkedHashMap<Artifact, Future<Map<String, String>>> checksums;
+    private final LongAdder bytes;
+    private final AtomicBoolean closed;
+    private final long started;
+
+    private ChecksummingSink(
+            Output output,
+            Path directory,
+            ArtifactNameMapper artifactNameMapper,
+            Path manifest,
+            Collection<String> algorithms,
+            int threads) {
+        this.output = requireNonNull(output, "output");
+        this.directory = directory != null ? directory.toAbsolutePath() : null;
+        this.artifactNameMapper = artifactNameMapper;
+        this.manifest = manifest != null ? manifest.toAbsolutePath() : null;
+        requireNonNull(algorithms, "algorithms");
+        if (algorithms.isEmpty()) {
+            throw new IllegalArgumentException("no algorithms specified");
+        }
+        this.algorithms = new ArrayList<>(algorithms.size());
+        for (String algorithm : algorithms) {
+            this.algorithms.add(Checksums.algorithm(algorithm));
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "toolbox-checksummer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checksums = new LinkedHashMap<>();
+        this.bytes = new LongAdder();
+        this.closed = new AtomicBoolean(false);
+        this.started = System.nanoTime();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path getManifest() {
+        return manifest;
+    }
+
+    public List<String> getAlgorithms() {
+        return Collections.unmodifiableList(algorithms);
+    }
+
+    @Override
+    public synchronized void accept(Artifact artifact) {
+        requireNonNull(artifact, "artifact");
+        requireNonNull(artifact.getFile(), "unresolved artifact");
+        if (closed.get()) {
+            throw new IllegalStateException("already closed");
+        }
+        if (!checksums.containsKey(artifact)) {
+            Path file = artifact.getFile().toPath();
+            Path target = null;
+            if (directory != null) {
+                target = directory.resolve(artifactNameMapper.apply(artifact)).toAbsolutePath();
+                if (!target.startsWith(directory)) {
+                    throw new IllegalArgumentException("Sidecar escapes directory: " + target);
+                }
+            }
+            Path sidecarBase = target;
+            checksums.put(artifact, executor.submit(() -> checksum(file, sidecarBase)));
+        }
+    }
+
+    private Map<String, String> checksum(Path file, Path target) throws IOException {
+        Map<String, String> result = Checksums.calculate(file, algorithms);
+        if (target != null) {
+            Files.createDirectories(target.getParent());
+            for (Map.Entry<String, String> checksum : result.entrySet()) {
+                Files.writeString(
+                        target.resolveSibling(target.getFileName() + "." + Checksums.extension(checksum.getKey())),
+                        checksum.getValue(),
+                        StandardCharsets.UTF_8);
+            }
+        }
+        bytes.add(Files.size(file));
+        return result;
+    }
+
+    /**
+     * Returns calculated checksums of all accepted artifacts; must be invoked after {@link #close()}.
+     */
+    public synchronized Map<Artifact, Map<String, String>> getChecksums() throws IOException {
+        LinkedHashMap<Artifact, Map<String, String>> result = new LinkedHashMap<>();
+        for (Map.Entry<Artifact, Future<Map<String, String>>> entry : checksums.entrySet()) {
+            result.put(entry.getKey(), get(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static Map<String, String> get(Future<Map<String, String>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calculating checksums", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Checksum calculation failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        closed.set(true);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                Map<Artifact, Map<String, String>> result = getChecksums();
+                if (manifest != null) {
+                    Files.createDirectories(manifest.getParent());
+                    Path tmpFile = TempFiles.createSibling(manifest);
+                    try {
+                        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                            for (Map.Entry<Artifact, Map<String, String>> entry : result.entrySet()) {
+                                writer.write(ArtifactIdUtils.toId(entry.getKey()));
+                                for (Map.Entry<String, String> checksum :
+                                        entry.getValue().entrySet()) {
+                                    writer.write('\t');
+                                    writer.write(checksum.getKey());
+                                    writer.write('=');
+                                    writer.write(checksum.getValue());
+                                }
+                                writer.write('\n');
+                            }
+                        }
+                        Files.move(
+                                tmpFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(tmpFile);
+                    }
+                }
+                long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                output.normal(
+                        "Checksummed {} artifacts ({}) with {} in {} ms ({}/s)",
+                        result.size(),
+                        humanReadableByteCountBin(bytes.sum()),
+                        algorithms,
+                        elapsedMillis,
+                        humanReadableByteCountBin(bytes.sum() * 1000L / elapsedMillis));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
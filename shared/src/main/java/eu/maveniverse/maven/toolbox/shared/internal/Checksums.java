@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.eclipse.aether.util.ChecksumUtils;
+
+/**
+ * Checksum related utilities.
+ */
+public final class Checksums {
+    private Checksums() {}
+
+    public static final String MD5 = "MD5";
+
+    public static final String SHA_1 = "SHA-1";
+
+    public static final String SHA_256 = "SHA-256";
+
+    public static final String SHA_512 = "SHA-512";
+
+    /**
+     * Supported algorithms, in order of strength.
+     */
+    public static final List<String> ALGORITHMS =
+            Collections.unmodifiableList(Arrays.asList(MD5, SHA_1, SHA_256, SHA_512));
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parses algorithm name, accepting both JCA ({@code "SHA-256"}) and extension ({@code "sha256"}) forms, case
+     * insensitively.
+     */
+    public static String algorithm(String name) {
+        requireNonNull(name, "name");
+        String ext = extension(name);
+        for (String algorithm : ALGORITHMS) {
+            if (extension(algorithm).equals(ext)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported checksum algorithm " + name);
+    }
+
+    /**
+     * Returns the file extension used for sidecar files of given algorithm, for example {@code "sha1"} for
+     * {@code "SHA-1"}.
+     */
+    public static String extension(String algorithm) {
+        requireNonNull(algorithm, "algorithm");
+        return algorithm.replace("-", "").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Returns the checksum recorded in sidecar file of given file (like {@code foo.jar.sha1} for {@code foo.jar}), or
+     * {@code null} if no sidecar exists or its content is not a checksum of given algorithm.
+     */
+    public static String sidecar(Path file, String algorithm) throws IOException {
+        requireNonNull(file, "file");
+        requireNonNull(algorithm, "algorithm");
+        Path sidecar = file.resolveSibling(file.getFileName() + "." + extension(algorithm));
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        String content = new String(Files.readAllBytes(sidecar), StandardCharsets.UTF_8).trim();
+        int ws = indexOfWhitespace(content);
+        String checksum = (ws < 0 ? content : content.substring(0, ws)).toLowerCase(Locale.ENGLISH);
+        return isChecksum(checksum, algorithm) ? checksum : null;
+    }
+
+    /**
+     * Returns SHA-1 of given file, reusing the sidecar {@code .sha1} file if present.
+     */
+    public static String sha1(Path file) throws IOException {
+        String sha1 = sidecar(file, SHA_1);
+        if (sha1 == null) {
+            sha1 = calculate(file, SHA_1);
+        }
+        return sha1;
+    }
+
+    /**
+     * Calculates checksum of given file.
+     */
+    public static String calculate(Path file, String algorithm) throws IOException {
+        return calculate(file, Collections.singletonList(algorithm)).get(algorithm);
+    }
+
+    /**
+     * Calculates checksums for all given algorithms, reading the file only once, sequentially.
+     */
+    public static Map<String, String> calculate(Path file, Collection<String> algorithms) throws IOException {
+        requireNonNull(file, "file");
+        requireNonNull(algorithms, "algorithms");
+        LinkedHashMap<String, MessageDigest> digests = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            digests.put(algorithm, messageDigest(algorithm));
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                for (MessageDigest digest : digests.values()) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        LinkedHashMap<String, String> result = new LinkedHashMap<>();
+        digests.forEach((k, v) -> result.put(k, ChecksumUtils.toHexString(v.digest())));
+        return result;
+    }
+
+    public static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported checksum algorithm " + algorithm, e);
+        }
+    }
+
+    private static boolean isChecksum(String value, String algorithm) {
+        int length = messageDigest(algorithm).getDigestLength() * 2;
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(value.charAt(i), 16) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
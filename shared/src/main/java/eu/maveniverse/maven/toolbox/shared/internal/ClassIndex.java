@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent index of classes and packages to artifacts providing them, in a sorted binary file that is memory mapped
+ * and binary searched when queried, so lookups do not need to read or parse the whole index.
+ * <p>
+ * File layout (all integers are big endian): header of magic, version, artifact count, class count, package count
+ * and string pool size; then artifact table (string offsets), class table and package table (pairs of string offset
+ * and artifact index, sorted by name, then by artifact index) and finally string pool (unsigned short length followed
+ * by UTF-8 bytes). Names are sorted by their UTF-8 bytes.
+ */
+public final class ClassIndex {
+    private static final int MAGIC = 0x54424349; // TBCI
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    private static final int ENTRY_SIZE = 2 * Integer.BYTES;
+
+    private static final Comparator<byte[]> UNSIGNED = Arrays::compareUnsigned;
+
+    /**
+     * Writes index file of passed in artifact ids to their binary class names (ie. {@code org.foo.Bar$Baz}).
+     * Packages are derived from class names.
+     */
+    public static void write(Path file, Map<String, ? extends Collection<String>> classes) throws IOException {
+        requireNonNull(file, "file");
+        requireNonNull(classes, "classes");
+        ArrayList<String> artifacts = new ArrayList<>(classes.keySet());
+        HashMap<String, byte[]> names = new HashMap<>();
+        ArrayList<Entry> classEntries = new ArrayList<>();
+        ArrayList<Entry> packageEntries = new ArrayList<>();
+        for (int artifact = 0; artifact < artifacts.size(); artifact++) {
+            HashMap<String, Boolean> packages = new HashMap<>();
+            for (String className : classes.get(artifacts.get(artifact))) {
+                classEntries.add(new Entry(names.computeIfAbsent(className, ClassIndex::bytes), artifact));
+                int dot = className.lastIndexOf('.');
+                if (dot > 0 && packages.putIfAbsent(className.substring(0, dot), Boolean.TRUE) == null) {
+                    packageEntries.add(
+                            new Entry(names.computeIfAbsent(className.substring(0, dot), ClassIndex::bytes), artifact));
+                }
+            }
+        }
+        Comparator<Entry> order =
+                Comparator.<Entry, byte[]>comparing(e -> e.name, UNSIGNED).thenComparingInt(e -> e.artifact);
+        classEntries.sort(order);
+        dedupe(classEntries);
+        packageEntries.sort(order);
+
+        LinkedHashMap<byte[], Integer> pool = new LinkedHashMap<>();
+        ArrayList<byte[]> artifactNames = new ArrayList<>(artifacts.size());
+        int poolSize = 0;
+        for (String artifact : artifacts) {
+            byte[] name = bytes(artifact);
+            artifactNames.add(name);
+            pool.put(name, poolSize);
+            poolSize += Short.BYTES + name.length;
+        }
+        for (byte[] name : names.values()) {
+            pool.put(name, poolSize);
+            poolSize += Short.BYTES + name.length;
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmpFile = TempFiles.createSibling(file);
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(artifacts.size());
+                out.writeInt(classEntries.size());
+                out.writeInt(packageEntries.size());
+                out.writeInt(poolSize);
+                for (byte[] name : artifactNames) {
+                    out.writeInt(pool.get(name));
+                }
+                for (Entry entry : classEntries) {
+                    out.writeInt(pool.get(entry.name));
+                    out.writeInt(entry.artifact);
+                }
+                for (Entry entry : packageEntries) {
+                    out.writeInt(pool.get(entry.name));
+                    out.writeInt(entry.artifact);
+                }
+                for (byte[] name : pool.keySet()) {
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static byte[] bytes(String name) {
+        byte[] result = name.getBytes(StandardCharsets.UTF_8);
+        if (result.length > 0xFFFF) {
+            throw new IllegalArgumentException("name too long: " + name);
+        }
+        return result;
+    }
+
+    /**
+     * Removes same class of same artifact (ie. present in multi-release JAR for several versions) from sorted list.
+     */
+    private static void dedupe(ArrayList<Entry> sorted) {
+        int size = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            Entry entry = sorted.get(i);
+            if (size == 0
+                    || sorted.get(size - 1).name != entry.name
+                    || sorted.get(size - 1).artifact != entry.artifact) {
+                sorted.set(size++, entry);
+            }
+        }
+        sorted.subList(size, sorted.size()).clear();
+    }
+
+    private static final class Entry {
+        private final byte[] name;
+        private final int artifact;
+
+        private Entry(byte[] name, int artifact) {
+            this.name = name;
+            this.artifact = artifact;
+        }
+    }
+
+    /**
+     * Opens index file, by memory mapping it.
+     */
+    public static ClassIndex open(Path file) throws IOException {
+        requireNonNull(file, "file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ClassIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final List<String> artifacts;
+    private final int classCount;
+    private final int packageCount;
+    private final int classTable;
+    private final int packageTable;
+    private final int pool;
+
+    private ClassIndex(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a class index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported class index version " + buffer.getInt(4));
+        }
+        int artifactCount = buffer.getInt(8);
+        this.classCount = buffer.getInt(12);
+        this.packageCount = buffer.getInt(16);
+        this.classTable = HEADER_SIZE + artifactCount * Integer.BYTES;
+        this.packageTable = classTable + classCount * ENTRY_SIZE;
+        this.pool = packageTable + packageCount * ENTRY_SIZE;
+        if (buffer.capacity() != (long) pool + buffer.getInt(20)) {
+            throw new IOException("corrupt class index file");
+        }
+        ArrayList<String> artifacts = new ArrayList<>(artifactCount);
+        for (int i = 0; i < artifactCount; i++) {
+            artifacts.add(string(buffer.getInt(HEADER_SIZE + i * Integer.BYTES)));
+        }
+        this.artifacts = Collections.unmodifiableList(artifacts);
+    }
+
+    /**
+     * Returns indexed artifact ids.
+     */
+    public List<String> getArtifacts() {
+        return artifacts;
+    }
+
+    /**
+     * Returns count of class entries, that is count of distinct class and artifact pairs.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns count of package entries, that is count of distinct package and artifact pairs.
+     */
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * Returns ids of artifacts providing class of given binary name (ie. {@code org.foo.Bar$Baz}), or empty list.
+     */
+    public List<String> findClass(String className) {
+        return find(classTable, classCount, bytes(requireNonNull(className, "className")));
+    }
+
+    /**
+     * Returns ids of artifacts providing classes in given package (ie. {@code org.foo}), or empty list.
+     */
+    public List<String> findPackage(String packageName) {
+        return find(packageTable, packageCount, bytes(requireNonNull(packageName, "packageName")));
+    }
+
+    /**
+     * Returns packages that are split across several artifacts, with ids of artifacts providing them.
+     */
+    public Map<String, List<String>> getSplitPackages() {
+        LinkedHashMap<String, List<String>> result = new LinkedHashMap<>();
+        int i = 0;
+        while (i < packageCount) {
+            int name = buffer.getInt(packageTable + i * ENTRY_SIZE);
+            int j = i + 1;
+            // names are pooled, hence same names have same offset
+            while (j < packageCount && buffer.getInt(packageTable + j * ENTRY_SIZE) == name) {
+                j++;
+            }
+            if (j - i > 1) {
+                ArrayList<String> providers = new ArrayList<>(j - i);
+                for (int k = i; k < j; k++) {
+                    providers.add(artifacts.get(buffer.getInt(packageTable + k * ENTRY_SIZE + Integer.BYTES)));
+                }
+                result.put(string(name), providers);
+            }
+            i = j;
+        }
+        return result;
+    }
+
+    private List<String> find(int table, int count, byte[] key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(buffer.getInt(table + mid * ENTRY_SIZE), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        ArrayList<String> result = new ArrayList<>(1);
+        for (int i = low; i < count && compare(buffer.getInt(table + i * ENTRY_SIZE), key) == 0; i++) {
+            result.add(artifacts.get(buffer.getInt(table + i * ENTRY_SIZE + Integer.BYTES)));
+        }
+        return result;
+    }
+
+    private int compare(int offset, byte[] key) {
+        int length = Short.toUnsignedInt(buffer.getShort(pool + offset));
+        int start = pool + offset + Short.BYTES;
+        int min = Math.min(length, key.length);
+        for (int i = 0; i < min; i++) {
+            int c = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String string(int offset) {
+        byte[] result = new byte[Short.toUnsignedInt(buffer.getShort(pool + offset))];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buffer.get(pool + offset + Short.BYTES + i);
+        }
+        return new String(result, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Construction to accept collection of artifacts and build {@link ClassIndex} of classes and packages they provide.
+ * <p>
+ * Of each JAR only the central directory is read, no entry is inflated. JARs are read in parallel, on a pool of
+ * daemon threads, and index is written on {@link #close()}. Accepted artifacts that are not JARs (ie. POMs) are
+ * indexed as having no classes.
+ */
+public final class ClassIndexSink implements ArtifactSink {
+    /**
+     * Creates class index sink.
+     */
+    public static ClassIndexSink classIndex(Output output, Path index, int threads) {
+        return new ClassIndexSink(output, index, threads);
+    }
+
+    private static final String CLASS = ".class";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private final Output output;
+    private final Path index;
+    private final ExecutorService executor;
+    private final LinkedHashMap<Artifact, Future<List<String>>> classes;
+    private final AtomicBoolean closed;
+    private final long started;
+
+    private ClassIndexSink(Output output, Path index, int threads) {
+        this.output = requireNonNull(output, "output");
+        this.index = requireNonNull(index, "index").toAbsolutePath();
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "toolbox-class-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.classes = new LinkedHashMap<>();
+        this.closed = new AtomicBoolean(false);
+        this.started = System.nanoTime();
+    }
+
+    public Path getIndex() {
+        return index;
+    }
+
+    @Override
+    public synchronized void accept(Artifact artifact) {
+        requireNonNull(artifact, "artifact");
+        requireNonNull(artifact.getFile(), "unresolved artifact");
+        if (closed.get()) {
+            throw new IllegalStateException("already closed");
+        }
+        if (!classes.containsKey(artifact)) {
+            Path file = artifact.getFile().toPath();
+            classes.put(artifact, executor.submit(() -> classNames(file)));
+        }
+    }
+
+    /**
+     * Returns binary names of classes in JAR, using its central directory only.
+     */
+    static List<String> classNames(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            ArrayList<String> result = new ArrayList<>(zipFile.size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(CLASS)) {
+                    continue;
+                }
+                if (name.startsWith(VERSIONS)) {
+                    int slash = name.indexOf('/', VERSIONS.length());
+                    if (slash < 0) {
+                        continue;
+                    }
+                    name = name.substring(slash + 1);
+                } else if (name.startsWith("META-INF/")) {
+                    continue;
+                }
+                name = name.substring(0, name.length() - CLASS.length());
+                if (!name.endsWith("module-info") && !name.endsWith("package-info")) {
+                    result.add(name.replace('/', '.'));
+                }
+            }
+            return result;
+        } catch (ZipException e) {
+            // not a JAR
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        closed.set(true);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                LinkedHashMap<String, List<String>> result = new LinkedHashMap<>();
+                for (Map.Entry<Artifact, Future<List<String>>> entry : classes.entrySet()) {
+                    result.put(ArtifactIdUtils.toId(entry.getKey()), get(entry.getValue()));
+                }
+                ClassIndex.write(index, result);
+                ClassIndex classIndex = ClassIndex.open(index);
+                output.normal(
+                        "Indexed {} artifacts into {} class and {} package entries in {} ms; {} split packages",
+                        classIndex.getArtifacts().size(),
+                        classIndex.getClassCount(),
+                        classIndex.getPackageCount(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                        classIndex.getSplitPackages().size());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static List<String> get(Future<List<String>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing classes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Class indexing failed", e.getCause());
+        }
+    }
+}
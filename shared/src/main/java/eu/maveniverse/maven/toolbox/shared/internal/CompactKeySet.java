@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Thread-safe set of string keys, that stores 128-bit murmur3 hashes of keys instead of keys themselves, in primitive
+ * open-addressing tables, so memory use is 32 to 64 bytes per key (16 bytes of hash, in tables kept between quarter
+ * and half full), regardless of key length.
+ * <p>
+ * Set is striped, each stripe being guarded by its own lock, so concurrent adds rarely contend. As keys are not kept,
+ * two distinct keys having same hash are considered same key; with 128-bit hashes, the probability of that is
+ * negligible even for billions of keys.
+ */
+public final class CompactKeySet {
+    private static final int STRIPES = 64;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+
+    public CompactKeySet() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds key to set, returns {@code true} if set did not contain it.
+     */
+    public boolean add(String key) {
+        long[] hash = murmur3(requireNonNull(key, "key").getBytes(StandardCharsets.UTF_8));
+        return stripes[(int) (hash[1] >>> 58)].add(hash[0], hash[1]);
+    }
+
+    /**
+     * Returns {@code true} if set contains key.
+     */
+    public boolean contains(String key) {
+        long[] hash = murmur3(requireNonNull(key, "key").getBytes(StandardCharsets.UTF_8));
+        return stripes[(int) (hash[1] >>> 58)].contains(hash[0], hash[1]);
+    }
+
+    /**
+     * Returns count of keys in set.
+     */
+    public long size() {
+        long result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.size();
+        }
+        return result;
+    }
+
+    /**
+     * Open-addressing table with linear probing, of hash pairs stored in adjacent slots. Pair of zeroes marks free
+     * slot, hence the key hashing to zeroes is tracked by a flag.
+     */
+    private static final class Stripe {
+        private long[] table = new long[INITIAL_CAPACITY * 2];
+        private int size;
+        private boolean zero;
+
+        private synchronized boolean add(long h1, long h2) {
+            if (h1 == 0L && h2 == 0L) {
+                if (zero) {
+                    return false;
+                }
+                zero = true;
+                size++;
+                return true;
+            }
+            if (!insert(table, h1, h2)) {
+                return false;
+            }
+            size++;
+            if (size * 4 > table.length) {
+                // load factor over 0.5
+                long[] grown = new long[table.length * 2];
+                for (int i = 0; i < table.length; i += 2) {
+                    if (table[i] != 0L || table[i + 1] != 0L) {
+                        insert(grown, table[i], table[i + 1]);
+                    }
+                }
+                table = grown;
+            }
+            return true;
+        }
+
+        private static boolean insert(long[] table, long h1, long h2) {
+            int mask = table.length / 2 - 1;
+            int slot = (int) h1 & mask;
+            while (table[slot * 2] != 0L || table[slot * 2 + 1] != 0L) {
+                if (table[slot * 2] == h1 && table[slot * 2 + 1] == h2) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot * 2] = h1;
+            table[slot * 2 + 1] = h2;
+            return true;
+        }
+
+        private synchronized boolean contains(long h1, long h2) {
+            if (h1 == 0L && h2 == 0L) {
+                return zero;
+            }
+            int mask = table.length / 2 - 1;
+            int slot = (int) h1 & mask;
+            while (table[slot * 2] != 0L || table[slot * 2 + 1] != 0L) {
+                if (table[slot * 2] == h1 && table[slot * 2 + 1] == h2) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * MurmurHash3 x64 128-bit variant, with seed 0. Tail bytes are mixed in using switch fallthrough, as reference
+     * implementation does.
+     */
+    @SuppressWarnings("fallthrough")
+    static long[] murmur3(byte[] data) {
+        long h1 = 0L;
+        long h2 = 0L;
+        int blocks = data.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = longLittleEndian(data, i * 16);
+            long k2 = longLittleEndian(data, i * 16 + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        int tail = blocks * 16;
+        long k1 = 0L;
+        long k2 = 0L;
+        switch (data.length & 15) {
+            case 15:
+                k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14:
+                k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13:
+                k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12:
+                k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11:
+                k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10:
+                k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                h2 ^= mixK2(k2);
+            case 8:
+                k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7:
+                k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6:
+                k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5:
+                k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4:
+                k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3:
+                k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                h1 ^= mixK1(k1);
+            default:
+                // no tail
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+
+    private static long longLittleEndian(byte[] data, int offset) {
+        long result = 0L;
+        for (int i = 7; i >= 0; i--) {
+            result = (result << 8) | (data[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
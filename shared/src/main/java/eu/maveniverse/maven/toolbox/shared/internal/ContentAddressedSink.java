@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Construction to accept collection of artifacts into a content-addressed store, and lay them out in a directory as
+ * hard links pointing into the store.
+ * <p>
+ * Store keeps every distinct file once, under its SHA-256 ({@code sha256/xx/<sha256>}). Every accepted file is hashed,
+ * as sidecar checksums (like {@code .sha1} files in local repository) may be stale, and trusting them could lay out
+ * wrong content. Store may be shared by multiple sinks and processes: new entries are published by creating a hard
+ * link, that fails if entry already exists, so first writer wins and stored entries are never replaced.
+ * <p>
+ * Important: files in the laid out directory are hard links, so modifying them modifies the stored file as well.
+ * If the layout directory and the store are not on same file system, this sink falls back to copying.
+ */
+public final class ContentAddressedSink implements ArtifactSink {
+    /**
+     * Creates "flat" content-addressed sink, that accepts all artifacts, stores them in the store and lays them out
+     * in directory having filenames according to supplied {@link ArtifactNameMapper}, and prevents overwrite.
+     */
+    public static ContentAddressedSink cas(Output output, Path store, Path path, ArtifactNameMapper artifactNameMapper)
+            throws IOException {
+        return new ContentAddressedSink(output, store, path, ArtifactMatcher.unique(), a -> a, artifactNameMapper);
+    }
+
+    private final Output output;
+    private final Path store;
+    private final Path directory;
+    private final boolean directoryCreated;
+    private final Predicate<Artifact> artifactMatcher;
+    private final Function<Artifact, Artifact> artifactMapper;
+    private final Function<Artifact, String> artifactNameMapper;
+    private final Set<Path> writtenPaths;
+    private volatile boolean linkSupported;
+    private final LongAdder storedFiles;
+    private final LongAdder reusedFiles;
+    private final LongAdder reusedBytes;
+
+    private ContentAddressedSink(
+            Output output,
+            Path store,
+            Path directory,
+            Predicate<Artifact> artifactMatcher,
+            Function<Artifact, Artifact> artifactMapper,
+            Function<Artifact, String> artifactNameMapper)
+            throws IOException {
+        this.output = requireNonNull(output, "output");
+        this.store = requireNonNull(store, "store").toAbsolutePath();
+        this.directory = requireNonNull(directory, "directory").toAbsolutePath();
+        if (Files.exists(this.store) && !Files.isDirectory(this.store)) {
+            throw new IllegalArgumentException("store must not exists, or must be a directory");
+        }
+        if (Files.exists(this.directory) && !Files.isDirectory(this.directory)) {
+            throw new IllegalArgumentException("directory must not exists, or must be a directory");
+        }
+        Files.createDirectories(this.store);
+        if (!Files.exists(this.directory)) {
+            Files.createDirectories(this.directory);
+            this.directoryCreated = true;
+        } else {
+            this.directoryCreated = false;
+        }
+
+        this.artifactMatcher = requireNonNull(artifactMatcher, "artifactMatcher");
+        this.artifactMapper = requireNonNull(artifactMapper, "artifactMapper");
+        this.artifactNameMapper = requireNonNull(artifactNameMapper, "artifactNameMapper");
+        this.writtenPaths = ConcurrentHashMap.newKeySet();
+        this.linkSupported = true;
+        this.storedFiles = new LongAdder();
+        this.reusedFiles = new LongAdder();
+        this.reusedBytes = new LongAdder();
+    }
+
+    public Path getStore() {
+        return store;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void accept(Artifact artifact) throws IOException {
+        requireNonNull(artifact, "artifact");
+        output.verbose("Accept artifact {}", artifact);
+        if (artifactMatcher.test(artifact)) {
+            output.verbose("  matched");
+            String name = artifactNameMapper.apply(artifactMapper.apply(artifact));
+            output.verbose("  mapped to name {}", name);
+            Path target = directory.resolve(name).toAbsolutePath();
+            if (!target.startsWith(directory)) {
+                throw new IOException("Path escape prevented; check mappings");
+            }
+            if (!writtenPaths.add(target)) {
+                throw new IOException("Overwrite prevented; check mappings");
+            }
+            Path stored = store(artifact.getFile().toPath());
+            output.verbose("  stored as {}", stored);
+            Files.createDirectories(target.getParent());
+            link(target, stored);
+        } else {
+            output.verbose("  not matched");
+        }
+    }
+
+    /**
+     * Makes sure passed in file is present in store, and returns the path of stored file.
+     */
+    private Path store(Path source) throws IOException {
+        Path stored = storePath(Checksums.SHA_256, Checksums.calculate(source, Checksums.SHA_256));
+        if (Files.isRegularFile(stored)) {
+            reusedFiles.increment();
+            reusedBytes.add(Files.size(stored));
+            return stored;
+        }
+        Files.createDirectories(stored.getParent());
+        Path tmp = TempFiles.createSibling(stored);
+        try {
+            Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+            publish(tmp, stored);
+            storedFiles.increment();
+        } catch (FileAlreadyExistsException e) {
+            // someone else stored it meanwhile
+            reusedFiles.increment();
+            reusedBytes.add(Files.size(stored));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return stored;
+    }
+
+    /**
+     * Publishes complete temporary file as store entry, failing if entry exists: unlike rename, that silently replaces
+     * existing target on POSIX, link creation is atomic and exclusive. If file system has no hard links, falls back to
+     * plain move, that checks existence of entry first.
+     */
+    private static void publish(Path tmp, Path stored) throws IOException {
+        try {
+            Files.createLink(stored, tmp);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.move(tmp, stored);
+        }
+    }
+
+    private Path storePath(String algorithm, String checksum) {
+        return store.resolve(Checksums.extension(algorithm))
+                .resolve(checksum.substring(0, 2))
+                .resolve(checksum);
+    }
+
+    private void link(Path link, Path existing) throws IOException {
+        if (linkSupported) {
+            try {
+                Files.createLink(link, existing);
+                return;
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                output.warn("Could not create hard link, falling back to copy: {}", e.getMessage());
+                linkSupported = false;
+            }
+        }
+        Files.copy(existing, link);
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        output.error("Cleaning up: {}", directory);
+        writtenPaths.forEach(p -> {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ex) {
+                // ignore
+            }
+        });
+        if (directoryCreated) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        output.normal(
+                "Stored {} new files in {}, reused {} already stored files ({} saved)",
+                storedFiles.sum(),
+                store,
+                reusedFiles.sum(),
+                humanReadableByteCountBin(reusedBytes.sum()));
+    }
+}
@@ -7,66 +7,505 @@
  */
 package eu.maveniverse.maven.toolbox.shared.internal;
 
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
 import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import org.eclipse.aether.AbstractRepositoryListener;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.RequestTrace;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.deployment.DeployRequest;
 import org.eclipse.aether.deployment.DeploymentException;
+import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+import org.eclipse.aether.util.artifact.SubArtifact;
+import org.eclipse.aether.util.listener.ChainedRepositoryListener;
 
 /**
  * Construction to accept collection of artifacts and deploy them into given remote repository.
+ * <p>
+ * By default (parallelism of 1, no retries and no skipping of existing artifacts), all artifacts are deployed in one
+ * deploy request on close, as Maven deploys them. Otherwise, artifacts are deployed in batches: one deploy request per
+ * GAV. Batches of same GA are deployed sequentially (to keep GA level metadata consistent), and so are batches of Maven
+ * Plugins of same groupId (to keep G level metadata consistent), while the rest is deployed in parallel, up to
+ * configured limit. Batches failed due to transient transport failures are retried with exponential backoff, and
+ * failure of one batch does not abort the others: all the failures are reported once all batches are done.
+ * <p>
+ * Optionally, a pre-flight check may skip release artifacts that are already present in remote repository, which
+ * makes re-runs of partially failed deployments transfer only what is missing.
  */
 public final class DeployingSink implements ArtifactSink {
     /**
-     * Creates installing sink that installs into passed in session local repository.
+     * Default count of GAs deployed in parallel.
+     */
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * Default count of retries of a failed batch.
+     */
+    public static final int DEFAULT_RETRIES = 0;
+
+    private static final String PLUGIN_XML = "META-INF/maven/plugin.xml";
+
+    private static final long RETRY_BACKOFF_MILLIS = 500L;
+
+    /**
+     * Creates deploying sink that deploys into passed in remote repository, using default parallelism and retries,
+     * hence deploying all artifacts in one request.
      */
     public static DeployingSink deploying(
             Output output, RepositorySystem system, RepositorySystemSession session, RemoteRepository repository) {
-        return new DeployingSink(output, system, session, repository);
+        return deploying(output, system, session, repository, DEFAULT_PARALLELISM, DEFAULT_RETRIES, false);
+    }
+
+    /**
+     * Creates deploying sink that deploys into passed in remote repository.
+     *
+     * @param output The output.
+     * @param system The repository system.
+     * @param session The session.
+     * @param repository The remote repository to deploy to.
+     * @param parallelism The count of GAs deployed in parallel, must be positive.
+     * @param retries The count of retries of failed batch, must not be negative.
+     * @param skipExisting If {@code true}, release artifacts already present in remote repository with same SHA-1
+     *                     are not deployed again, while those present with different SHA-1 are reported as failures.
+     */
+    public static DeployingSink deploying(
+            Output output,
+            RepositorySystem system,
+            RepositorySystemSession session,
+            RemoteRepository repository,
+            int parallelism,
+            int retries,
+            boolean skipExisting) {
+        return new DeployingSink(output, system, session, repository, parallelism, retries, skipExisting);
     }
 
     private final Output output;
     private final RepositorySystem system;
     private final RepositorySystemSession session;
-    private final DeployRequest deployRequest;
+    private final RepositorySystemSession deploySession;
+    private final Set<String> uploaded;
+    private final RemoteRepository repository;
+    private final int parallelism;
+    private final int retries;
+    private final boolean skipExisting;
+    private final RequestTrace trace;
+    private final LinkedHashMap<String, LinkedHashMap<String, List<Artifact>>> batches;
+    private final LongAdder deployed;
+    private final LongAdder skipped;
 
     private DeployingSink(
-            Output output, RepositorySystem system, RepositorySystemSession session, RemoteRepository repository) {
+            Output output,
+            RepositorySystem system,
+            RepositorySystemSession session,
+            RemoteRepository repository,
+            int parallelism,
+            int retries,
+            boolean skipExisting) {
         this.output = requireNonNull(output, "output");
         this.system = requireNonNull(system, "system");
         this.session = requireNonNull(session, "session");
-        this.deployRequest = new DeployRequest();
-        this.deployRequest.setRepository(repository);
-        this.deployRequest.setTrace(RequestTrace.newChild(null, this));
+        this.repository = requireNonNull(repository, "repository");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (retries < 0) {
+            throw new IllegalArgumentException("retries must not be negative");
+        }
+        this.parallelism = parallelism;
+        this.retries = retries;
+        this.skipExisting = skipExisting;
+        this.trace = RequestTrace.newChild(null, this);
+        this.uploaded = ConcurrentHashMap.newKeySet();
+        DefaultRepositorySystemSession deploySession = new DefaultRepositorySystemSession(session);
+        deploySession.setRepositoryListener(ChainedRepositoryListener.newInstance(
+                session.getRepositoryListener(), new AbstractRepositoryListener() {
+                    @Override
+                    public void artifactDeployed(RepositoryEvent event) {
+                        if (event.getException() == null && event.getArtifact() != null) {
+                            uploaded.add(ArtifactIdUtils.toId(event.getArtifact()));
+                        }
+                    }
+                }));
+        this.deploySession = deploySession;
+        this.batches = new LinkedHashMap<>();
+        this.deployed = new LongAdder();
+        this.skipped = new LongAdder();
     }
 
     public RemoteRepository getRemoteRepository() {
-        return deployRequest.getRepository();
+        return repository;
     }
 
-    @Override
-    public void accept(Collection<Artifact> artifacts) {
-        requireNonNull(artifacts, "artifacts");
-        deployRequest.setArtifacts(artifacts);
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public boolean isSkipExisting() {
+        return skipExisting;
+    }
+
+    /**
+     * Returns count of artifacts deployed so far.
+     */
+    public long getDeployedCount() {
+        return deployed.sum();
+    }
+
+    /**
+     * Returns count of artifacts skipped as already present in remote repository with same SHA-1.
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
     }
 
     @Override
-    public void accept(Artifact artifact) {
+    public synchronized void accept(Artifact artifact) {
         requireNonNull(artifact, "artifact");
-        deployRequest.addArtifact(artifact);
+        String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        batches.computeIfAbsent(ga, k -> new LinkedHashMap<>())
+                .computeIfAbsent(ga + ":" + artifact.getBaseVersion(), k -> new ArrayList<>())
+                .add(artifact);
     }
 
     @Override
-    public void close() throws DeploymentException {
+    public synchronized void close() throws DeploymentException {
+        if (parallelism == 1 && retries == 0 && !skipExisting) {
+            deployAtOnce();
+            return;
+        }
+        ConcurrentLinkedQueue<DeploymentException> failures = new ConcurrentLinkedQueue<>();
+        if (skipExisting) {
+            skipExisting(failures);
+        }
+        int total = batches.values().stream().mapToInt(Map::size).sum();
+        int artifacts = batches.values().stream()
+                .flatMap(m -> m.values().stream())
+                .mapToInt(List::size)
+                .sum();
+        output.normal(
+                "Deploying {} artifacts in {} batches to {} (parallelism {})...",
+                artifacts,
+                total,
+                repository,
+                parallelism);
+        long started = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        LongAdder bytes = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "toolbox-deployer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (List<Map.Entry<String, List<Artifact>>> lane : lanes()) {
+                futures.add(executor.submit(() -> {
+                    for (Map.Entry<String, List<Artifact>> batch : lane) {
+                        try {
+                            deploy(batch.getValue());
+                            long size = batch.getValue().stream()
+                                    .mapToLong(a ->
+                                            a.getFile() != null ? a.getFile().length() : 0L)
+                                    .sum();
+                            bytes.add(size);
+                            deployed.add(batch.getValue().size());
+                            output.normal(
+                                    "  [{}/{}] Deployed {} ({} artifacts, {})",
+                                    done.incrementAndGet(),
+                                    total,
+                                    batch.getKey(),
+                                    batch.getValue().size(),
+                                    humanReadableByteCountBin(size));
+                        } catch (DeploymentException e) {
+                            failures.add(e);
+                            output.error(
+                                    "  [{}/{}] Failed to deploy {}: {}",
+                                    done.incrementAndGet(),
+                                    total,
+                                    batch.getKey(),
+                                    e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeploymentException("Interrupted while deploying", e);
+        } catch (ExecutionException e) {
+            throw new DeploymentException("Deployment failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
         output.normal(
-                "Deploying {} artifacts to {}...", deployRequest.getArtifacts().size(), deployRequest.getRepository());
+                "Deployed {} in {} ms ({}/s)",
+                humanReadableByteCountBin(bytes.sum()),
+                elapsedMillis,
+                humanReadableByteCountBin(bytes.sum() * 1000L / elapsedMillis));
+        if (!failures.isEmpty()) {
+            DeploymentException e = new DeploymentException(
+                    failures.size() + " failure(s) while deploying to " + repository, failures.peek());
+            failures.stream().skip(1).forEach(e::addSuppressed);
+            throw e;
+        }
+    }
+
+    private void deployAtOnce() throws DeploymentException {
+        DeployRequest deployRequest = new DeployRequest();
+        deployRequest.setRepository(repository);
+        batches.values().forEach(m -> m.values().forEach(l -> l.forEach(deployRequest::addArtifact)));
+        deployRequest.setTrace(trace);
+        output.normal(
+                "Deploying {} artifacts to {}...", deployRequest.getArtifacts().size(), repository);
         system.deploy(session, deployRequest);
+        deployed.add(deployRequest.getArtifacts().size());
+    }
+
+    /**
+     * Splits batches into lanes, that are deployed in parallel, while batches of a lane are deployed sequentially:
+     * a lane is either a GA, or all Maven Plugin GAs of a groupId, as they share G level metadata.
+     */
+    private Collection<List<Map.Entry<String, List<Artifact>>>> lanes() {
+        LinkedHashMap<String, List<Map.Entry<String, List<Artifact>>>> lanes = new LinkedHashMap<>();
+        batches.forEach((ga, gaBatches) -> {
+            boolean plugin = gaBatches.values().stream().flatMap(List::stream).anyMatch(DeployingSink::isPlugin);
+            String lane = plugin ? ga.substring(0, ga.indexOf(':')) : ga;
+            lanes.computeIfAbsent(lane, k -> new ArrayList<>()).addAll(gaBatches.entrySet());
+        });
+        return lanes.values();
+    }
+
+    static boolean isPlugin(Artifact artifact) {
+        if (artifact.getFile() == null
+                || !"jar".equals(artifact.getExtension())
+                || !artifact.getClassifier().isEmpty()) {
+            return false;
+        }
+        try (ZipFile zipFile = new ZipFile(artifact.getFile())) {
+            return zipFile.getEntry(PLUGIN_XML) != null;
+        } catch (IOException e) {
+            // not a JAR
+            return false;
+        }
+    }
+
+    /**
+     * Pre-flight: checks existence of all release artifacts in remote repository at once, by resolving their SHA-1
+     * sidecars into a throwaway local repository. Artifacts having remote SHA-1 equal to local one are removed from
+     * batches, while those having different remote SHA-1 are removed and reported as failures.
+     */
+    private void skipExisting(Collection<DeploymentException> failures) throws DeploymentException {
+        if (session.isOffline()) {
+            output.warn("Session is offline; not checking for existing artifacts");
+            return;
+        }
+        HashMap<Artifact, Artifact> sidecars = new HashMap<>();
+        ArrayList<ArtifactRequest> requests = new ArrayList<>();
+        batches.values().stream()
+                .flatMap(m -> m.values().stream())
+                .flatMap(List::stream)
+                .filter(a -> !a.isSnapshot())
+                .forEach(a -> {
+                    Artifact sidecar = new SubArtifact(a, "*", "*.sha1");
+                    sidecars.put(sidecar, a);
+                    requests.add(
+                            new ArtifactRequest(sidecar, Collections.singletonList(repository), null).setTrace(trace));
+                });
+        if (requests.isEmpty()) {
+            return;
+        }
+        output.normal("Checking {} artifacts for existence in {}...", requests.size(), repository);
+
+        Path tmpLocalRepository = null;
+        try {
+            tmpLocalRepository = Files.createTempDirectory("toolbox-deploy-check");
+            DefaultRepositorySystemSession checkSession = new DefaultRepositorySystemSession(session);
+            checkSession.setLocalRepositoryManager(
+                    system.newLocalRepositoryManager(session, new LocalRepository(tmpLocalRepository.toFile())));
+            checkSession.setChecksumPolicy(RepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+            checkSession.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+
+            List<ArtifactResult> results;
+            try {
+                results = system.resolveArtifacts(checkSession, requests);
+            } catch (ArtifactResolutionException e) {
+                results = e.getResults();
+            }
+
+            HashSet<Artifact> existing = new HashSet<>();
+            for (ArtifactResult result : results) {
+                if (result.isResolved()) {
+                    Artifact artifact = sidecars.get(result.getRequest().getArtifact());
+                    String remoteSha1 = new String(
+                                    Files.readAllBytes(
+                                            result.getArtifact().getFile().toPath()),
+                                    StandardCharsets.UTF_8)
+                            .trim();
+                    int ws = remoteSha1.indexOf(' ');
+                    if (ws > 0) {
+                        remoteSha1 = remoteSha1.substring(0, ws);
+                    }
+                    String localSha1 = Checksums.sha1(artifact.getFile().toPath());
+                    if (localSha1.equalsIgnoreCase(remoteSha1)) {
+                        output.verbose("  {} exists, skipping", artifact);
+                        skipped.increment();
+                    } else {
+                        output.error("  {} exists with different SHA-1 ({} vs {})", artifact, remoteSha1, localSha1);
+                        failures.add(new DeploymentException("Artifact " + artifact + " exists in " + repository
+                                + " with different SHA-1 " + remoteSha1 + " (local SHA-1 is " + localSha1 + ")"));
+                    }
+                    existing.add(artifact);
+                }
+            }
+            if (!existing.isEmpty()) {
+                batches.values().forEach(m -> m.values().forEach(l -> l.removeIf(existing::contains)));
+                batches.values().forEach(m -> m.values().removeIf(List::isEmpty));
+                batches.values().removeIf(Map::isEmpty);
+                output.normal("  Skipped {} already existing artifacts", skipped.sum());
+            }
+        } catch (IOException e) {
+            throw new DeploymentException("Failed to check for existing artifacts", e);
+        } finally {
+            if (tmpLocalRepository != null) {
+                try (Stream<Path> stream = Files.walk(tmpLocalRepository).sorted(Comparator.reverseOrder())) {
+                    stream.forEach(p -> p.toFile().delete());
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void deploy(List<Artifact> artifacts) throws DeploymentException {
+        List<Artifact> remaining = artifacts;
+        int attempt = 0;
+        while (true) {
+            DeployRequest deployRequest = new DeployRequest();
+            deployRequest.setRepository(repository);
+            deployRequest.setArtifacts(remaining);
+            deployRequest.setTrace(trace);
+            try {
+                system.deploy(deploySession, deployRequest);
+                return;
+            } catch (DeploymentException e) {
+                if (attempt >= retries || !isTransient(e)) {
+                    throw e;
+                }
+                long backoff = RETRY_BACKOFF_MILLIS << attempt;
+                attempt++;
+                remaining = remaining(artifacts);
+                output.warn(
+                        "  Retrying ({}/{}) {} of {} artifacts in {} ms: {}",
+                        attempt,
+                        retries,
+                        remaining.size(),
+                        artifacts.size(),
+                        backoff,
+                        e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns artifacts of batch not uploaded yet. Snapshot batches are redeployed whole, as their artifacts must share
+     * the timestamped version, and so are batches having all artifacts uploaded, as their metadata upload failed, and
+     * metadata is generated out of deployed artifacts.
+     */
+    private List<Artifact> remaining(List<Artifact> artifacts) {
+        if (artifacts.get(0).isSnapshot()) {
+            return artifacts;
+        }
+        List<Artifact> remaining = artifacts.stream()
+                .filter(a -> !uploaded.contains(ArtifactIdUtils.toId(a)))
+                .collect(Collectors.toList());
+        return remaining.isEmpty() ? artifacts : remaining;
+    }
+
+    /**
+     * Is deployment failure transient, hence worth retrying: HTTP responses 408, 429 and 5xx, and transport I/O
+     * failures (ie. connection reset or timeout) are. Other HTTP responses (ie. 400, 401 or 403), local file system
+     * failures and any other failures are not. HTTP status is looked up reflectively, as transports are not compile
+     * time dependency.
+     */
+    static boolean isTransient(Throwable failure) {
+        boolean io = false;
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            Integer status = statusCode(cause);
+            if (status != null) {
+                return status == 408 || status == 429 || status >= 500;
+            }
+            if (cause instanceof FileSystemException || cause instanceof FileNotFoundException) {
+                return false;
+            }
+            io |= cause instanceof IOException;
+        }
+        return io;
+    }
+
+    private static Integer statusCode(Throwable failure) {
+        try {
+            Method method = failure.getClass().getMethod("getStatusCode");
+            if (method.getReturnType() == int.class) {
+                return (Integer) method.invoke(failure);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not a HTTP response failure
+        }
+        return null;
     }
 }
@@ -14,16 +14,35 @@ import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
 import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.HashSet;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import org.eclipse.aether.artifact.Artifact;
 
 /**
  * Construction to accept collection of artifacts, for example like a filesystem directory.
+ * <p>
+ * When staged, the sink writes into a {@link StagingDirectory}, so the target directory appears complete on close,
+ * or does not appear at all.
+ * <p>
+ * Copied files appear complete, or do not appear at all. When resuming (ie. by {@link JournalingSink}), a file
+ * already present in directory that has same size and last modified time as the artifact file is considered up to
+ * date and is not copied again, hence a copy job that was interrupted may be rerun into same directory. Otherwise,
+ * a file already present in directory fails the copy.
  */
 public final class DirectorySink implements ArtifactSink {
     /**
@@ -32,8 +51,27 @@ public final class DirectorySink implements ArtifactSink {
      */
     public static DirectorySink flat(Output output, Path path, ArtifactNameMapper artifactNameMapper)
             throws IOException {
+        return flat(output, path, artifactNameMapper, false);
+    }
+
+    /**
+     * Creates plain "flat" directory sink, optionally staged: when staged, artifacts are copied into temporary
+     * sibling directory that is atomically renamed to {@code path} on {@link #close()}, hence {@code path} must not
+     * exist, or must be an empty directory.
+     */
+    public static DirectorySink flat(Output output, Path path, ArtifactNameMapper artifactNameMapper, boolean staged)
+            throws IOException {
         return new DirectorySink(
-                output, path, Mode.COPY, ArtifactMatcher.unique(), false, a -> a, artifactNameMapper, false);
+                output,
+                path,
+                Mode.COPY,
+                ArtifactMatcher.unique(),
+                false,
+                a -> a,
+                artifactNameMapper,
+                false,
+                staged,
+                null);
     }
 
     /**
@@ -45,6 +83,14 @@ public final class DirectorySink implements ArtifactSink {
      * created).
      */
     public static DirectorySink repository(Output output, Path path) throws IOException {
+        return repository(output, path, false);
+    }
+
+    /**
+     * Creates "repository" directory sink, optionally staged, see {@link #flat(Output, Path, ArtifactNameMapper,
+     * boolean)}.
+     */
+    public static DirectorySink repository(Output output, Path path, boolean staged) throws IOException {
         return new DirectorySink(
                 output,
                 path,
@@ -53,7 +99,41 @@ public final class DirectorySink implements ArtifactSink {
                 true,
                 a -> a,
                 ArtifactNameMapper.repositoryDefault(),
-                false);
+                false,
+                staged,
+                null);
+    }
+
+    /**
+     * Checksum algorithms of repository with metadata, when none specified.
+     */
+    public static final List<String> DEFAULT_REPOSITORY_CHECKSUMS =
+            Collections.unmodifiableList(Arrays.asList(Checksums.SHA_1, Checksums.MD5, Checksums.SHA_256));
+
+    /**
+     * Creates "repository" directory sink, optionally staged, like {@link #repository(Output, Path, boolean)} is, but
+     * that on {@link #close()} also generates GA and G level (for Maven Plugins) {@code maven-metadata.xml} files and
+     * checksum sidecar files of given algorithms, so directory may be served as remote repository or used as
+     * {@code file://} mirror. Existing metadata in directory is merged with.
+     */
+    public static DirectorySink repositoryWithMetadata(
+            Output output, Path path, Collection<String> checksumAlgorithms, boolean staged) throws IOException {
+        requireNonNull(checksumAlgorithms, "checksumAlgorithms");
+        ArrayList<String> algorithms = new ArrayList<>(checksumAlgorithms.size());
+        for (String algorithm : checksumAlgorithms) {
+            algorithms.add(Checksums.algorithm(algorithm));
+        }
+        return new DirectorySink(
+                output,
+                path,
+                Mode.COPY,
+                ArtifactMatcher.and(ArtifactMatcher.not(ArtifactMatcher.snapshot()), ArtifactMatcher.unique()),
+                true,
+                a -> a,
+                ArtifactNameMapper.repositoryDefault(),
+                false,
+                staged,
+                algorithms);
     }
 
     /**
@@ -65,8 +145,12 @@ public final class DirectorySink implements ArtifactSink {
         SYMLINK
     }
 
+    private static final String PART_SUFFIX = ".part";
+
     private final Output output;
     private final Path directory;
+    private final StagingDirectory staging;
+    private final Path root;
     private final boolean directoryCreated;
     private final Mode mode;
     private final Predicate<Artifact> artifactMatcher;
@@ -74,8 +158,14 @@ public final class DirectorySink implements ArtifactSink {
     private final Function<Artifact, Artifact> artifactMapper;
     private final Function<Artifact, String> artifactNameMapper;
     private final boolean allowOverwrite;
-    private final HashSet<Path> writtenPaths;
-    private final StandardCopyOption[] copyFlags;
+    private final Set<Path> acceptedPaths;
+    private final Set<Path> writtenPaths;
+    private final List<String> checksumAlgorithms;
+    private final Map<String, Set<String>> versions;
+    private final Map<String, Path> plugins;
+    private final Set<Path> repositoryFiles;
+    private volatile boolean resume;
+    private volatile Consumer<Path> targetListener;
 
     /**
      * Creates a directory sink.
@@ -88,6 +178,8 @@ public final class DirectorySink implements ArtifactSink {
      * @param artifactNameMapper The artifact name mapper, that decides what file name will be of the artifact.
      * @param allowOverwrite Does sink allow overwrites. Tip: you usually do not want to allow, as that means you have
      *                       some mismatch in name mapping or alike.
+     * @param staged Should the sink write into staging directory, published on close.
+     * @param checksumAlgorithms If not {@code null}, repository metadata and checksums are generated on close.
      * @throws IOException In case of IO problem.
      */
     private DirectorySink(
@@ -98,7 +190,9 @@ public final class DirectorySink implements ArtifactSink {
             boolean failIfUnmatched,
             Function<Artifact, Artifact> artifactMapper,
             Function<Artifact, String> artifactNameMapper,
-            boolean allowOverwrite)
+            boolean allowOverwrite,
+            boolean staged,
+            List<String> checksumAlgorithms)
             throws IOException {
         this.output = requireNonNull(output, "output");
         this.directory = requireNonNull(directory, "directory").toAbsolutePath();
@@ -106,11 +200,19 @@ public final class DirectorySink implements ArtifactSink {
         if (Files.exists(directory) && !Files.isDirectory(directory)) {
             throw new IllegalArgumentException("directory must not exists, or must be a directory");
         }
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
-            this.directoryCreated = true;
-        } else {
+        if (staged) {
+            this.staging = StagingDirectory.create(this.directory);
+            this.root = staging.getStaging();
             this.directoryCreated = false;
+        } else {
+            this.staging = null;
+            this.root = this.directory;
+            if (!Files.exists(directory)) {
+                Files.createDirectories(directory);
+                this.directoryCreated = true;
+            } else {
+                this.directoryCreated = false;
+            }
         }
 
         this.artifactMatcher = requireNonNull(artifactMatcher, "artifactMatcher");
@@ -118,16 +220,31 @@ public final class DirectorySink implements ArtifactSink {
         this.artifactMapper = requireNonNull(artifactMapper, "artifactMapper");
         this.artifactNameMapper = requireNonNull(artifactNameMapper, "artifactNameMapper");
         this.allowOverwrite = allowOverwrite;
-        this.writtenPaths = new HashSet<>();
-        this.copyFlags = allowOverwrite
-                ? new StandardCopyOption[] {StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES}
-                : new StandardCopyOption[] {StandardCopyOption.COPY_ATTRIBUTES};
+        this.acceptedPaths = ConcurrentHashMap.newKeySet();
+        this.writtenPaths = ConcurrentHashMap.newKeySet();
+        this.checksumAlgorithms = checksumAlgorithms;
+        this.versions = new ConcurrentHashMap<>();
+        this.plugins = new ConcurrentHashMap<>();
+        this.repositoryFiles = ConcurrentHashMap.newKeySet();
     }
 
     public Path getDirectory() {
         return directory;
     }
 
+    public boolean isStaged() {
+        return staging != null;
+    }
+
+    /**
+     * Sets up this sink for journaling: when resuming, up to date files are not copied again, and the listener is
+     * notified with every target path the accepted artifacts are written to (or found up to date).
+     */
+    void journaled(boolean resume, Consumer<Path> targetListener) {
+        this.resume = resume;
+        this.targetListener = requireNonNull(targetListener, "targetListener");
+    }
+
     @Override
     public void accept(Artifact artifact) throws IOException {
         requireNonNull(artifact, "artifact");
@@ -136,18 +253,28 @@ public final class DirectorySink implements ArtifactSink {
             output.verbose("  matched");
             String name = artifactNameMapper.apply(artifactMapper.apply(artifact));
             output.verbose("  mapped to name {}", name);
-            Path target = directory.resolve(name).toAbsolutePath();
-            if (!target.startsWith(directory)) {
+            Path target = root.resolve(name).toAbsolutePath();
+            if (!target.startsWith(root)) {
                 throw new IOException("Path escape prevented; check mappings");
             }
-            if (!writtenPaths.add(target) && !allowOverwrite) {
+            if (!acceptedPaths.add(target) && !allowOverwrite) {
                 throw new IOException("Overwrite prevented; check mappings");
             }
+            if (resume
+                    && mode == Mode.COPY
+                    && !writtenPaths.contains(target)
+                    && isUpToDate(artifact.getFile().toPath(), target)) {
+                output.verbose("  up to date file {}", target);
+                recordRepositoryFile(artifact, target);
+                notifyTargetListener(target);
+                return;
+            }
+            writtenPaths.add(target);
             Files.createDirectories(target.getParent());
             switch (mode) {
                 case COPY:
                     output.verbose("  copied to file {}", target);
-                    Files.copy(artifact.getFile().toPath(), target, copyFlags);
+                    copy(artifact.getFile().toPath(), target);
                     break;
                 case LINK:
                     output.verbose("  linked to file {}", target);
@@ -160,6 +287,8 @@ public final class DirectorySink implements ArtifactSink {
                 default:
                     throw new IllegalArgumentException("unknown mode");
             }
+            recordRepositoryFile(artifact, target);
+            notifyTargetListener(target);
         } else {
             if (failIfUnmatched) {
                 throw new IllegalArgumentException("not matched");
@@ -169,9 +298,67 @@ public final class DirectorySink implements ArtifactSink {
         }
     }
 
+    public boolean isRepositoryWithMetadata() {
+        return checksumAlgorithms != null;
+    }
+
+    private void recordRepositoryFile(Artifact artifact, Path target) {
+        if (checksumAlgorithms != null) {
+            String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            versions.computeIfAbsent(ga, k -> ConcurrentHashMap.newKeySet()).add(artifact.getVersion());
+            if ("jar".equals(artifact.getExtension())
+                    && artifact.getClassifier().isEmpty()) {
+                plugins.put(ga, target);
+            }
+            repositoryFiles.add(target);
+        }
+    }
+
+    private void notifyTargetListener(Path target) {
+        Consumer<Path> listener = targetListener;
+        if (listener != null) {
+            listener.accept(target);
+        }
+    }
+
+    /**
+     * Copies file via sibling part file that is atomically moved in place, so target is either complete, or absent.
+     */
+    private void copy(Path source, Path target) throws IOException {
+        if (!allowOverwrite && Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        try {
+            Files.copy(source, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Fast check, is target a complete copy of source, left over by some previous (ie. interrupted) run: as copies
+     * retain attributes, size and last modified time are compared only.
+     */
+    private static boolean isUpToDate(Path source, Path target) throws IOException {
+        if (!Files.isRegularFile(target)) {
+            return false;
+        }
+        BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+        BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class);
+        return sourceAttributes.size() == targetAttributes.size()
+                && sourceAttributes.lastModifiedTime().toMillis()
+                        == targetAttributes.lastModifiedTime().toMillis();
+    }
+
     @Override
     public void cleanup(Exception e) {
         output.error("Cleaning up: {}", directory);
+        if (staging != null) {
+            staging.discard();
+            return;
+        }
         writtenPaths.forEach(p -> {
             try {
                 Files.deleteIfExists(p);
@@ -189,5 +376,20 @@ public final class DirectorySink implements ArtifactSink {
     }
 
     @Override
-    public void close() {}
+    public void close() throws IOException {
+        if (checksumAlgorithms != null) {
+            long started = System.nanoTime();
+            List<Path> generated = new RepositoryMetadataGenerator(
+                            root, checksumAlgorithms, Runtime.getRuntime().availableProcessors())
+                    .generate(versions, plugins, repositoryFiles);
+            output.normal(
+                    "Generated {} metadata and checksum files for {} artifacts in {} ms",
+                    generated.size(),
+                    repositoryFiles.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+        if (staging != null) {
+            staging.publish();
+        }
+    }
 }
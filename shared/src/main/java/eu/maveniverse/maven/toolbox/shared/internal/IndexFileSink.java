@@ -11,32 +11,89 @@ import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.util.artifact.ArtifactIdUtils;
 
 /**
- * Construction to accept collection of artifacts into "index file", that is a file having GAV per line.
+ * Construction to accept collection of artifacts into "index file", that is a file having GAV per line, optionally
+ * followed by tab separated extra {@link Column}s.
+ * <p>
+ * This sink is thread safe. When not appending, index is written into a temporary file next to target, and is moved
+ * in place on {@link #close()}. When appending, existing file is truncated back to its original length on cleanup.
  */
 public final class IndexFileSink implements ArtifactSink {
     /**
      * Creates plain "flat" index file sink.
      */
     public static IndexFileSink flat(Output output, Path path, boolean append) throws IOException {
-        return new IndexFileSink(output, path, append);
+        return index(output, path, append, false, Collections.emptyList());
     }
 
+    /**
+     * Creates index file sink.
+     *
+     * @param output The output.
+     * @param path The file, if not existing, will be created.
+     * @param append Should be the file appended (if exists) of overwritten.
+     * @param gzip Should be the file gzip compressed. When appending, new gzip member is appended to the file.
+     * @param columns The extra columns to write after GAV, in given order.
+     */
+    public static IndexFileSink index(
+            Output output, Path path, boolean append, boolean gzip, Collection<Column> columns) throws IOException {
+        return new IndexFileSink(output, path, append, gzip, columns);
+    }
+
+    /**
+     * Extra index column.
+     */
+    public enum Column {
+        /**
+         * The artifact file size in bytes.
+         */
+        SIZE,
+
+        /**
+         * The artifact file SHA-1, using {@code .sha1} sidecar file, if present.
+         */
+        SHA1,
+
+        /**
+         * The id of remote repository artifact was cached from, as recorded in local repository
+         * {@code _remote.repositories} file.
+         */
+        REPOSITORY
+    }
+
+    private static final String MISSING = "-";
+
+    private static final String REMOTE_REPOSITORIES = "_remote.repositories";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final Output output;
     private final Path file;
-    private final Path backupFile;
+    private final Path tmpFile;
+    private final long appendOffset;
+    private final ArrayList<Column> columns;
     private final AtomicBoolean closed;
-    private final PrintWriter printWriter;
+    private final Writer writer;
 
     /**
      * Creates a directory sink.
@@ -44,28 +101,33 @@ public final class IndexFileSink implements ArtifactSink {
      * @param output The output.
      * @param file The file, if not existing, will be created.
      * @param append Should be the file appended (if exists) of overwritten.
+     * @param gzip Should be the file gzip compressed.
+     * @param columns The extra columns.
      * @throws IOException In case of IO problem.
      */
-    private IndexFileSink(Output output, Path file, boolean append) throws IOException {
+    private IndexFileSink(Output output, Path file, boolean append, boolean gzip, Collection<Column> columns)
+            throws IOException {
         this.output = requireNonNull(output, "output");
         this.file = requireNonNull(file, "file").toAbsolutePath();
-        if (Files.isRegularFile(this.file)) {
-            this.backupFile = file.getParent().resolve(file.getFileName() + ".bak");
-            Files.copy(this.file, this.backupFile);
-        } else {
-            this.backupFile = null;
-        }
+        this.columns = new ArrayList<>(requireNonNull(columns, "columns"));
         this.closed = new AtomicBoolean(false);
 
-        this.printWriter = new PrintWriter(Files.newBufferedWriter(
-                file,
-                append
-                        ? new StandardOpenOption[] {
-                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
-                        }
-                        : new StandardOpenOption[] {
-                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
-                        }));
+        Files.createDirectories(this.file.getParent());
+        OutputStream outputStream;
+        if (append) {
+            this.tmpFile = null;
+            this.appendOffset = Files.isRegularFile(this.file) ? Files.size(this.file) : -1;
+            outputStream = Files.newOutputStream(
+                    this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            this.tmpFile = TempFiles.createSibling(this.file);
+            this.appendOffset = -1;
+            outputStream = Files.newOutputStream(this.tmpFile);
+        }
+        if (gzip) {
+            outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
     }
 
     public Path getFile() {
@@ -78,16 +140,68 @@ public final class IndexFileSink implements ArtifactSink {
         if (closed.get()) {
             throw new IllegalStateException("already closed");
         }
-        printWriter.println(ArtifactIdUtils.toId(artifact));
+        StringBuilder line = new StringBuilder(ArtifactIdUtils.toId(artifact));
+        if (!columns.isEmpty()) {
+            Path path = artifact.getFile() != null ? artifact.getFile().toPath() : null;
+            boolean exists = path != null && Files.isRegularFile(path);
+            for (Column column : columns) {
+                line.append('\t');
+                if (!exists) {
+                    line.append(MISSING);
+                } else if (column == Column.SIZE) {
+                    line.append(Files.size(path));
+                } else if (column == Column.SHA1) {
+                    line.append(Checksums.sha1(path));
+                } else if (column == Column.REPOSITORY) {
+                    line.append(repository(path));
+                }
+            }
+        }
+        line.append('\n');
+        synchronized (writer) {
+            writer.write(line.toString());
+        }
+    }
+
+    /**
+     * Returns the id of repository the file was cached from, by looking up {@code _remote.repositories} file.
+     */
+    private static String repository(Path path) throws IOException {
+        Path remoteRepositories = path.resolveSibling(REMOTE_REPOSITORIES);
+        if (Files.isRegularFile(remoteRepositories)) {
+            String prefix = path.getFileName().toString() + ">";
+            try (BufferedReader reader = Files.newBufferedReader(remoteRepositories, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                while (line != null) {
+                    if (line.startsWith(prefix)) {
+                        int eq = line.indexOf('=', prefix.length());
+                        String repositoryId = line.substring(prefix.length(), eq < 0 ? line.length() : eq);
+                        return repositoryId.isEmpty() ? MISSING : repositoryId;
+                    }
+                    line = reader.readLine();
+                }
+            }
+        }
+        return MISSING;
     }
 
     @Override
     public void cleanup(Exception e) {
         output.error("Cleaning up: {}", file);
+        if (closed.compareAndSet(false, true)) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
         try {
-            close();
-            if (backupFile != null) {
-                Files.move(backupFile, file, StandardCopyOption.REPLACE_EXISTING);
+            if (tmpFile != null) {
+                Files.deleteIfExists(tmpFile);
+            } else if (appendOffset >= 0) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(appendOffset);
+                }
             } else {
                 Files.deleteIfExists(file);
             }
@@ -97,10 +211,14 @@ public final class IndexFileSink implements ArtifactSink {
     }
 
     @Override
-    public void close() {
+    public void close() throws IOException {
         if (closed.compareAndSet(false, true)) {
-            printWriter.flush();
-            printWriter.close();
+            synchronized (writer) {
+                writer.close();
+            }
+            if (tmpFile != null) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
         }
     }
 }
@@ -53,19 +53,19 @@ public final class InstallingSink implements ArtifactSink {
     }
 
     @Override
-    public void accept(Collection<Artifact> artifacts) {
+    public synchronized void accept(Collection<Artifact> artifacts) {
         requireNonNull(artifacts, "artifacts");
         installRequest.setArtifacts(artifacts);
     }
 
     @Override
-    public void accept(Artifact artifact) {
+    public synchronized void accept(Artifact artifact) {
         requireNonNull(artifact, "artifact");
         installRequest.addArtifact(artifact);
     }
 
     @Override
-    public void close() throws InstallationException {
+    public synchronized void close() throws InstallationException {
         output.normal(
                 "Installing {} artifacts...", installRequest.getArtifacts().size());
         system.install(session, installRequest);
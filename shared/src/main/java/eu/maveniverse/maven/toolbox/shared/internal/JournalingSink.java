@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Sink decorator that records every artifact delegate completed into an append-only journal file, making long copy
+ * jobs resumable: when resuming, artifacts recorded in journal are skipped, if their file still has same size and
+ * last modified time as recorded. As decorator, it works with any sink composition (ie. {@code matching},
+ * {@code mapping} or {@code tee}), and artifact is recorded once delegate returned. Directory sinks found in the
+ * composition record target files they wrote, and artifact is skipped only if all its targets are still present with
+ * same size and last modified time.
+ * <p>
+ * Journal line is written as soon as artifact completes, so it survives abrupt termination of the process. If job
+ * fails and composition consists of directory and unpack sinks only, they keep their completed work, and so does the
+ * journal, hence rerun resumes where failed run stopped. Otherwise, delegate is cleaned up (hence, it rolls back work
+ * it did), and journal is truncated to the state it had at start, so journal always reflects state of the delegate.
+ * Journal of staged sinks is meaningless, as their work becomes visible only on close, hence compositions containing
+ * them are not accepted as delegate.
+ */
+public final class JournalingSink implements ArtifactSink {
+    /**
+     * Creates journaling sink. If not resuming, existing journal is discarded.
+     */
+    public static JournalingSink journaling(Output output, Path journal, boolean resume, ArtifactSink delegate)
+            throws IOException {
+        return new JournalingSink(output, journal, resume, delegate);
+    }
+
+    private final Output output;
+    private final Path journal;
+    private final boolean resume;
+    private final ArtifactSink delegate;
+    private final boolean filesystemOnly;
+    private final Map<String, String> completed;
+    private final FileChannel channel;
+    private final long initialSize;
+    private final LongAdder recorded;
+    private final LongAdder skipped;
+    private final ThreadLocal<List<Path>> targets;
+
+    private JournalingSink(Output output, Path journal, boolean resume, ArtifactSink delegate) throws IOException {
+        this.output = requireNonNull(output, "output");
+        this.journal = requireNonNull(journal, "journal").toAbsolutePath();
+        this.resume = resume;
+        this.delegate = requireNonNull(delegate, "delegate");
+        List<ArtifactSink> leaves = leaves(delegate, new ArrayList<>());
+        boolean filesystemOnly = true;
+        for (ArtifactSink leaf : leaves) {
+            if ((leaf instanceof DirectorySink && ((DirectorySink) leaf).isStaged())
+                    || (leaf instanceof UnpackSink && ((UnpackSink) leaf).isStaged())) {
+                throw new IllegalArgumentException("journal cannot be used with staged sink");
+            }
+            filesystemOnly &= leaf instanceof DirectorySink || leaf instanceof UnpackSink;
+        }
+        this.filesystemOnly = filesystemOnly;
+        this.completed = new HashMap<>();
+        if (resume && Files.isRegularFile(this.journal)) {
+            try (BufferedReader reader = Files.newBufferedReader(this.journal, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                while (line != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        completed.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                    line = reader.readLine();
+                }
+            }
+        }
+        Files.createDirectories(this.journal.getParent());
+        this.channel = FileChannel.open(this.journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (!resume) {
+            channel.truncate(0L);
+        }
+        this.initialSize = channel.size();
+        channel.position(initialSize);
+        this.recorded = new LongAdder();
+        this.skipped = new LongAdder();
+        this.targets = new ThreadLocal<>();
+        for (ArtifactSink leaf : leaves) {
+            if (leaf instanceof DirectorySink) {
+                ((DirectorySink) leaf).journaled(resume, this::targetWritten);
+            }
+        }
+        if (resume) {
+            output.normal("Resuming from journal {} having {} completed artifacts", this.journal, completed.size());
+        }
+    }
+
+    /**
+     * Collects the sinks doing actual work, walking decorators and tee sinks.
+     */
+    private static List<ArtifactSink> leaves(ArtifactSink sink, List<ArtifactSink> leaves) {
+        if (sink instanceof TimedArtifactSink) {
+            leaves(((TimedArtifactSink) sink).getDelegate(), leaves);
+        } else if (sink instanceof ArtifactSinks.DelegatingArtifactSink) {
+            leaves(((ArtifactSinks.DelegatingArtifactSink) sink).getDelegate(), leaves);
+        } else if (sink instanceof ArtifactSinks.TeeArtifactSink) {
+            for (ArtifactSink child : ((ArtifactSinks.TeeArtifactSink) sink).getArtifactSinks()) {
+                leaves(child, leaves);
+            }
+        } else {
+            leaves.add(sink);
+        }
+        return leaves;
+    }
+
+    private void targetWritten(Path target) {
+        List<Path> written = targets.get();
+        if (written != null) {
+            written.add(target);
+        }
+    }
+
+    public Path getJournal() {
+        return journal;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public ArtifactSink getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Count of artifacts skipped, as journal recorded them as completed.
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * Count of artifacts completed and recorded in this run.
+     */
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    @Override
+    public void accept(Artifact artifact) throws IOException {
+        requireNonNull(artifact, "artifact");
+        if (artifact.getFile() == null) {
+            delegate.accept(artifact);
+            return;
+        }
+        String id = ArtifactIdUtils.toId(artifact);
+        String stamp = stamp(artifact.getFile().toPath());
+        if (isCompleted(completed.get(id), stamp)) {
+            output.verbose("  {}: completed in journal, skipped", artifact);
+            skipped.increment();
+            return;
+        }
+        ArrayList<Path> written = new ArrayList<>(1);
+        targets.set(written);
+        try {
+            delegate.accept(artifact);
+        } finally {
+            targets.remove();
+        }
+        StringBuilder line = new StringBuilder(id).append('\t').append(stamp);
+        for (Path target : written) {
+            line.append('\t').append(target).append('\t').append(stamp(target));
+        }
+        record(line.append('\n').toString());
+        recorded.increment();
+    }
+
+    /**
+     * Journal entry is {@code size\tmtime} of source, optionally followed by {@code \ttarget\tsize\tmtime} of each
+     * written target: artifact is completed if source is unchanged, and all recorded targets are present and unchanged.
+     */
+    private static boolean isCompleted(String entry, String stamp) throws IOException {
+        if (entry == null || !entry.startsWith(stamp)) {
+            return false;
+        }
+        if (entry.length() == stamp.length()) {
+            return true;
+        }
+        if (entry.charAt(stamp.length()) != '\t') {
+            return false;
+        }
+        String[] targets = entry.substring(stamp.length() + 1).split("\t");
+        if (targets.length % 3 != 0) {
+            return false;
+        }
+        for (int i = 0; i < targets.length; i += 3) {
+            Path file = Path.of(targets[i]);
+            if (!Files.isRegularFile(file) || !stamp(file).equals(targets[i + 1] + "\t" + targets[i + 2])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stamp(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.size() + "\t" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private synchronized void record(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        if (filesystemOnly) {
+            // their cleanup would only delete completed work, keep it along with journal, to resume from
+            output.warn(
+                    "Keeping {} completed artifacts recorded in journal {} to resume from", recorded.sum(), journal);
+            synchronized (this) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    output.warn("Could not close journal {}: {}", journal, ex.getMessage());
+                }
+            }
+            return;
+        }
+        try {
+            delegate.cleanup(e);
+        } finally {
+            synchronized (this) {
+                try (FileChannel c = channel) {
+                    c.truncate(initialSize);
+                } catch (IOException ex) {
+                    output.warn("Could not roll back journal {}: {}", journal, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            delegate.close();
+        } finally {
+            synchronized (this) {
+                channel.close();
+            }
+        }
+        output.normal(
+                "Journal {}: {} artifacts completed, {} skipped as already completed",
+                journal,
+                recorded.sum(),
+                skipped.sum());
+    }
+}
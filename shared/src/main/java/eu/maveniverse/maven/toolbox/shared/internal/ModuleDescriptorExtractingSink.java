@@ -11,19 +11,35 @@ import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
-import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.InputStream;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipFile;
+import javax.lang.model.SourceVersion;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.graph.DependencyVisitor;
@@ -32,6 +48,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Sink that extracts module descriptors from artifacts.
+ * <p>
+ * Extraction runs in parallel, on a pool of daemon threads shared by all instances, and each JAR file is opened only
+ * once: the (multi-release aware) {@code module-info.class} is parsed if present, otherwise
+ * {@code Automatic-Module-Name} is taken from manifest, and if both are absent, module name is derived from the file
+ * name, the same way as {@link ModuleFinder} does. Only directories (ie. {@code target/classes}) are handed over to
+ * {@link ModuleFinder}.
+ * <p>
+ * If a cache file is given, extracted descriptors of files are cached in it keyed by file SHA-1 (usually read from
+ * the {@code .sha1} sidecar present in local repository), so subsequent runs skip extraction altogether.
  */
 public final class ModuleDescriptorExtractingSink implements ArtifactSink, DependencyVisitor {
     public interface ModuleDescriptor {
@@ -42,19 +67,60 @@ public final class ModuleDescriptorExtractingSink implements ArtifactSink, Depen
         String moduleNameSource();
     }
 
+    private static final String NONE = "-";
+
+    private static final String FILENAME = "FILENAME";
+
+    private static final Pattern VERSION = Pattern.compile("-(\\d+(\\.|$))");
+
+    private static final Pattern NON_ALPHANUM = Pattern.compile("[^A-Za-z0-9]");
+
+    private static final Pattern REPEATING_DOTS = Pattern.compile("(\\.)(\\1)+");
+
+    private static final Pattern LEADING_DOTS = Pattern.compile("^\\.");
+
+    private static final Pattern TRAILING_DOTS = Pattern.compile("\\.$");
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        int threads = Runtime.getRuntime().availableProcessors();
+        EXECUTOR = new ThreadPoolExecutor(threads, threads, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "toolbox-module-descriptor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Output output;
-    private final ConcurrentMap<Artifact, ModuleDescriptor> moduleDescriptors;
+    private final Path cacheFile;
+    private final ConcurrentMap<Artifact, CompletableFuture<ModuleDescriptor>> moduleDescriptors;
+    private volatile Map<String, Optional<ModuleDescriptor>> cache;
+    private final ConcurrentMap<String, Optional<ModuleDescriptor>> cacheAdditions;
 
     public ModuleDescriptorExtractingSink(Output output) {
+        this(output, null);
+    }
+
+    /**
+     * Creates sink that uses passed in file as persistent cache; if {@code null}, no cache is used.
+     */
+    public ModuleDescriptorExtractingSink(Output output, Path cacheFile) {
         this.output = requireNonNull(output, "output");
+        this.cacheFile = cacheFile;
         this.moduleDescriptors = new ConcurrentHashMap<>();
+        this.cacheAdditions = new ConcurrentHashMap<>();
     }
 
     @Override
     public void accept(Artifact artifact) throws IOException {
         if (artifact.getFile() != null) {
-            moduleDescriptors.computeIfAbsent(artifact, k -> getModuleDescriptor(artifact.getFile()));
+            moduleDescriptors.computeIfAbsent(
+                    artifact,
+                    k -> CompletableFuture.supplyAsync(
+                            () -> getModuleDescriptor(artifact.getFile().toPath()), EXECUTOR));
         }
     }
 
@@ -70,9 +136,15 @@ public final class ModuleDescriptorExtractingSink implements ArtifactSink, Depen
         return moduleInfo;
     }
 
+    @Override
+    public void cleanup(Exception e) {
+        moduleDescriptors.values().forEach(f -> f.cancel(false));
+    }
+
     @Override
     public void close() throws Exception {
-        for (Map.Entry<Artifact, ModuleDescriptor> entry : moduleDescriptors.entrySet()) {
+        for (Map.Entry<Artifact, ModuleDescriptor> entry :
+                getModuleDescriptors().entrySet()) {
             String moduleInfo = "";
             if (entry.getValue() != null) {
                 ModuleDescriptor moduleDescriptor = entry.getValue();
@@ -88,76 +160,180 @@ public final class ModuleDescriptorExtractingSink implements ArtifactSink, Depen
                 output.normal("{} {}", entry.getKey(), moduleInfo);
             }
         }
+        storeCache();
     }
 
     public ModuleDescriptor getModuleDescriptor(Artifact artifact) {
-        return moduleDescriptors.get(artifact);
+        CompletableFuture<ModuleDescriptor> moduleDescriptor = moduleDescriptors.get(artifact);
+        return moduleDescriptor != null ? moduleDescriptor.join() : null;
     }
 
+    /**
+     * Returns extracted module descriptors, waiting for pending extractions to finish. Value is {@code null} if
+     * artifact is not a module (or is not a JAR at all).
+     */
     public Map<Artifact, ModuleDescriptor> getModuleDescriptors() {
-        return Collections.unmodifiableMap(moduleDescriptors);
+        LinkedHashMap<Artifact, ModuleDescriptor> result = new LinkedHashMap<>();
+        moduleDescriptors.forEach((k, v) -> result.put(k, v.join()));
+        return Collections.unmodifiableMap(result);
     }
 
-    private ModuleDescriptor getModuleDescriptor(File artifactFile) {
-        ModuleDescriptorImpl moduleDescriptor = null;
-        try {
-            // Use Java9 code to get moduleName, don't try to do it better with own implementation
-            Class<?> moduleFinderClass = Class.forName("java.lang.module.ModuleFinder");
-
-            Path path = artifactFile.toPath();
+    private ModuleDescriptor getModuleDescriptor(Path path) {
+        if (!Files.isRegularFile(path)) {
+            // ie. target/classes
+            return extractByModuleFinder(path, null);
+        }
+        String sha1 = null;
+        if (cacheFile != null) {
+            try {
+                // hash actual content: sidecar files are not trusted for cache keys
+                sha1 = Checksums.calculate(path, Checksums.SHA_1);
+                Optional<ModuleDescriptor> cached = loadCache().get(sha1);
+                if (cached != null) {
+                    return cached.orElse(null);
+                }
+            } catch (IOException e) {
+                logger.debug("Can't calculate SHA-1 of {}:", path, e);
+            }
+        }
+        ModuleDescriptor moduleDescriptor = extract(path);
+        // name derived from file name depends on file name, not content: those are not cached
+        if (sha1 != null && !isFilenameDerived(moduleDescriptor)) {
+            cacheAdditions.put(sha1, Optional.ofNullable(moduleDescriptor));
+        }
+        return moduleDescriptor;
+    }
 
-            Method ofMethod = moduleFinderClass.getMethod("of", java.nio.file.Path[].class);
-            Object moduleFinderInstance = ofMethod.invoke(null, new Object[] {new java.nio.file.Path[] {path}});
+    private ModuleDescriptor extract(Path path) {
+        try (JarFile jarFile = new JarFile(path.toFile(), false, ZipFile.OPEN_READ, JarFile.runtimeVersion())) {
+            JarEntry moduleInfo = jarFile.getJarEntry("module-info.class");
+            if (moduleInfo != null) {
+                try (InputStream inputStream = jarFile.getInputStream(moduleInfo)) {
+                    return new ModuleDescriptorImpl(
+                            java.lang.module.ModuleDescriptor.read(inputStream).name(), false, null);
+                }
+            }
+            Manifest manifest = jarFile.getManifest();
+            if (manifest != null) {
+                String name = manifest.getMainAttributes().getValue("Automatic-Module-Name");
+                if (name != null) {
+                    return new ModuleDescriptorImpl(name, true, "MANIFEST");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not a JAR (ie. POM) or malformed module-info
+            logger.debug("Can't extract module name from {}:", path.getFileName(), e);
+            return null;
+        }
+        String name = automaticModuleName(path.getFileName().toString());
+        if (name == null) {
+            logger.debug("Can't derive module name from {}", path.getFileName());
+            return null;
+        }
+        return new ModuleDescriptorImpl(name, true, FILENAME);
+    }
 
-            Method findAllMethod = moduleFinderClass.getMethod("findAll");
-            Set<Object> moduleReferences = (Set<Object>) findAllMethod.invoke(moduleFinderInstance);
+    /**
+     * Derives automatic module name from JAR file name, following the algorithm of {@link ModuleFinder#of(Path...)}.
+     * Returns {@code null} if derived name is not a legal module name.
+     */
+    static String automaticModuleName(String fileName) {
+        String name = fileName;
+        if (name.endsWith(".jar")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        Matcher matcher = VERSION.matcher(name);
+        if (matcher.find()) {
+            name = name.substring(0, matcher.start());
+        }
+        name = NON_ALPHANUM.matcher(name).replaceAll(".");
+        name = REPEATING_DOTS.matcher(name).replaceAll(".");
+        name = LEADING_DOTS.matcher(name).replaceAll("");
+        name = TRAILING_DOTS.matcher(name).replaceAll("");
+        return !name.isEmpty() && SourceVersion.isName(name) ? name : null;
+    }
 
+    private ModuleDescriptor extractByModuleFinder(Path path, String moduleNameSource) {
+        // Use JDK code to derive module name, don't try to do it better with own implementation
+        try {
             // moduleReferences can be empty when referring to target/classes without module-info.class
-            if (!moduleReferences.isEmpty()) {
-                Object moduleReference = moduleReferences.iterator().next();
-                Method descriptorMethod = moduleReference.getClass().getMethod("descriptor");
-                Object moduleDescriptorInstance = descriptorMethod.invoke(moduleReference);
-
-                Method nameMethod = moduleDescriptorInstance.getClass().getMethod("name");
-                String name = (String) nameMethod.invoke(moduleDescriptorInstance);
-
-                moduleDescriptor = new ModuleDescriptorImpl();
-                moduleDescriptor.name = name;
-
-                Method isAutomaticMethod = moduleDescriptorInstance.getClass().getMethod("isAutomatic");
-                moduleDescriptor.automatic = (Boolean) isAutomaticMethod.invoke(moduleDescriptorInstance);
-
-                if (moduleDescriptor.automatic) {
-                    if (artifactFile.isFile()) {
-                        try (JarFile jarFile = new JarFile(artifactFile)) {
-                            Manifest manifest = jarFile.getManifest();
-
-                            if (manifest != null
-                                    && manifest.getMainAttributes().getValue("Automatic-Module-Name") != null) {
-                                moduleDescriptor.moduleNameSource = "MANIFEST";
-                            } else {
-                                moduleDescriptor.moduleNameSource = "FILENAME";
-                            }
-                        } catch (IOException e) {
-                            // noop
-                        }
+            for (ModuleReference moduleReference : ModuleFinder.of(path).findAll()) {
+                java.lang.module.ModuleDescriptor descriptor = moduleReference.descriptor();
+                return new ModuleDescriptorImpl(
+                        descriptor.name(),
+                        descriptor.isAutomatic(),
+                        descriptor.isAutomatic() ? moduleNameSource : null);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Can't extract module name from {}:", path.getFileName(), e);
+        }
+        return null;
+    }
+
+    private static boolean isFilenameDerived(ModuleDescriptor moduleDescriptor) {
+        return moduleDescriptor != null && FILENAME.equals(moduleDescriptor.moduleNameSource());
+    }
+
+    private Map<String, Optional<ModuleDescriptor>> loadCache() {
+        if (cache == null) {
+            synchronized (this) {
+                if (cache == null) {
+                    cache = readCache();
+                }
+            }
+        }
+        return cache;
+    }
+
+    private ConcurrentHashMap<String, Optional<ModuleDescriptor>> readCache() {
+        ConcurrentHashMap<String, Optional<ModuleDescriptor>> loaded = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split("\t");
+                    if (parts.length == 2 && NONE.equals(parts[1])) {
+                        loaded.put(parts[0], Optional.empty());
+                    } else if (parts.length == 3 && !FILENAME.equals(parts[2])) {
+                        loaded.put(
+                                parts[0],
+                                Optional.of(new ModuleDescriptorImpl(
+                                        parts[1], !NONE.equals(parts[2]), NONE.equals(parts[2]) ? null : parts[2])));
                     }
                 }
+            } catch (IOException e) {
+                logger.warn("Can't read module descriptor cache {}:", cacheFile, e);
             }
-        } catch (ClassNotFoundException
-                | SecurityException
-                | IllegalAccessException
-                | IllegalArgumentException
-                | NoSuchMethodException e) {
-            logger.debug("Ignored Exception:", e);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            while (cause.getCause() != null) {
-                cause = cause.getCause();
+        }
+        return loaded;
+    }
+
+    /**
+     * Merges additions with current content of cache file (it may have been updated by other process meanwhile) and
+     * atomically replaces it.
+     */
+    private void storeCache() {
+        if (cacheFile == null || cacheAdditions.isEmpty()) {
+            return;
+        }
+        Map<String, Optional<ModuleDescriptor>> merged = new TreeMap<>(readCache());
+        merged.putAll(cacheAdditions);
+        List<String> lines = new ArrayList<>(merged.size());
+        merged.forEach((sha1, descriptor) -> lines.add(descriptor
+                .map(d -> sha1 + "\t" + d.name() + "\t" + (d.automatic() ? d.moduleNameSource() : NONE))
+                .orElse(sha1 + "\t" + NONE)));
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = TempFiles.createSibling(cacheFile);
+            try {
+                Files.write(tmp, lines, StandardCharsets.UTF_8);
+                Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
             }
-            logger.debug("Can't extract module name from {}:", artifactFile.getName(), cause);
+            cacheAdditions.clear();
+        } catch (IOException e) {
+            logger.warn("Can't write module descriptor cache {}:", cacheFile, e);
         }
-        return moduleDescriptor;
     }
 
     @Override
@@ -191,9 +367,15 @@ public final class ModuleDescriptorExtractingSink implements ArtifactSink, Depen
     }
 
     private static class ModuleDescriptorImpl implements ModuleDescriptor {
-        String name;
-        boolean automatic = true;
-        String moduleNameSource;
+        private final String name;
+        private final boolean automatic;
+        private final String moduleNameSource;
+
+        private ModuleDescriptorImpl(String name, boolean automatic, String moduleNameSource) {
+            this.name = name;
+            this.automatic = automatic;
+            this.moduleNameSource = moduleNameSource;
+        }
 
         @Override
         public String name() {
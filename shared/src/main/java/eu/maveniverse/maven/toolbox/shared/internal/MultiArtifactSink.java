@@ -9,17 +9,27 @@ package eu.maveniverse.maven.toolbox.shared.internal;
 
 import static java.util.Objects.requireNonNull;
 
+import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
 import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 import org.eclipse.aether.artifact.Artifact;
 
 /**
  * Construction to accept collection of artifacts and differentiate the into separate "lanes", or sinks.
+ * <p>
+ * Artifact is accepted by the sink of first matching predicate. To avoid testing all predicates for every artifact,
+ * predicates of common shapes ({@link ArtifactMatcher.PatternMatcher} with exact groupId, groupId prefix, or exact
+ * extension) are indexed, and only the candidates selected by index, along with predicates that cannot be indexed,
+ * are tested, in order of registration.
  */
 public final class MultiArtifactSink implements ArtifactSink {
     public static final class MultiArtifactSinkBuilder {
@@ -52,19 +62,124 @@ public final class MultiArtifactSink implements ArtifactSink {
 
     private final Output output;
     private final Map<Predicate<Artifact>, ArtifactSink> sinks;
+    private final List<Predicate<Artifact>> predicates;
+    private final List<ArtifactSink> targets;
+    private final HashMap<String, int[]> groupIds;
+    private final PrefixNode groupIdPrefixes;
+    private final HashMap<String, int[]> extensions;
+    private final int[] unindexed;
 
     private MultiArtifactSink(Output output, LinkedHashMap<Predicate<Artifact>, ArtifactSink> sinks) {
         this.output = requireNonNull(output, "output");
         this.sinks = Collections.unmodifiableMap(sinks);
+        this.predicates = new ArrayList<>(sinks.keySet());
+        this.targets = new ArrayList<>(sinks.values());
+
+        HashMap<String, List<Integer>> groupIds = new HashMap<>();
+        HashMap<String, List<Integer>> extensions = new HashMap<>();
+        ArrayList<Integer> unindexed = new ArrayList<>();
+        this.groupIdPrefixes = new PrefixNode();
+        for (int i = 0; i < predicates.size(); i++) {
+            Predicate<Artifact> predicate = predicates.get(i);
+            if (predicate instanceof ArtifactMatcher.PatternMatcher) {
+                String groupId = ((ArtifactMatcher.PatternMatcher) predicate).getGroupId();
+                String extension = ((ArtifactMatcher.PatternMatcher) predicate).getExtension();
+                if (isExact(groupId)) {
+                    groupIds.computeIfAbsent(groupId, k -> new ArrayList<>()).add(i);
+                    continue;
+                } else if (isPrefix(groupId)) {
+                    groupIdPrefixes.add(groupId.substring(0, groupId.length() - 1), i);
+                    continue;
+                } else if (isExact(extension)) {
+                    extensions
+                            .computeIfAbsent(extension, k -> new ArrayList<>())
+                            .add(i);
+                    continue;
+                }
+            }
+            unindexed.add(i);
+        }
+        this.groupIds = new HashMap<>();
+        groupIds.forEach((k, v) -> this.groupIds.put(k, toArray(v)));
+        this.extensions = new HashMap<>();
+        extensions.forEach((k, v) -> this.extensions.put(k, toArray(v)));
+        this.unindexed = toArray(unindexed);
+    }
+
+    private static boolean isExact(String pattern) {
+        return pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0 && pattern.indexOf('[') < 0;
+    }
+
+    private static boolean isPrefix(String pattern) {
+        return pattern.length() > 1 && pattern.endsWith("*") && isExact(pattern.substring(0, pattern.length() - 1));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Trie node of groupId prefixes, holding indexes of predicates whose prefix ends at this node.
+     */
+    private static final class PrefixNode {
+        private final HashMap<Character, PrefixNode> children = new HashMap<>();
+        private int[] predicates = new int[0];
+
+        private void add(String prefix, int index) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), k -> new PrefixNode());
+            }
+            node.predicates = Arrays.copyOf(node.predicates, node.predicates.length + 1);
+            node.predicates[node.predicates.length - 1] = index;
+        }
+
+        private void collect(String value, Candidates candidates) {
+            PrefixNode node = this;
+            candidates.add(node.predicates);
+            for (int i = 0; i < value.length() && node != null; i++) {
+                node = node.children.get(value.charAt(i));
+                if (node != null) {
+                    candidates.add(node.predicates);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collected candidate predicate indexes.
+     */
+    private static final class Candidates {
+        private int[] indexes = new int[8];
+        private int size;
+
+        private void add(int[] more) {
+            if (more == null || more.length == 0) {
+                return;
+            }
+            if (size + more.length > indexes.length) {
+                indexes = Arrays.copyOf(indexes, Math.max(indexes.length * 2, size + more.length));
+            }
+            System.arraycopy(more, 0, indexes, size, more.length);
+            size += more.length;
+        }
     }
 
     @Override
     public void accept(Artifact artifact) throws IOException {
         output.verbose("Accept artifact {}", artifact);
+        Candidates candidates = new Candidates();
+        candidates.add(groupIds.get(artifact.getGroupId()));
+        groupIdPrefixes.collect(artifact.getGroupId(), candidates);
+        candidates.add(extensions.get(artifact.getExtension()));
+        candidates.add(unindexed);
+        // first match wins: test candidates in order of registration; index sets are disjoint
+        Arrays.sort(candidates.indexes, 0, candidates.size);
         boolean processed = false;
-        for (Map.Entry<Predicate<Artifact>, ArtifactSink> sink : sinks.entrySet()) {
-            if (sink.getKey().test(artifact)) {
-                sink.getValue().accept(artifact);
+        for (int i = 0; i < candidates.size; i++) {
+            int index = candidates.indexes[i];
+            if (predicates.get(index).test(artifact)) {
+                targets.get(index).accept(artifact);
                 processed = true;
                 break;
             }
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream producing deflate (or gzip) compressed data, compressing fixed size blocks of input in parallel,
+ * in the same way as {@code pigz} does.
+ * <p>
+ * Each block is compressed by own {@link Deflater} using previous block tail as preset dictionary, and is ended with
+ * sync flush, so compressed blocks simply concatenate into a single valid deflate stream. CRC32 of uncompressed data
+ * is calculated sequentially by writer thread, as it is way cheaper than compression.
+ * <p>
+ * Compression level may be changed at any point using {@link #setLevel(int)}, which ends current block. This allows
+ * to avoid deflating already compressed content (like JARs) placed into same stream.
+ */
+public final class ParallelDeflateOutputStream extends OutputStream {
+    /**
+     * Size of uncompressed blocks compressed in parallel.
+     */
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] GZIP_HEADER = new byte[] {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, -1};
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private final ArrayDeque<Future<byte[]>> pending;
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+    private int level;
+    private long totalIn;
+    private long totalOut;
+    private boolean finished;
+
+    /**
+     * Creates raw deflate stream (as used in ZIP entries).
+     */
+    public static ParallelDeflateOutputStream deflate(OutputStream out, ExecutorService executor, int threads) {
+        return new ParallelDeflateOutputStream(out, executor, threads, false);
+    }
+
+    /**
+     * Creates gzip stream.
+     */
+    public static ParallelDeflateOutputStream gzip(OutputStream out, ExecutorService executor, int threads)
+            throws IOException {
+        ParallelDeflateOutputStream result = new ParallelDeflateOutputStream(out, executor, threads, true);
+        out.write(GZIP_HEADER);
+        result.totalOut += GZIP_HEADER.length;
+        return result;
+    }
+
+    private ParallelDeflateOutputStream(OutputStream out, ExecutorService executor, int threads, boolean gzip) {
+        this.out = requireNonNull(out, "out");
+        this.executor = requireNonNull(executor, "executor");
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.maxPending = threads * 2;
+        this.gzip = gzip;
+        this.crc = new CRC32();
+        this.pending = new ArrayDeque<>();
+        this.block = new byte[BLOCK_SIZE];
+        this.blockLength = 0;
+        this.dictionary = null;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.totalIn = 0;
+        this.totalOut = 0;
+        this.finished = false;
+    }
+
+    /**
+     * Sets the compression level used for data written from now on.
+     */
+    public void setLevel(int level) throws IOException {
+        if (level != this.level) {
+            if (blockLength > 0) {
+                submit(false);
+            }
+            this.level = level;
+        }
+    }
+
+    /**
+     * Returns CRC32 of all uncompressed data written so far.
+     */
+    public long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * Returns count of uncompressed bytes written so far.
+     */
+    public long getTotalIn() {
+        return totalIn;
+    }
+
+    /**
+     * Returns count of compressed bytes written to underlying stream; final once this stream is finished.
+     */
+    public long getTotalOut() {
+        return totalOut;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+        crc.update(b);
+        totalIn++;
+        block[blockLength++] = (byte) b;
+        if (blockLength == BLOCK_SIZE) {
+            submit(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+        crc.update(b, off, len);
+        totalIn += len;
+        while (len > 0) {
+            int chunk = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            off += chunk;
+            len -= chunk;
+            if (blockLength == BLOCK_SIZE) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses and writes out all remaining data, ending the deflate stream, without closing underlying stream.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            submit(true);
+            drain(0);
+            if (gzip) {
+                writeIntLE(crc.getValue());
+                writeIntLE(totalIn);
+                totalOut += 8;
+            }
+            finished = true;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        final byte[] input = Arrays.copyOf(block, blockLength);
+        final byte[] dict = dictionary;
+        final int lvl = level;
+        pending.add(executor.submit(() -> compress(input, dict, lvl, last)));
+        if (blockLength >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(block, blockLength - DICTIONARY_SIZE, blockLength);
+        } else if (blockLength > 0) {
+            dictionary = input;
+        }
+        blockLength = 0;
+        drain(maxPending);
+    }
+
+    private void drain(int max) throws IOException {
+        while (pending.size() > max) {
+            try {
+                byte[] compressed = pending.remove().get();
+                out.write(compressed);
+                totalOut += compressed.length;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            } catch (ExecutionException e) {
+                throw new IOException("Compression failed", e.getCause());
+            }
+        }
+    }
+
+    private static byte[] compress(byte[] input, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(input.length / 2 + 64);
+            byte[] buf = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf, 0, buf.length, Deflater.NO_FLUSH);
+                    result.write(buf, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    result.write(buf, 0, n);
+                } while (n == buf.length);
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeIntLE(long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >> 8) & 0xff));
+        out.write((int) ((value >> 16) & 0xff));
+        out.write((int) ((value >> 24) & 0xff));
+    }
+}
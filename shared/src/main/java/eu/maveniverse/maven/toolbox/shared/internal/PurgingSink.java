@@ -7,6 +7,7 @@
  */
 package eu.maveniverse.maven.toolbox.shared.internal;
 
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
 import static java.util.Objects.requireNonNull;
 
 import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
@@ -20,10 +21,20 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import org.eclipse.aether.RepositorySystem;
@@ -34,8 +45,17 @@ import org.eclipse.aether.repository.RemoteRepository;
 
 /**
  * Construction to accept collection of artifacts and purge them from local repository.
+ * <p>
+ * Purge work is grouped per directory: each affected directory is listed once, its registrar file is rewritten once
+ * and its metadata is reset once, no matter how many accepted artifacts reside in it. Directories are independent of
+ * each other, hence they are processed in parallel, using a bounded pool.
  */
 public final class PurgingSink implements ArtifactSink {
+    /**
+     * Default count of directories purged in parallel.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
     /**
      * Creates purging sink treats artifacts as "whole", purges whole GAVs from passed in session local repository.
      * Artifacts this sink accepts MUST NOT BE resolved from the same local repository this purging sink is about to
@@ -50,7 +70,7 @@ public final class PurgingSink implements ArtifactSink {
     }
 
     /**
-     * Creates purging sink that purges from passed in session local repository.
+     * Creates purging sink that purges from passed in session local repository, using default parallelism.
      */
     public static PurgingSink purging(
             Output output,
@@ -59,7 +79,24 @@ public final class PurgingSink implements ArtifactSink {
             RepositorySystem system,
             RepositorySystemSession session,
             List<RemoteRepository> remoteRepositories) {
-        return new PurgingSink(output, mode, enforceOrigin, system, session, remoteRepositories);
+        return purging(output, mode, enforceOrigin, false, system, session, remoteRepositories, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Creates purging sink that purges from passed in session local repository, processing at most
+     * {@code parallelism} directories at once. If {@code dryRun} is {@code true}, the sink does not touch disk, but
+     * only computes the {@link Plan} of what would be purged.
+     */
+    public static PurgingSink purging(
+            Output output,
+            Mode mode,
+            boolean enforceOrigin,
+            boolean dryRun,
+            RepositorySystem system,
+            RepositorySystemSession session,
+            List<RemoteRepository> remoteRepositories,
+            int parallelism) {
+        return new PurgingSink(output, mode, enforceOrigin, dryRun, system, session, remoteRepositories, parallelism);
     }
 
     /**
@@ -86,31 +123,103 @@ public final class PurgingSink implements ArtifactSink {
         WHOLE
     }
 
+    /**
+     * The outcome of purge: what was (or in case of dry-run, would be) purged. All paths are absolute.
+     */
+    public static final class Plan {
+        private final Set<Artifact> artifacts = new HashSet<>();
+        private final TreeSet<Path> directories = new TreeSet<>();
+        private final TreeMap<Path, Long> files = new TreeMap<>();
+        private final TreeMap<Path, List<String>> registrarEntries = new TreeMap<>();
+        private final TreeSet<Path> metadata = new TreeSet<>();
+
+        private synchronized void merge(Plan other) {
+            artifacts.addAll(other.artifacts);
+            directories.addAll(other.directories);
+            files.putAll(other.files);
+            registrarEntries.putAll(other.registrarEntries);
+            metadata.addAll(other.metadata);
+        }
+
+        /**
+         * Artifacts that had any file purged.
+         */
+        public synchronized Set<Artifact> getArtifacts() {
+            return Collections.unmodifiableSet(new HashSet<>(artifacts));
+        }
+
+        /**
+         * Directories that are removed completely (mode {@link Mode#WHOLE} only).
+         */
+        public synchronized Set<Path> getDirectories() {
+            return Collections.unmodifiableSet(new TreeSet<>(directories));
+        }
+
+        /**
+         * Files that are deleted, with their sizes.
+         */
+        public synchronized Map<Path, Long> getFiles() {
+            return Collections.unmodifiableMap(new TreeMap<>(files));
+        }
+
+        /**
+         * Total size of deleted files.
+         */
+        public synchronized long getTotalSize() {
+            return files.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * Registrar files ({@code _remote.repositories}) with entries that are removed from them.
+         */
+        public synchronized Map<Path, List<String>> getRegistrarEntries() {
+            return Collections.unmodifiableMap(new TreeMap<>(registrarEntries));
+        }
+
+        /**
+         * Metadata files that are deleted; these are included in {@link #getFiles()} as well.
+         */
+        public synchronized Set<Path> getMetadata() {
+            return Collections.unmodifiableSet(new TreeSet<>(metadata));
+        }
+    }
+
     private final Output output;
     private final Mode mode;
     private final boolean enforceOrigin;
+    private final boolean dryRun;
     private final AtomicBoolean perform;
     private final RepositorySystem system;
     private final RepositorySystemSession session;
     private final List<RemoteRepository> remoteRepositories;
+    private final int parallelism;
     private final ArrayList<Artifact> artifacts;
     private final Predicate<Artifact> artifactMatcher;
+    private final Plan plan;
 
     private PurgingSink(
             Output output,
             Mode mode,
             boolean enforceOrigin,
+            boolean dryRun,
             RepositorySystem system,
             RepositorySystemSession session,
-            List<RemoteRepository> remoteRepositories) {
+            List<RemoteRepository> remoteRepositories,
+            int parallelism) {
         this.output = requireNonNull(output, "output");
         this.mode = requireNonNull(mode, "mode");
         this.enforceOrigin = enforceOrigin;
+        this.dryRun = dryRun;
         this.perform = new AtomicBoolean(true);
         this.system = requireNonNull(system, "system");
         this.session = requireNonNull(session, "session");
         this.remoteRepositories = requireNonNull(remoteRepositories, "remoteRepositories");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
         this.artifacts = new ArrayList<>();
+        this.plan = new Plan();
 
         // Note: delimiters, while MAY look superfluous, are actually required differentiate a.b:c.d and a.b.c:d
         switch (mode) {
@@ -129,8 +238,23 @@ public final class PurgingSink implements ArtifactSink {
         return session.getLocalRepository();
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Returns the purge plan; it is complete once this sink is closed.
+     */
+    public Plan getPlan() {
+        return plan;
+    }
+
     @Override
-    public void accept(Artifact artifact) {
+    public synchronized void accept(Artifact artifact) {
         requireNonNull(artifact, "artifact");
         if (artifactMatcher.test(artifact)) {
             requireNonNull(artifact.getFile(), "unresolved artifact");
@@ -151,150 +275,247 @@ public final class PurgingSink implements ArtifactSink {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         if (perform.get()) {
-            int artifactCount = 0;
             output.verbose(
-                    "Purging {} artifacts from local repository {}...", artifacts.size(), session.getLocalRepository());
-            for (Artifact artifact : artifacts) {
-                artifactCount += purgeArtifact(artifact) ? 1 : 0;
+                    "{} {} artifacts from local repository {}...",
+                    dryRun ? "Planning purge of" : "Purging",
+                    artifacts.size(),
+                    session.getLocalRepository());
+            Map<Path, DirectoryPurge> directories = group();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "toolbox-purger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                ArrayList<Future<?>> futures = new ArrayList<>(directories.size());
+                for (Map.Entry<Path, DirectoryPurge> directory : directories.entrySet()) {
+                    futures.add(executor.submit(() -> {
+                        plan.merge(purgeDirectory(directory.getKey(), directory.getValue()));
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while purging", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Purge failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            if (dryRun) {
+                for (Map.Entry<Path, Long> file : plan.getFiles().entrySet()) {
+                    output.verbose("  {} ({})", file.getKey(), humanReadableByteCountBin(file.getValue()));
+                }
+                for (Map.Entry<Path, List<String>> registrar :
+                        plan.getRegistrarEntries().entrySet()) {
+                    output.verbose("  {}: {}", registrar.getKey(), registrar.getValue());
+                }
+                output.normal(
+                        "Purge would delete {} files ({}) of {} artifacts in {} directories, remove {} registrar entries and {} metadata files",
+                        plan.getFiles().size(),
+                        humanReadableByteCountBin(plan.getTotalSize()),
+                        plan.getArtifacts().size(),
+                        directories.size(),
+                        plan.getRegistrarEntries().values().stream()
+                                .mapToInt(List::size)
+                                .sum(),
+                        plan.getMetadata().size());
+            } else {
+                output.normal(
+                        "Purged {} artifacts ({}) from {} directories of local repository...",
+                        plan.getArtifacts().size(),
+                        humanReadableByteCountBin(plan.getTotalSize()),
+                        directories.size());
             }
-            output.normal("Purged {} artifacts from local repository...", artifactCount);
         }
     }
 
-    private boolean purgeArtifact(Artifact artifact) throws IOException {
+    /**
+     * The work to be done in one directory.
+     */
+    private static final class DirectoryPurge {
+        /**
+         * File names (without sub-files) to be purged, mapped to artifacts they belong to.
+         */
+        private final LinkedHashMap<String, List<Artifact>> files = new LinkedHashMap<>();
+
+        /**
+         * Whether local metadata should be reset as well.
+         */
+        private boolean local;
+
+        private void add(Path path, Artifact artifact) {
+            files.computeIfAbsent(path.getFileName().toString(), k -> new ArrayList<>())
+                    .add(artifact);
+            local |= artifact.isSnapshot() && Objects.equals(artifact.getVersion(), artifact.getBaseVersion());
+        }
+    }
+
+    /**
+     * Groups accepted artifacts by directory they reside in (all possible locations, in case of mode
+     * {@link Mode#EXACT}).
+     */
+    private Map<Path, DirectoryPurge> group() {
+        Path basedir = session.getLocalRepository().getBasedir().toPath();
+        LinkedHashMap<Path, DirectoryPurge> directories = new LinkedHashMap<>();
+        for (Artifact artifact : artifacts) {
+            Path path = basedir.resolve(session.getLocalRepositoryManager().getPathForLocalArtifact(artifact));
+            directories
+                    .computeIfAbsent(path.getParent(), k -> new DirectoryPurge())
+                    .add(path, artifact);
+            if (mode == Mode.EXACT) {
+                for (RemoteRepository repository : remoteRepositories) {
+                    path = basedir.resolve(
+                            session.getLocalRepositoryManager().getPathForRemoteArtifact(artifact, repository, null));
+                    directories
+                            .computeIfAbsent(path.getParent(), k -> new DirectoryPurge())
+                            .add(path, artifact);
+                }
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Purges one directory (unless dry-run) and returns what was purged.
+     */
+    private Plan purgeDirectory(Path directory, DirectoryPurge purge) throws IOException {
+        Plan result = new Plan();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
         switch (mode) {
             case EXACT:
-                return purgeExact(artifact);
+                // maintain repository state
+                // purge artifact file and additional sub-files (hashes, signatures, lastUpdated...)
+                unregisterArtifacts(directory, purge.files.keySet(), result);
+                resetMetadata(directory, purge.local, result);
+                deleteFilesAndSubs(directory, purge, result);
+                break;
             case WHOLE:
-                return purgeGAV(artifact);
+                // purge artifact GAV directory (but watch out for subdirectories)
+                // no need to maintain anything as whole directory is gone
+                if (deleteDirectory(directory, result) != 0) {
+                    purge.files.values().forEach(result.artifacts::addAll);
+                }
+                break;
             default:
                 throw new IllegalStateException("unknown mode");
         }
+        return result;
     }
 
-    private boolean purgeExact(Artifact artifact) throws IOException {
-        // maintain repository state
-        // purge artifact file and additional sub-files (hashes, signatures, lastUpdated...)
-        int deleted = 0;
-        Path path = session.getLocalRepository()
-                .getBasedir()
-                .toPath()
-                .resolve(session.getLocalRepositoryManager().getPathForLocalArtifact(artifact));
-        if (Files.isDirectory(path.getParent())) {
-            unregisterArtifact(path);
-            resetMetadata(
-                    path.getParent(),
-                    artifact.isSnapshot() && Objects.equals(artifact.getVersion(), artifact.getBaseVersion()));
-            deleted = deleteFileAndSubs(session.getLocalRepository()
-                    .getBasedir()
-                    .toPath()
-                    .resolve(session.getLocalRepositoryManager().getPathForLocalArtifact(artifact)));
-        }
-        for (RemoteRepository repository : remoteRepositories) {
-            path = session.getLocalRepository()
-                    .getBasedir()
-                    .toPath()
-                    .resolve(session.getLocalRepositoryManager().getPathForRemoteArtifact(artifact, repository, null));
-            if (Files.isDirectory(path.getParent())) {
-                unregisterArtifact(path);
-                resetMetadata(
-                        path.getParent(),
-                        artifact.isSnapshot() && Objects.equals(artifact.getVersion(), artifact.getBaseVersion()));
-                deleted += deleteFileAndSubs(session.getLocalRepository()
-                        .getBasedir()
-                        .toPath()
-                        .resolve(session.getLocalRepositoryManager().getPathForLocalArtifact(artifact)));
-            }
-        }
-        return deleted != 0;
+    private static boolean isMetadata(String name) {
+        return (name.startsWith("maven-metadata-") && name.endsWith(".xml"))
+                || "resolver-status.properties".equals(name);
     }
 
-    private boolean purgeGAV(Artifact artifact) throws IOException {
-        // purge artifact GAV directory (but watch out for subdirectories)
-        // no need to maintain anything as whole directory is gone
-        return deleteDirectory(session.getLocalRepository()
-                        .getBasedir()
-                        .toPath()
-                        .resolve(session.getLocalRepositoryManager().getPathForLocalArtifact(artifact))
-                        .getParent())
-                != 0;
-    }
-
-    private void unregisterArtifact(Path artifactPath) throws IOException {
+    private void unregisterArtifacts(Path directory, Set<String> names, Plan result) throws IOException {
         // unregister
-        Path registrarPath = artifactPath.getParent().resolve("_remote.repositories");
+        Path registrarPath = directory.resolve("_remote.repositories");
         if (Files.isRegularFile(registrarPath)) {
-            String keyPrefix = artifactPath.getFileName().toString() + ">";
             Properties registrar = new Properties();
             try (InputStream input = Files.newInputStream(registrarPath)) {
                 registrar.load(input);
             }
-            for (String key : new HashSet<>(registrar.stringPropertyNames())) {
-                if (key.startsWith(keyPrefix)) {
+            ArrayList<String> removed = new ArrayList<>();
+            for (String key : new TreeSet<>(registrar.stringPropertyNames())) {
+                int idx = key.indexOf('>');
+                if (idx > 0 && names.contains(key.substring(0, idx))) {
                     registrar.remove(key);
+                    removed.add(key);
                 }
             }
-            try (OutputStream output = Files.newOutputStream(registrarPath)) {
-                registrar.store(
-                        output,
-                        "#NOTE: This is a Maven Resolver internal implementation file, its format can be changed without prior notice.");
+            if (!removed.isEmpty()) {
+                result.registrarEntries.put(registrarPath, removed);
+                if (!dryRun) {
+                    try (OutputStream output = Files.newOutputStream(registrarPath)) {
+                        registrar.store(
+                                output,
+                                "#NOTE: This is a Maven Resolver internal implementation file, its format can be changed without prior notice.");
+                    }
+                }
             }
         }
     }
 
-    private void resetMetadata(Path directory, boolean local) throws IOException {
+    private void resetMetadata(Path directory, boolean local, Plan result) throws IOException {
         // delete all "maven-metadata-*.xml" except "maven-metadata-local.xml" if local == false
+        // delete "resolver-status.properties"
         try (DirectoryStream<Path> toBeDeleted = Files.newDirectoryStream(
-                directory,
-                p -> Files.exists(p)
-                        && !Files.isDirectory(p)
-                        && p.getFileName().startsWith("maven-metadata-")
-                        && p.getFileName().endsWith(".xml"))) {
+                directory, p -> isMetadata(p.getFileName().toString()) && Files.isRegularFile(p))) {
             for (Path p : toBeDeleted) {
                 if (!local && "maven-metadata-local.xml".equals(p.getFileName().toString())) {
                     continue;
                 }
-                Files.delete(p);
+                delete(p, result);
+                result.metadata.add(p);
             }
         }
-
-        // delete "resolver-status.properties"
-        Files.deleteIfExists(directory.resolve("resolver-status.properties"));
     }
 
-    private int deleteFileAndSubs(Path path) throws IOException {
-        int deleted = 0;
-        if (Files.isDirectory(path.getParent())) {
-            try (DirectoryStream<Path> toBeDeleted = Files.newDirectoryStream(
-                    path.getParent(), p -> Files.exists(p) && !Files.isDirectory(p) && p.startsWith(path))) {
-                for (Path p : toBeDeleted) {
-                    Files.delete(p);
-                    deleted++;
+    /**
+     * Deletes files of artifacts and their sub-files (i.e. "artifact-1.0.jar.sha1") with single directory listing.
+     */
+    private void deleteFilesAndSubs(Path directory, DirectoryPurge purge, Plan result) throws IOException {
+        try (DirectoryStream<Path> candidates = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path p : candidates) {
+                String name = p.getFileName().toString();
+                for (Map.Entry<String, List<Artifact>> file : purge.files.entrySet()) {
+                    String prefix = file.getKey();
+                    if (name.equals(prefix) || name.startsWith(prefix + ".")) {
+                        delete(p, result);
+                        result.artifacts.addAll(file.getValue());
+                        break;
+                    }
                 }
             }
         }
-        return deleted;
     }
 
-    private int deleteDirectory(Path directory) throws IOException {
+    private int deleteDirectory(Path directory, Plan result) throws IOException {
         int found = 0;
         int deleted = 0;
-        if (Files.isDirectory(directory)) {
-            try (DirectoryStream<Path> toBeDeleted = Files.newDirectoryStream(directory)) {
-                for (Path p : toBeDeleted) {
-                    found++;
-                    if (!Files.isDirectory(p)) {
-                        Files.delete(p);
-                        deleted++;
+        try (DirectoryStream<Path> toBeDeleted = Files.newDirectoryStream(directory)) {
+            for (Path p : toBeDeleted) {
+                found++;
+                if (!Files.isDirectory(p)) {
+                    String name = p.getFileName().toString();
+                    if ("_remote.repositories".equals(name)) {
+                        Properties registrar = new Properties();
+                        try (InputStream input = Files.newInputStream(p)) {
+                            registrar.load(input);
+                        }
+                        result.registrarEntries.put(p, new ArrayList<>(new TreeSet<>(registrar.stringPropertyNames())));
+                    } else if (isMetadata(name)) {
+                        result.metadata.add(p);
                     }
+                    delete(p, result);
+                    deleted++;
                 }
             }
-            if (found == deleted) {
+        }
+        if (found == deleted) {
+            result.directories.add(directory);
+            if (!dryRun) {
                 Files.delete(directory);
             }
         }
         return deleted;
     }
+
+    private void delete(Path file, Plan result) throws IOException {
+        result.files.put(file, Files.size(file));
+        if (!dryRun) {
+            Files.delete(file);
+        }
+    }
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Construction to accept collection of artifacts (JARs) and repackage their entries into one single JAR.
+ * <p>
+ * Entries are copied raw, in their compressed form, so no inflate/deflate happens: throughput is bounded by disk.
+ * Entries may be filtered using include and exclude globs (where {@code *} matches within path segment, {@code **}
+ * matches across segments and {@code ?} matches one character). Duplicate entries are resolved as "first wins",
+ * except for entries matching merge globs, that are concatenated (and hence are the only ones being recompressed).
+ * Duplicates having different content are reported as conflicts (except for manifest, where first one wins
+ * silently).
+ * <p>
+ * By default, signature files are excluded (as they would be invalid in repackaged JAR) and service provider
+ * files in {@code META-INF/services} are merged.
+ */
+public final class RepackagingSink implements ArtifactSink {
+    /**
+     * Default excludes: JAR signature files.
+     */
+    public static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(
+            Arrays.asList("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA", "META-INF/*.EC"));
+
+    /**
+     * Default merges: service provider files.
+     */
+    public static final List<String> DEFAULT_MERGES = Collections.singletonList("META-INF/services/**");
+
+    /**
+     * Creates repackaging sink, that accepts all artifacts, and repackages them into given JAR.
+     *
+     * @param output The output.
+     * @param path The JAR file to create.
+     * @param includes The entry globs to include, if empty, all entries are included.
+     * @param excludes The entry globs to exclude, in addition to {@link #DEFAULT_EXCLUDES}.
+     * @param merges The entry globs to merge, in addition to {@link #DEFAULT_MERGES}.
+     */
+    public static RepackagingSink repackage(
+            Output output,
+            Path path,
+            Collection<String> includes,
+            Collection<String> excludes,
+            Collection<String> merges)
+            throws IOException {
+        ArrayList<String> allExcludes = new ArrayList<>(DEFAULT_EXCLUDES);
+        allExcludes.addAll(excludes);
+        ArrayList<String> allMerges = new ArrayList<>(DEFAULT_MERGES);
+        allMerges.addAll(merges);
+        return new RepackagingSink(
+                output,
+                path,
+                ArtifactMatcher.unique(),
+                globs(includes, true),
+                globs(allExcludes, false),
+                globs(allMerges, false));
+    }
+
+    private final Output output;
+    private final Path jar;
+    private final Path tmpJar;
+    private final Predicate<Artifact> artifactMatcher;
+    private final Predicate<String> includes;
+    private final Predicate<String> excludes;
+    private final Predicate<String> merges;
+    private final ZipArchiveOutputStream zip;
+    private final HashMap<String, Written> writtenEntries;
+    private final LinkedHashMap<String, ByteArrayOutputStream> mergedEntries;
+    private final ArrayList<String> conflicts;
+    private boolean cleanedUp;
+
+    private static final class Written {
+        private final String source;
+        private final long crc;
+        private final long size;
+
+        private Written(String source, long crc, long size) {
+            this.source = source;
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+
+    private RepackagingSink(
+            Output output,
+            Path jar,
+            Predicate<Artifact> artifactMatcher,
+            Predicate<String> includes,
+            Predicate<String> excludes,
+            Predicate<String> merges)
+            throws IOException {
+        this.output = requireNonNull(output, "output");
+        this.jar = requireNonNull(jar, "jar").toAbsolutePath();
+        if (Files.isDirectory(this.jar)) {
+            throw new IllegalArgumentException("jar must not be a directory");
+        }
+        this.artifactMatcher = requireNonNull(artifactMatcher, "artifactMatcher");
+        this.includes = requireNonNull(includes, "includes");
+        this.excludes = requireNonNull(excludes, "excludes");
+        this.merges = requireNonNull(merges, "merges");
+        this.writtenEntries = new HashMap<>();
+        this.mergedEntries = new LinkedHashMap<>();
+        this.conflicts = new ArrayList<>();
+
+        Files.createDirectories(this.jar.getParent());
+        this.tmpJar = TempFiles.createSibling(this.jar);
+        this.zip = new ZipArchiveOutputStream(tmpJar);
+        this.cleanedUp = false;
+    }
+
+    public Path getJar() {
+        return jar;
+    }
+
+    @Override
+    public synchronized void accept(Artifact artifact) throws IOException {
+        requireNonNull(artifact, "artifact");
+        output.verbose("Accept artifact {}", artifact);
+        if (artifactMatcher.test(artifact)) {
+            output.verbose("  matched");
+            String source = ArtifactIdUtils.toId(artifact);
+            try (ZipFile zipFile =
+                    ZipFile.builder().setPath(artifact.getFile().toPath()).get()) {
+                Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+                while (entries.hasMoreElements()) {
+                    ZipArchiveEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (!includes.test(name) || excludes.test(name)) {
+                        output.verbose("  skipped {}", name);
+                    } else if (!entry.isDirectory() && merges.test(name)) {
+                        ByteArrayOutputStream merged =
+                                mergedEntries.computeIfAbsent(name, k -> new ByteArrayOutputStream());
+                        try (InputStream is = zipFile.getInputStream(entry)) {
+                            is.transferTo(merged);
+                        }
+                        merged.write('\n');
+                    } else {
+                        Written written = writtenEntries.get(name);
+                        if (written == null) {
+                            zip.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+                            writtenEntries.put(name, new Written(source, entry.getCrc(), entry.getSize()));
+                        } else if (!entry.isDirectory()
+                                && !"META-INF/MANIFEST.MF".equals(name)
+                                && (written.crc != entry.getCrc() || written.size != entry.getSize())) {
+                            conflicts.add(name + " (from " + written.source + " kept, from " + source + " dropped)");
+                        }
+                    }
+                }
+            }
+        } else {
+            output.verbose("  not matched");
+        }
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        output.error("Cleaning up: {}", jar);
+        cleanedUp = true;
+        try {
+            zip.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+        try {
+            Files.deleteIfExists(tmpJar);
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cleanedUp) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, ByteArrayOutputStream> merged : mergedEntries.entrySet()) {
+                zip.putArchiveEntry(new ZipArchiveEntry(merged.getKey()));
+                merged.getValue().writeTo(zip);
+                zip.closeArchiveEntry();
+            }
+            zip.close();
+            Files.move(tmpJar, jar, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpJar);
+        }
+        output.normal(
+                "Repackaged {} entries into {} ({} merged, {} conflicts)",
+                writtenEntries.size() + mergedEntries.size(),
+                jar,
+                mergedEntries.size(),
+                conflicts.size());
+        for (String conflict : conflicts) {
+            output.warn("  Conflict: {}", conflict);
+        }
+    }
+
+    public List<String> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    private static Predicate<String> globs(Collection<String> globs, boolean matchIfEmpty) {
+        if (globs.isEmpty()) {
+            return s -> matchIfEmpty;
+        }
+        List<Predicate<String>> predicates =
+                globs.stream().map(RepackagingSink::glob).collect(Collectors.toList());
+        return s -> predicates.stream().anyMatch(p -> p.test(s));
+    }
+
+    /**
+     * Compiles entry name glob: {@code **} matches across path segments, {@code *} matches within segment and
+     * {@code ?} matches single character.
+     */
+    static Predicate<String> glob(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() * 2);
+        for (int i = 0; i < glob.length(); i++) {
+            char ch = glob.charAt(i);
+            if (ch == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (ch == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(ch)));
+            }
+        }
+        return Pattern.compile(regex.toString()).asMatchPredicate();
+    }
+}
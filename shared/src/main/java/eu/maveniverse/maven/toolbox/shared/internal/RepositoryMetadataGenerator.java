@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+
+/**
+ * Generates {@code maven-metadata.xml} files and checksum sidecar files for a directory in "remote repository" layout,
+ * so it can be served as remote repository or used as {@code file://} mirror.
+ * <p>
+ * GA level metadata lists versions of artifact, G level metadata lists plugins (with their goal prefix, taken from
+ * plugin descriptor) of group, and is generated only for groups having plugins. Existing metadata is merged with.
+ * Metadata files are generated first, then all files are checksummed, both in parallel.
+ */
+final class RepositoryMetadataGenerator {
+    private static final String MAVEN_METADATA_XML = "maven-metadata.xml";
+
+    private static final String PLUGIN_XML = "META-INF/maven/plugin.xml";
+
+    private static final DateTimeFormatter LAST_UPDATED = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final Path root;
+    private final List<String> algorithms;
+    private final int threads;
+    private final VersionScheme versionScheme;
+    private final String lastUpdated;
+
+    RepositoryMetadataGenerator(Path root, List<String> algorithms, int threads) {
+        this.root = requireNonNull(root, "root");
+        this.algorithms = requireNonNull(algorithms, "algorithms");
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+        this.versionScheme = new GenericVersionScheme();
+        this.lastUpdated = LAST_UPDATED.format(ZonedDateTime.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Generates metadata and checksums.
+     *
+     * @param versions The {@code groupId:artifactId} to versions map, of artifacts in repository.
+     * @param plugins The {@code groupId:artifactId} to main JAR map, of artifacts that may be Maven Plugins.
+     * @param files The artifact files in repository to checksum.
+     * @return The generated metadata and checksum files.
+     */
+    List<Path> generate(Map<String, Set<String>> versions, Map<String, Path> plugins, Collection<Path> files)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "toolbox-repository-metadata");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ArrayList<Future<Path>> metadata = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : versions.entrySet()) {
+                metadata.add(executor.submit(() -> artifactMetadata(entry.getKey(), entry.getValue())));
+            }
+            HashMap<String, Map<String, Path>> groups = new HashMap<>();
+            plugins.forEach((ga, jar) -> groups.computeIfAbsent(ga.substring(0, ga.indexOf(':')), k -> new HashMap<>())
+                    .put(ga.substring(ga.indexOf(':') + 1), jar));
+            for (Map.Entry<String, Map<String, Path>> entry : groups.entrySet()) {
+                metadata.add(executor.submit(() -> groupMetadata(entry.getKey(), entry.getValue())));
+            }
+            ArrayList<Path> result = new ArrayList<>();
+            ArrayList<Path> checksummed = new ArrayList<>(files);
+            for (Future<Path> future : metadata) {
+                Path path = get(future);
+                if (path != null) {
+                    result.add(path);
+                    checksummed.add(path);
+                }
+            }
+            ArrayList<Future<List<Path>>> checksums = new ArrayList<>(checksummed.size());
+            for (Path file : checksummed) {
+                checksums.add(executor.submit(() -> checksums(file)));
+            }
+            for (Future<List<Path>> future : checksums) {
+                result.addAll(get(future));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Path artifactMetadata(String ga, Set<String> versions) throws IOException {
+        String groupId = ga.substring(0, ga.indexOf(':'));
+        String artifactId = ga.substring(ga.indexOf(':') + 1);
+        Path file = root.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(MAVEN_METADATA_XML);
+        Metadata metadata = read(file);
+        metadata.setGroupId(groupId);
+        metadata.setArtifactId(artifactId);
+        Versioning versioning = metadata.getVersioning() != null ? metadata.getVersioning() : new Versioning();
+        ArrayList<Version> parsed = new ArrayList<>();
+        for (String version : versioning.getVersions()) {
+            parsed.add(parse(version));
+        }
+        for (String version : versions) {
+            Version v = parse(version);
+            if (!parsed.contains(v)) {
+                parsed.add(v);
+            }
+        }
+        Collections.sort(parsed);
+        versioning.getVersions().clear();
+        for (Version version : parsed) {
+            versioning.addVersion(version.toString());
+            versioning.setLatest(version.toString());
+            if (!version.toString().endsWith("-SNAPSHOT")) {
+                versioning.setRelease(version.toString());
+            }
+        }
+        versioning.setLastUpdated(lastUpdated);
+        metadata.setVersioning(versioning);
+        write(file, metadata);
+        return file;
+    }
+
+    private Path groupMetadata(String groupId, Map<String, Path> jars) throws IOException {
+        ArrayList<Plugin> plugins = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : jars.entrySet()) {
+            Plugin plugin = plugin(entry.getKey(), entry.getValue());
+            if (plugin != null) {
+                plugins.add(plugin);
+            }
+        }
+        if (plugins.isEmpty()) {
+            return null;
+        }
+        Path file = root.resolve(groupId.replace('.', '/')).resolve(MAVEN_METADATA_XML);
+        Metadata metadata = read(file);
+        for (Plugin plugin : plugins) {
+            metadata.getPlugins().removeIf(p -> plugin.getArtifactId().equals(p.getArtifactId()));
+            metadata.addPlugin(plugin);
+        }
+        write(file, metadata);
+        return file;
+    }
+
+    /**
+     * Returns plugin entry out of plugin descriptor in JAR, or {@code null} if JAR is not a Maven Plugin.
+     */
+    private static Plugin plugin(String artifactId, Path jar) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            ZipEntry entry = zipFile.getEntry(PLUGIN_XML);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                Xpp3Dom descriptor = Xpp3DomBuilder.build(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                Xpp3Dom goalPrefix = descriptor.getChild("goalPrefix");
+                if (goalPrefix == null) {
+                    return null;
+                }
+                Xpp3Dom name = descriptor.getChild("name");
+                Plugin plugin = new Plugin();
+                plugin.setArtifactId(artifactId);
+                plugin.setPrefix(goalPrefix.getValue());
+                plugin.setName(name != null ? name.getValue() : artifactId);
+                return plugin;
+            }
+        } catch (ZipException e) {
+            // not a JAR
+            return null;
+        } catch (XmlPullParserException e) {
+            throw new IOException("Invalid plugin descriptor in " + jar, e);
+        }
+    }
+
+    private List<Path> checksums(Path file) throws IOException {
+        ArrayList<Path> result = new ArrayList<>(algorithms.size());
+        for (Map.Entry<String, String> checksum :
+                Checksums.calculate(file, algorithms).entrySet()) {
+            Path sidecar = file.resolveSibling(file.getFileName() + "." + Checksums.extension(checksum.getKey()));
+            Path tmp = TempFiles.createSibling(sidecar);
+            try {
+                Files.writeString(tmp, checksum.getValue(), StandardCharsets.UTF_8);
+                Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            result.add(sidecar);
+        }
+        return result;
+    }
+
+    private Version parse(String version) {
+        try {
+            return versionScheme.parseVersion(version);
+        } catch (InvalidVersionSpecificationException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Metadata read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return new Metadata();
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return new MetadataXpp3Reader().read(inputStream, false);
+        } catch (XmlPullParserException e) {
+            throw new IOException("Invalid metadata " + file, e);
+        }
+    }
+
+    /**
+     * Writes metadata via sibling temporary file that is atomically moved in place, so readers (ie. when repository is
+     * served while being updated) never see partially written metadata.
+     */
+    private static void write(Path file, Metadata metadata) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = TempFiles.createSibling(file);
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+                new MetadataXpp3Writer().write(outputStream, metadata);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating repository metadata", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Repository metadata generation failed", e.getCause());
+        }
+    }
+}
@@ -13,14 +13,20 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
  * Simple spec parser. Parses input string, and produces a tree of {@link Op} and {@link Literal}s. Root must
  * always be {@link Op}. This tree can be transformed into something then...
+ * <p>
+ * Trees are immutable, and parsed trees are cached, as are objects built of them using
+ * {@link #build(Class, String, Map, Supplier, Function)}, as same specs tend to be used over and over again.
  */
 public final class SpecParser {
     private SpecParser() {}
@@ -56,6 +62,7 @@ public final class SpecParser {
     public abstract static class Builder implements Visitor {
         protected final ArrayList<Object> params = new ArrayList<>();
         protected final Map<String, ?> properties;
+        protected boolean stateful;
 
         public Builder() {
             this.properties = null;
@@ -65,6 +72,14 @@ public final class SpecParser {
             this.properties = new HashMap<>(properties);
         }
 
+        /**
+         * Returns {@code true} if built object carries state (ie. remembers what it has seen), hence it must not be
+         * shared and cached.
+         */
+        public boolean isStateful() {
+            return stateful;
+        }
+
         @Override
         public boolean visitEnter(SpecParser.Node node) {
             return true;
@@ -142,19 +157,17 @@ public final class SpecParser {
         private final String value;
         private final List<Node> children;
 
-        private Node(String value) {
+        private Node(String value, List<Node> children) {
             this.value = value;
-            this.children = new ArrayList<>();
+            this.children = children.isEmpty()
+                    ? Collections.emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(children));
         }
 
         public String getValue() {
             return value;
         }
 
-        public void addChild(Node node) {
-            children.add(node);
-        }
-
         public List<Node> getChildren() {
             return children;
         }
@@ -174,42 +187,120 @@ public final class SpecParser {
 
     public abstract static class Literal extends Node {
         private Literal(String value) {
+            super(value, Collections.emptyList());
+        }
+    }
+
+    public static class StringLiteral extends Literal {
+        StringLiteral(String value) {
             super(value);
         }
+    }
 
-        @Override
-        public void addChild(Node node) {
-            throw new IllegalStateException("string literal is leaf");
+    public static final class Op extends Node {
+        Op(String name, List<Node> children) {
+            super(name, children);
         }
+    }
 
-        @Override
-        public List<Node> getChildren() {
-            return Collections.emptyList();
+    /**
+     * Op being parsed, as nodes are immutable, op is created once all its children are known.
+     */
+    private static final class OpFrame {
+        private final String name;
+        private final ArrayList<Node> children = new ArrayList<>();
+
+        private OpFrame(String name) {
+            this.name = name;
         }
     }
 
-    public static class StringLiteral extends Literal {
-        StringLiteral(String value) {
-            super(value);
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, Op> PARSED = lru(CACHE_SIZE);
+
+    private static final Map<List<Object>, Object> BUILT = lru(CACHE_SIZE);
+
+    private static <K, V> Map<K, V> lru(int maxSize) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Builds object out of spec, or returns cached one built from same spec and same values of properties the spec
+     * references, if any. Objects reported {@link Builder#isStateful() stateful} by their builder are not cached, as
+     * cached objects are shared.
+     */
+    public static <T, B extends Builder> T build(
+            Class<T> type, String spec, Map<String, ?> properties, Supplier<B> builder, Function<B, T> build) {
+        requireNonNull(type, "type");
+        requireNonNull(builder, "builder");
+        requireNonNull(build, "build");
+        Op root = parse(spec);
+        ArrayList<Object> key = new ArrayList<>();
+        key.add(type);
+        key.add(spec);
+        for (String reference : references(root, new ArrayList<>())) {
+            key.add(properties != null ? properties.get(reference) : null);
+        }
+        synchronized (BUILT) {
+            Object built = BUILT.get(key);
+            if (built != null) {
+                return type.cast(built);
+            }
         }
+        B b = builder.get();
+        root.accept(b);
+        T result = build.apply(b);
+        if (!b.isStateful()) {
+            synchronized (BUILT) {
+                BUILT.put(key, result);
+            }
+        }
+        return result;
     }
 
-    public static final class Op extends Node {
-        Op(String name) {
-            super(name);
+    private static List<String> references(Node node, List<String> result) {
+        String value = node.getValue();
+        if (node instanceof Literal && value.startsWith("${") && value.endsWith("}")) {
+            result.add(value.substring(2, value.length() - 1));
+        }
+        for (Node child : node.getChildren()) {
+            references(child, result);
         }
+        return result;
     }
 
     /**
      * Spec parsing: spec may be in form of "aaa" when it is string literal, or "aaa()" when it is a function. The
      * spec expression MUST start with function. A function may be {@code 0..n} arguments, that may be string literals
-     * or other ops.
+     * or other ops. String literals containing other characters (ie. regular expressions) may be quoted with single
+     * or double quotes, and quote character within them is doubled, like {@code regex('a|b')}.
      */
     public static Op parse(String spec) {
         requireNonNull(spec);
+        synchronized (PARSED) {
+            Op root = PARSED.get(spec);
+            if (root != null) {
+                return root;
+            }
+        }
+        Op root = doParse(spec);
+        synchronized (PARSED) {
+            PARSED.put(spec, root);
+        }
+        return root;
+    }
+
+    private static Op doParse(String spec) {
         Op root = null;
-        ArrayDeque<Node> path = new ArrayDeque<>();
-        String value = "";
+        ArrayDeque<OpFrame> path = new ArrayDeque<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
         boolean wasComma = false;
         for (int idx = 0; idx < spec.length(); idx++) {
             char ch = spec.charAt(idx);
@@ -217,49 +308,59 @@ public final class SpecParser {
                 if (Character.isAlphabetic(ch)
                         || Character.isDigit(ch)
                         || '*' == ch
+                        || '?' == ch
                         || ':' == ch
                         || '.' == ch
                         || '-' == ch
+                        || '_' == ch
                         || '/' == ch
                         || '\\' == ch
                         || '$' == ch
                         || '{' == ch
-                        || '}' == ch) {
-                    value += ch;
+                        || '}' == ch
+                        || '[' == ch
+                        || ']' == ch) {
+                    value.append(ch);
+                } else if ('"' == ch || '\'' == ch) {
+                    idx = quoted(spec, idx, value);
+                    quoted = true;
                 } else if ('(' == ch) {
-                    Op op = new Op(value);
-                    if (root == null) {
-                        root = op;
+                    if (root != null) {
+                        throw new IllegalArgumentException("invalid spec string");
                     }
-                    value = "";
-                    if (!path.isEmpty()) {
-                        path.peek().addChild(op);
+                    if (quoted) {
+                        throw new IllegalArgumentException("quoted literal cannot be op name");
                     }
+                    path.push(new OpFrame(value.toString()));
+                    value.setLength(0);
                     wasComma = false;
-                    path.push(op);
                 } else if (')' == ch) {
-                    if (!value.isEmpty()) {
-                        Literal literal = new StringLiteral(value);
-                        value = "";
-                        if (!path.isEmpty()) {
-                            path.peek().addChild(literal);
-                        } else {
-                            throw new IllegalArgumentException("misplaced closing braces");
-                        }
+                    if (path.isEmpty()) {
+                        throw new IllegalArgumentException("misplaced closing braces");
+                    }
+                    if (value.length() > 0 || quoted) {
+                        path.peek().children.add(new StringLiteral(value.toString()));
+                        value.setLength(0);
+                        quoted = false;
                     } else if (wasComma) {
                         throw new IllegalArgumentException("misplaced comma");
                     }
                     wasComma = false;
-                    path.pop();
+                    OpFrame frame = path.pop();
+                    Op op = new Op(frame.name, frame.children);
+                    if (path.isEmpty()) {
+                        root = op;
+                    } else {
+                        path.peek().children.add(op);
+                    }
                 } else if (',' == ch) {
-                    if (!value.isEmpty()) {
-                        Literal literal = new StringLiteral(value);
-                        value = "";
-                        if (!path.isEmpty()) {
-                            path.peek().addChild(literal);
-                        } else {
+                    if (value.length() > 0 || quoted) {
+                        if (path.isEmpty()) {
                             throw new IllegalArgumentException("misplaced comma");
                         }
+                        path.peek().children.add(new StringLiteral(value.toString()));
+                        value.setLength(0);
+                        quoted = false;
                     } else if (wasComma) {
                         throw new IllegalArgumentException("misplaced comma");
                     }
@@ -269,9 +370,31 @@ public final class SpecParser {
                 }
             }
         }
-        if (root == null || !path.isEmpty()) {
+        if (root == null || !path.isEmpty() || value.length() > 0 || quoted) {
             throw new IllegalArgumentException("invalid spec string");
         }
         return root;
     }
+
+    /**
+     * Appends content of quoted literal starting at given index to value, returns index of closing quote. Within
+     * quotes, all characters are taken literally, and the quote character itself is written doubled.
+     */
+    private static int quoted(String spec, int start, StringBuilder value) {
+        char quote = spec.charAt(start);
+        for (int idx = start + 1; idx < spec.length(); idx++) {
+            char ch = spec.charAt(idx);
+            if (ch == quote) {
+                if (idx + 1 < spec.length() && spec.charAt(idx + 1) == quote) {
+                    value.append(quote);
+                    idx++;
+                } else {
+                    return idx;
+                }
+            } else {
+                value.append(ch);
+            }
+        }
+        throw new IllegalArgumentException("unclosed quote");
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary sibling directory of a target directory, that is published in place of target with single atomic rename.
+ * This makes consumers never see partial state of the target. Discarding it is a recursive delete of the staging
+ * directory alone.
+ * <p>
+ * Target directory must not exist, or must be empty, as atomic rename cannot replace a non-empty directory.
+ */
+final class StagingDirectory {
+    private static final String SUFFIX = ".staging";
+
+    /**
+     * Creates staging directory for given target directory.
+     */
+    static StagingDirectory create(Path target) throws IOException {
+        return new StagingDirectory(target);
+    }
+
+    private final Path target;
+    private final Path staging;
+    private boolean done;
+
+    private StagingDirectory(Path target) throws IOException {
+        this.target = requireNonNull(target, "target").toAbsolutePath();
+        if (Files.exists(this.target) && !isEmptyDirectory(this.target)) {
+            throw new IllegalArgumentException("staged target directory must not exist, or must be an empty directory");
+        }
+        Files.createDirectories(this.target.getParent());
+        this.staging = TempFiles.createSiblingDirectory(this.target, SUFFIX);
+        this.done = false;
+    }
+
+    private static boolean isEmptyDirectory(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return false;
+        }
+        try (Stream<Path> stream = Files.list(path)) {
+            return !stream.findAny().isPresent();
+        }
+    }
+
+    /**
+     * The target directory, that will appear once this instance is published.
+     */
+    Path getTarget() {
+        return target;
+    }
+
+    /**
+     * The staging directory, where content should be written to.
+     */
+    Path getStaging() {
+        return staging;
+    }
+
+    /**
+     * Publishes staging directory as target directory, using atomic rename. If rename fails, staging directory is
+     * left in place, to be discarded.
+     */
+    synchronized void publish() throws IOException {
+        if (done) {
+            return;
+        }
+        if (isEmptyDirectory(target)) {
+            Files.delete(target);
+        }
+        Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        done = true;
+    }
+
+    /**
+     * Discards staging directory, deleting it recursively.
+     */
+    synchronized void discard() {
+        if (done) {
+            return;
+        }
+        done = true;
+        try (Stream<Path> stream = Files.walk(staging).sorted(Comparator.reverseOrder())) {
+            stream.forEach(f -> {
+                try {
+                    Files.delete(f);
+                } catch (IOException ex) {
+                    // ignore
+                }
+            });
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+}
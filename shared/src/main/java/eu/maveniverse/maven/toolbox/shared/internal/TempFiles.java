@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Temporary files written next to their target, and moved in place once complete.
+ */
+final class TempFiles {
+    private TempFiles() {}
+
+    /**
+     * Creates empty temporary file next to passed in target, having default permissions, as any other file created by
+     * the process. Unlike {@link Files#createTempFile(Path, String, String, FileAttribute[])}, that creates file
+     * accessible by owner only, and those permissions would be retained by target, once temporary file is moved in
+     * place.
+     */
+    static Path createSibling(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        while (true) {
+            Path tmp = parent.resolve(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(tmp);
+            } catch (FileAlreadyExistsException e) {
+                // try another name
+            }
+        }
+    }
+
+    /**
+     * Creates empty temporary hidden directory next to passed in target, having default permissions, for same reason
+     * as {@link #createSibling(Path)} does.
+     */
+    static Path createSiblingDirectory(Path target, String suffix) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        while (true) {
+            Path tmp = parent.resolve("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + suffix);
+            try {
+                return Files.createDirectory(tmp);
+            } catch (FileAlreadyExistsException e) {
+                // try another name
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Sink decorator that measures time spent in {@link #accept(Artifact)}, {@link #close()} and
+ * {@link #cleanup(Exception)} of delegate, bytes of accepted artifact files, and per-artifact accept latency.
+ * Collection of artifacts is always delegated one by one, to measure latencies.
+ * <p>
+ * Timed sink is silent, measurements are reported by {@link Reporting} sink, that reports all timed sinks of a
+ * (composed) sink, to {@link Output} and optionally to a tab separated file. Times are inclusive (ie. time of a
+ * "tee" includes times of sinks it delegates to), while "self" time excludes time of nested timed sinks. Note: with
+ * asynchronous delegate, accept time is the time needed to enqueue artifact.
+ * <p>
+ * Latencies are recorded into fixed size histogram of power of two buckets, each split into 8 linear sub-buckets, so
+ * memory use does not grow with count of artifacts, and latency percentiles are within 12.5% of exact value (maximum
+ * is exact).
+ */
+public final class TimedArtifactSink implements ArtifactSink {
+    /**
+     * Creates timed sink of given name.
+     */
+    public static TimedArtifactSink timed(String name, ArtifactSink delegate) {
+        return new TimedArtifactSink(name, delegate);
+    }
+
+    /**
+     * Creates reporting sink, that reports passed in timed sinks after delegate was closed or cleaned up, in passed in
+     * order. Names of nested timed sinks must be prefixed with name of their parent and {@code /}.
+     */
+    public static Reporting reporting(
+            Output output, Collection<TimedArtifactSink> timedSinks, Path report, ArtifactSink delegate) {
+        return new Reporting(output, timedSinks, report, delegate);
+    }
+
+    /**
+     * Returns the sink timed sinks wrap, or passed in sink, if not timed.
+     */
+    static ArtifactSink unwrap(ArtifactSink sink) {
+        while (sink instanceof TimedArtifactSink) {
+            sink = ((TimedArtifactSink) sink).getDelegate();
+        }
+        return sink;
+    }
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int LATENCY_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final ArtifactSink delegate;
+    private final LongAdder count;
+    private final LongAdder bytes;
+    private final LongAdder acceptNanos;
+    private final LongAdder closeNanos;
+    private final LongAdder cleanupNanos;
+    private final AtomicLongArray latencies;
+    private final LongAccumulator maxLatency;
+
+    private TimedArtifactSink(String name, ArtifactSink delegate) {
+        this.name = requireNonNull(name, "name");
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.count = new LongAdder();
+        this.bytes = new LongAdder();
+        this.acceptNanos = new LongAdder();
+        this.closeNanos = new LongAdder();
+        this.cleanupNanos = new LongAdder();
+        this.latencies = new AtomicLongArray(LATENCY_BUCKETS);
+        this.maxLatency = new LongAccumulator(Math::max, 0L);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ArtifactSink getDelegate() {
+        return delegate;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getAcceptNanos() {
+        return acceptNanos.sum();
+    }
+
+    public long getCloseNanos() {
+        return closeNanos.sum();
+    }
+
+    public long getCleanupNanos() {
+        return cleanupNanos.sum();
+    }
+
+    /**
+     * Returns accept latency percentile in nanoseconds, where {@code percentile} is between 0 and 100.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long[] counts = new long[LATENCY_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            counts[i] = latencies.get(i);
+            total += counts[i];
+        }
+        long max = maxLatency.get();
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            rank -= counts[i];
+            if (rank <= 0) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Values below {@link #SUB_BUCKETS} have own bucket, while others are bucketed by their highest bit and next
+     * {@link #SUB_BUCKET_BITS} bits.
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0L, nanos);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    @Override
+    public void accept(Artifact artifact) throws IOException {
+        if (artifact.getFile() != null && Files.isRegularFile(artifact.getFile().toPath())) {
+            bytes.add(Files.size(artifact.getFile().toPath()));
+        }
+        long started = System.nanoTime();
+        try {
+            delegate.accept(artifact);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            count.increment();
+            acceptNanos.add(elapsed);
+            latency(elapsed);
+        }
+    }
+
+    void latency(long nanos) {
+        latencies.incrementAndGet(bucket(nanos));
+        maxLatency.accumulate(nanos);
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        long started = System.nanoTime();
+        try {
+            delegate.cleanup(e);
+        } finally {
+            cleanupNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        long started = System.nanoTime();
+        try {
+            delegate.close();
+        } finally {
+            closeNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Sink that reports timed sinks once delegate was closed or cleaned up, whichever happens first.
+     */
+    public static final class Reporting extends ArtifactSinks.DelegatingArtifactSink {
+        private final Output output;
+        private final List<TimedArtifactSink> timedSinks;
+        private final Path report;
+        private final AtomicBoolean reported;
+
+        private Reporting(Output output, Collection<TimedArtifactSink> timedSinks, Path report, ArtifactSink delegate) {
+            super(delegate);
+            this.output = requireNonNull(output, "output");
+            this.timedSinks = Collections.unmodifiableList(new ArrayList<>(requireNonNull(timedSinks, "timedSinks")));
+            this.report = report != null ? report.toAbsolutePath() : null;
+            this.reported = new AtomicBoolean(false);
+        }
+
+        public List<TimedArtifactSink> getTimedSinks() {
+            return timedSinks;
+        }
+
+        public Path getReport() {
+            return report;
+        }
+
+        @Override
+        public void cleanup(Exception e) {
+            try {
+                super.cleanup(e);
+            } finally {
+                try {
+                    report();
+                } catch (IOException ex) {
+                    output.warn("Could not write timing report {}: {}", report, ex.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            try {
+                super.close();
+            } finally {
+                report();
+            }
+        }
+
+        private void report() throws IOException {
+            if (!reported.compareAndSet(false, true)) {
+                return;
+            }
+            List<String> lines = new ArrayList<>(timedSinks.size() + 1);
+            lines.add(
+                    "sink\tartifacts\tbytes\taccept_ms\tself_ms\tclose_ms\tcleanup_ms\tp50_us\tp90_us\tp99_us\tmax_us");
+            for (TimedArtifactSink timed : timedSinks) {
+                long acceptMillis = TimeUnit.NANOSECONDS.toMillis(timed.getAcceptNanos());
+                long selfMillis = TimeUnit.NANOSECONDS.toMillis(selfNanos(timed));
+                long closeMillis = TimeUnit.NANOSECONDS.toMillis(timed.getCloseNanos());
+                long cleanupMillis = TimeUnit.NANOSECONDS.toMillis(timed.getCleanupNanos());
+                long p50 = TimeUnit.NANOSECONDS.toMicros(timed.getLatencyPercentile(50));
+                long p90 = TimeUnit.NANOSECONDS.toMicros(timed.getLatencyPercentile(90));
+                long p99 = TimeUnit.NANOSECONDS.toMicros(timed.getLatencyPercentile(99));
+                long max = TimeUnit.NANOSECONDS.toMicros(timed.getLatencyPercentile(100));
+                output.normal(
+                        "  {}: {} artifacts ({}) accept {} ms (self {} ms, {}/s), close {} ms, cleanup {} ms; latency p50 {} us, p90 {} us, p99 {} us, max {} us",
+                        timed.getName(),
+                        timed.getCount(),
+                        humanReadableByteCountBin(timed.getBytes()),
+                        acceptMillis,
+                        selfMillis,
+                        humanReadableByteCountBin(timed.getBytes() * 1000L / Math.max(1L, acceptMillis)),
+                        closeMillis,
+                        cleanupMillis,
+                        p50,
+                        p90,
+                        p99,
+                        max);
+                lines.add(timed.getName() + "\t" + timed.getCount() + "\t" + timed.getBytes() + "\t" + acceptMillis
+                        + "\t" + selfMillis + "\t" + closeMillis + "\t" + cleanupMillis + "\t" + p50 + "\t" + p90
+                        + "\t" + p99 + "\t" + max);
+            }
+            if (report != null) {
+                Files.createDirectories(report.getParent());
+                Files.write(report, lines, StandardCharsets.UTF_8);
+            }
+        }
+
+        /**
+         * Accept time of timed sink, minus accept times of its direct timed children.
+         */
+        private long selfNanos(TimedArtifactSink timed) {
+            String prefix = timed.getName() + "/";
+            long result = timed.getAcceptNanos();
+            for (TimedArtifactSink child : timedSinks) {
+                if (child.getName().startsWith(prefix) && child.getName().indexOf('/', prefix.length()) == -1) {
+                    result -= child.getAcceptNanos();
+                }
+            }
+            return Math.max(0L, result);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -62,7 +63,6 @@ import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectResult;
-import org.eclipse.aether.deployment.DeployRequest;
 import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.graph.DependencyVisitor;
 import org.eclipse.aether.installation.InstallRequest;
@@ -114,6 +114,13 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
         return toolboxResolver;
     }
 
+    /**
+     * Returns the persistent module descriptor cache file, residing in Maven user home.
+     */
+    public Path getModuleDescriptorCache() {
+        return context.mavenUserHome().basedir().resolve(".toolbox").resolve("module-descriptors.tsv");
+    }
+
     protected Map<String, RemoteRepository> createKnownSearchRemoteRepositories() {
         Map<String, RemoteRepository> rr = new HashMap<>();
         rr.put(
@@ -255,11 +262,47 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
         return ArtifactSinks.build(context.repositorySystemSession().getConfigProperties(), output, this, spec);
     }
 
+    @Override
+    public ArtifactSink artifactSink(Output output, String spec, Path journal, boolean resume) throws IOException {
+        ArtifactSink sink = artifactSink(output, spec);
+        try {
+            return JournalingSink.journaling(output, context.basedir().resolve(journal), resume, sink);
+        } catch (IOException | RuntimeException e) {
+            sink.cleanup(e);
+            throw e;
+        }
+    }
+
     @Override
     public ResolutionRoot loadGav(String gav, Collection<String> boms) throws ArtifactDescriptorException {
         return toolboxResolver.loadGav(gav, boms);
     }
 
+    @Override
+    public boolean classIndex(Path index, Collection<String> names, Output output) throws IOException {
+        ClassIndex classIndex = ClassIndex.open(context.basedir().resolve(index));
+        if (names.isEmpty()) {
+            Map<String, List<String>> splitPackages = classIndex.getSplitPackages();
+            output.normal("Split packages: {}", splitPackages.size());
+            splitPackages.forEach((p, a) -> output.normal("{} -> {}", p, a));
+            return true;
+        }
+        boolean result = true;
+        for (String name : names) {
+            List<String> providers = classIndex.findClass(name);
+            if (providers.isEmpty()) {
+                providers = classIndex.findPackage(name);
+            }
+            if (providers.isEmpty()) {
+                output.warn("{} -> not found", name);
+                result = false;
+            } else {
+                output.normal("{} -> {}", name, providers);
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean classpath(ResolutionScope resolutionScope, ResolutionRoot resolutionRoot, Output output)
             throws Exception {
@@ -333,23 +376,55 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
 
     @Override
     public boolean deploy(
-            RemoteRepository remoteRepository, Supplier<Collection<Artifact>> artifactSupplier, Output output)
+            RemoteRepository remoteRepository,
+            Supplier<Collection<Artifact>> artifactSupplier,
+            boolean skipExisting,
+            int parallelism,
+            int retries,
+            Output output)
             throws Exception {
         Collection<Artifact> artifacts = artifactSupplier.get();
-        DeployRequest deployRequest = new DeployRequest();
-        deployRequest.setRepository(remoteRepository);
-        artifacts.forEach(deployRequest::addArtifact);
-        context.repositorySystem().deploy(context.repositorySystemSession(), deployRequest);
+        DeployingSink deployingSink = DeployingSink.deploying(
+                output,
+                context.repositorySystem(),
+                context.repositorySystemSession(),
+                remoteRepository,
+                parallelism,
+                retries,
+                skipExisting);
+        try (deployingSink) {
+            deployingSink.accept(artifacts);
+        }
         output.normal("");
-        output.normal("Deployed {} artifacts to {}", artifacts.size(), remoteRepository);
+        if (skipExisting) {
+            output.normal(
+                    "Deployed {} artifacts to {} (skipped {} already existing)",
+                    deployingSink.getDeployedCount(),
+                    remoteRepository,
+                    deployingSink.getSkippedCount());
+        } else {
+            output.normal("Deployed {} artifacts to {}", deployingSink.getDeployedCount(), remoteRepository);
+        }
         return !artifacts.isEmpty();
     }
 
     @Override
-    public boolean deployAllRecorded(RemoteRepository remoteRepository, boolean stopRecording, Output output)
+    public boolean deployAllRecorded(
+            RemoteRepository remoteRepository,
+            boolean stopRecording,
+            boolean skipExisting,
+            int parallelism,
+            int retries,
+            Output output)
             throws Exception {
         artifactRecorder.setActive(!stopRecording);
-        return deploy(remoteRepository, () -> new HashSet<>(artifactRecorder.getAllArtifacts()), output);
+        return deploy(
+                remoteRepository,
+                () -> new HashSet<>(artifactRecorder.getAllArtifacts()),
+                skipExisting,
+                parallelism,
+                retries,
+                output);
     }
 
     @Override
@@ -461,10 +536,11 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
             Output output)
             throws Exception {
         output.verbose("Resolving {}", artifacts);
-        ModuleDescriptorExtractingSink moduleDescriptorExtractingSink = new ModuleDescriptorExtractingSink(output);
+        ModuleDescriptorExtractingSink moduleDescriptorExtractingSink =
+                new ModuleDescriptorExtractingSink(output, getModuleDescriptorCache());
         ArtifactSinks.SizingArtifactSink sizingArtifactSink = ArtifactSinks.sizingArtifactSink(output);
         ArtifactSinks.CountingArtifactSink countingArtifactSink = ArtifactSinks.countingArtifactSink(output);
-        try (ArtifactSink artifactSink = ArtifactSinks.teeArtifactSink(
+        try (ArtifactSink artifactSink = ArtifactSinks.asyncTeeArtifactSink(
                 sink, moduleDescriptorExtractingSink, sizingArtifactSink, countingArtifactSink)) {
             List<ArtifactResult> artifactResults = toolboxResolver.resolveArtifacts(artifacts);
             artifactSink.accept(
@@ -514,7 +590,7 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
             throws Exception {
         ArtifactSinks.CountingArtifactSink totalCount = ArtifactSinks.countingArtifactSink(output);
         ArtifactSinks.SizingArtifactSink totalSize = ArtifactSinks.sizingArtifactSink(output);
-        try (ArtifactSink artifactSink = ArtifactSinks.teeArtifactSink(sink, totalSize, totalCount)) {
+        try (ArtifactSink artifactSink = ArtifactSinks.asyncTeeArtifactSink(sink, totalSize, totalCount)) {
             for (ResolutionRoot resolutionRoot : resolutionRoots) {
                 output.verbose("Resolving {}", resolutionRoot.getArtifact());
                 resolutionRoot = toolboxResolver.loadRoot(resolutionRoot);
@@ -530,10 +606,11 @@ public class ToolboxCommandoImpl implements ToolboxCommando {
                                 .subList(
                                         1, dependencyResult.getArtifactResults().size() - 1);
 
-                ModuleDescriptorExtractingSink moduleNameSource = new ModuleDescriptorExtractingSink(output);
+                ModuleDescriptorExtractingSink moduleNameSource =
+                        new ModuleDescriptorExtractingSink(output, getModuleDescriptorCache());
                 ArtifactSinks.CountingArtifactSink subCount = ArtifactSinks.countingArtifactSink(output);
                 ArtifactSinks.SizingArtifactSink subSize = ArtifactSinks.sizingArtifactSink(output);
-                try (ArtifactSink batchSink = ArtifactSinks.teeArtifactSink(
+                try (ArtifactSink batchSink = ArtifactSinks.asyncTeeArtifactSink(
                         nonClosingArtifactSink(artifactSink), moduleNameSource, subSize, subCount)) {
                     batchSink.accept(adjustedResults.stream()
                             .map(ArtifactResult::getArtifact)
@@ -21,7 +21,9 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.Comparator;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -35,9 +37,13 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
 
 /**
  * Construction to accept collection of artifacts and unpack them.
+ * <p>
+ * When staged, the sink unpacks into a {@link StagingDirectory}, so the target directory appears complete on close,
+ * or does not appear at all.
  */
 public final class UnpackSink implements ArtifactSink {
     /**
@@ -53,6 +59,48 @@ public final class UnpackSink implements ArtifactSink {
     public static UnpackSink unpack(
             Output output, Path path, Function<Artifact, String> artifactRootMapper, boolean allowEntryOverwrite)
             throws IOException {
+        return unpack(output, path, artifactRootMapper, allowEntryOverwrite, Mode.ALWAYS);
+    }
+
+    /**
+     * Creates plain unpack sink where unpacking happens according to supplied parameters and mode.
+     *
+     * @param output The output.
+     * @param path The root where unpack happens.
+     * @param artifactRootMapper The artifact root mapper, that decides where is root of unpacking for given artifact.
+     * @param allowEntryOverwrite Does this sink allow entry overlap (among unpacked archives) or not?
+     * @param mode The unpack mode, see {@link Mode}.
+     */
+    public static UnpackSink unpack(
+            Output output,
+            Path path,
+            Function<Artifact, String> artifactRootMapper,
+            boolean allowEntryOverwrite,
+            Mode mode)
+            throws IOException {
+        return unpack(output, path, artifactRootMapper, allowEntryOverwrite, mode, false);
+    }
+
+    /**
+     * Creates plain unpack sink where unpacking happens according to supplied parameters and mode, optionally staged:
+     * when staged, artifacts are unpacked into temporary sibling directory that is atomically renamed to {@code path}
+     * on {@link #close()}, hence {@code path} must not exist, or must be an empty directory.
+     *
+     * @param output The output.
+     * @param path The root where unpack happens.
+     * @param artifactRootMapper The artifact root mapper, that decides where is root of unpacking for given artifact.
+     * @param allowEntryOverwrite Does this sink allow entry overlap (among unpacked archives) or not?
+     * @param mode The unpack mode, see {@link Mode}.
+     * @param staged Should the sink unpack into staging directory, published on close.
+     */
+    public static UnpackSink unpack(
+            Output output,
+            Path path,
+            Function<Artifact, String> artifactRootMapper,
+            boolean allowEntryOverwrite,
+            Mode mode,
+            boolean staged)
+            throws IOException {
         return new UnpackSink(
                 output,
                 path,
@@ -62,11 +110,42 @@ public final class UnpackSink implements ArtifactSink {
                 artifactRootMapper,
                 Function.identity(),
                 true,
-                allowEntryOverwrite);
+                allowEntryOverwrite,
+                mode,
+                staged);
     }
 
+    /**
+     * Unpack mode.
+     */
+    public enum Mode {
+        /**
+         * Always unpack, no markers are written nor consulted.
+         */
+        ALWAYS,
+
+        /**
+         * Write a marker into each root, and skip unpacking of artifacts whose marker (source checksum and size)
+         * matches. Changed artifacts are unpacked over existing root content.
+         */
+        SKIP_UNCHANGED,
+
+        /**
+         * Same as {@link #SKIP_UNCHANGED}, but roots of changed artifacts are cleaned before being unpacked again.
+         * Roots shared by multiple artifacts are never cleaned.
+         */
+        CLEAN_CHANGED
+    }
+
+    /**
+     * The name of marker file written into each root when mode is not {@link Mode#ALWAYS}.
+     */
+    public static final String MARKER_FILE_NAME = ".toolbox-unpack.properties";
+
     private final Output output;
     private final Path directory;
+    private final StagingDirectory staging;
+    private final Path root;
     private final boolean directoryCreated;
     private final Predicate<Artifact> artifactMatcher;
     private final boolean failIfUnmatched;
@@ -75,7 +154,11 @@ public final class UnpackSink implements ArtifactSink {
     private final Function<String, String> fileNameMapper;
     private final boolean allowRootOverwrite;
     private final boolean allowEntryOverwrite;
-    private final HashSet<Path> writtenPaths;
+    private final Mode mode;
+    private final Set<Path> writtenPaths;
+    private final Set<Path> unpackedPaths;
+    private final ConcurrentHashMap<Path, Object> rootLocks;
+
     /**
      * Creates a directory sink.
      *
@@ -88,6 +171,8 @@ public final class UnpackSink implements ArtifactSink {
      * @param allowRootOverwrite Does sink allow use of same roots for unpack operations.
      * @param allowEntryOverwrite Does sink allow unpacked entry overwrites. Tip: you usually do not want to allow,
      *                            as that means you have some overlap in unpacked archives.
+     * @param mode The unpack mode.
+     * @param staged Should the sink unpack into staging directory, published on close.
      * @throws IOException In case of IO problem.
      */
     private UnpackSink(
@@ -99,18 +184,28 @@ public final class UnpackSink implements ArtifactSink {
             Function<Artifact, String> artifactRootMapper,
             Function<String, String> fileNameMapper,
             boolean allowRootOverwrite,
-            boolean allowEntryOverwrite)
+            boolean allowEntryOverwrite,
+            Mode mode,
+            boolean staged)
             throws IOException {
         this.output = requireNonNull(output, "output");
         this.directory = requireNonNull(directory, "directory").toAbsolutePath();
         if (Files.exists(directory) && !Files.isDirectory(directory)) {
             throw new IllegalArgumentException("directory must not exists, or must be a directory");
         }
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
-            this.directoryCreated = true;
-        } else {
+        if (staged) {
+            this.staging = StagingDirectory.create(this.directory);
+            this.root = staging.getStaging();
             this.directoryCreated = false;
+        } else {
+            this.staging = null;
+            this.root = this.directory;
+            if (!Files.exists(directory)) {
+                Files.createDirectories(directory);
+                this.directoryCreated = true;
+            } else {
+                this.directoryCreated = false;
+            }
         }
 
         this.artifactMatcher = requireNonNull(artifactMatcher, "artifactMatcher");
@@ -120,13 +215,20 @@ public final class UnpackSink implements ArtifactSink {
         this.fileNameMapper = requireNonNull(fileNameMapper, "fileNameMapper");
         this.allowRootOverwrite = allowRootOverwrite;
         this.allowEntryOverwrite = allowEntryOverwrite;
-        this.writtenPaths = new HashSet<>();
+        this.mode = requireNonNull(mode, "mode");
+        this.writtenPaths = ConcurrentHashMap.newKeySet();
+        this.unpackedPaths = ConcurrentHashMap.newKeySet();
+        this.rootLocks = new ConcurrentHashMap<>();
     }
 
     public Path getDirectory() {
         return directory;
     }
 
+    public boolean isStaged() {
+        return staging != null;
+    }
+
     @Override
     public void accept(Artifact artifact) throws IOException {
         requireNonNull(artifact, "artifact");
@@ -135,38 +237,16 @@ public final class UnpackSink implements ArtifactSink {
             output.verbose("  matched");
             String targetName = artifactRootMapper.apply(artifactMapper.apply(artifact));
             output.verbose("  mapped to name {}", targetName);
-            Path target = directory.resolve(targetName).toAbsolutePath();
-            if (!target.startsWith(directory)) {
+            Path target = root.resolve(targetName).toAbsolutePath();
+            if (!target.startsWith(root)) {
                 throw new IOException("Path escape prevented; check mappings");
             }
             if (!writtenPaths.add(target) && !allowRootOverwrite) {
                 throw new IOException("Root overwrite prevented; check mappings");
             }
-            switch (artifact.getExtension()) {
-                case "jar": {
-                    unjar(target, artifact.getFile().toPath());
-                    break;
-                }
-                case "zip": {
-                    unzip(target, artifact.getFile().toPath());
-                    break;
-                }
-                case "tar.gz": {
-                    untar(
-                            target,
-                            new GzipCompressorInputStream(new BufferedInputStream(
-                                    Files.newInputStream(artifact.getFile().toPath()))));
-                    break;
-                }
-                case "tar.bz2": {
-                    untar(
-                            target,
-                            new BZip2CompressorInputStream(new BufferedInputStream(
-                                    Files.newInputStream(artifact.getFile().toPath()))));
-                    break;
-                }
-                default:
-                    throw new IllegalArgumentException("unknown archive");
+            // artifacts sharing root are unpacked one by one, as marker of root is read, updated and written back
+            synchronized (rootLocks.computeIfAbsent(target, k -> new Object())) {
+                unpack(artifact, targetName, target);
             }
         } else {
             if (failIfUnmatched) {
@@ -257,22 +337,106 @@ public final class UnpackSink implements ArtifactSink {
         }
     }
 
+    private void unpack(Artifact artifact, String targetName, Path target) throws IOException {
+        Properties marker = null;
+        String markerKey = null;
+        String markerValue = null;
+        if (mode != Mode.ALWAYS) {
+            Path source = artifact.getFile().toPath();
+            marker = loadMarker(target);
+            markerKey = ArtifactIdUtils.toId(artifact);
+            markerValue = Checksums.sha1(source) + "," + Files.size(source) + "," + targetName;
+            String recorded = marker.getProperty(markerKey);
+            if (markerValue.equals(recorded)) {
+                output.verbose("  unchanged, skipped");
+                return;
+            }
+            if (recorded != null && mode == Mode.CLEAN_CHANGED) {
+                if (marker.size() == 1) {
+                    output.verbose("  changed, cleaning root {}", target);
+                    deleteRecursively(target);
+                    marker.clear();
+                } else {
+                    output.warn("Root {} is shared by multiple artifacts; not cleaning it", target);
+                }
+            }
+        }
+        unpackedPaths.add(target);
+        switch (artifact.getExtension()) {
+            case "jar": {
+                unjar(target, artifact.getFile().toPath());
+                break;
+            }
+            case "zip": {
+                unzip(target, artifact.getFile().toPath());
+                break;
+            }
+            case "tar.gz": {
+                untar(
+                        target,
+                        new GzipCompressorInputStream(new BufferedInputStream(
+                                Files.newInputStream(artifact.getFile().toPath()))));
+                break;
+            }
+            case "tar.bz2": {
+                untar(
+                        target,
+                        new BZip2CompressorInputStream(new BufferedInputStream(
+                                Files.newInputStream(artifact.getFile().toPath()))));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown archive");
+        }
+        if (marker != null) {
+            marker.setProperty(markerKey, markerValue);
+            storeMarker(target, marker);
+        }
+    }
+
+    private Properties loadMarker(Path root) throws IOException {
+        Properties marker = new Properties();
+        Path markerFile = root.resolve(MARKER_FILE_NAME);
+        if (Files.isRegularFile(markerFile)) {
+            try (InputStream input = Files.newInputStream(markerFile)) {
+                marker.load(input);
+            }
+        }
+        return marker;
+    }
+
+    private void storeMarker(Path root, Properties marker) throws IOException {
+        Files.createDirectories(root);
+        try (OutputStream out = Files.newOutputStream(root.resolve(MARKER_FILE_NAME))) {
+            marker.store(out, "Toolbox unpack marker; do not edit");
+        }
+    }
+
+    private void deleteRecursively(Path p) {
+        if (!Files.exists(p)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(p).sorted(Comparator.reverseOrder())) {
+            stream.forEach(f -> {
+                try {
+                    Files.delete(f);
+                } catch (IOException ioex) {
+                    output.warn("Could not delete {}", p, ioex);
+                }
+            });
+        } catch (IOException ioex) {
+            output.warn("Could not walk {}", p, ioex);
+        }
+    }
+
     @Override
     public void cleanup(Exception e) {
         output.error("Cleaning up: {}", directory);
-        writtenPaths.forEach(p -> {
-            try (Stream<Path> stream = Files.walk(p).sorted(Comparator.reverseOrder())) {
-                stream.forEach(f -> {
-                    try {
-                        Files.delete(f);
-                    } catch (IOException ioex) {
-                        output.warn("Could not delete {}", p, ioex);
-                    }
-                });
-            } catch (IOException ioex) {
-                output.warn("Could not walk {}", p, ioex);
-            }
-        });
+        if (staging != null) {
+            staging.discard();
+            return;
+        }
+        unpackedPaths.forEach(this::deleteRecursively);
         if (directoryCreated) {
             try {
                 Files.deleteIfExists(directory);
@@ -283,5 +447,9 @@ public final class UnpackSink implements ArtifactSink {
     }
 
     @Override
-    public void close() {}
+    public void close() throws IOException {
+        if (staging != null) {
+            staging.publish();
+        }
+    }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static eu.maveniverse.maven.toolbox.shared.internal.ToolboxCommandoImpl.humanReadableByteCountBin;
+import static java.util.Objects.requireNonNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Construction to accept collection of artifacts and verify their files against expected checksums, taken either
+ * from sidecar files next to artifact files (like {@code foo-1.0.jar.sha1}), or from manifest written by
+ * {@link ChecksummingSink}.
+ * <p>
+ * Every artifact file is read only once, sequentially, calculating all expected checksums
+ * at once. Artifacts are verified in parallel, on a pool of daemon threads. On {@link #close()} totals and throughput
+ * are reported, and if any artifact failed verification (or could not be read), {@link IOException} is thrown.
+ * Artifacts having no expected checksum are reported, but do not fail verification.
+ */
+public final class VerifyingSink implements ArtifactSink {
+    /**
+     * Creates sink that verifies artifact files against their sidecar files of given algorithms.
+     */
+    public static VerifyingSink sidecars(Output output, Collection<String> algorithms, int threads) {
+        requireNonNull(algorithms, "algorithms");
+        ArrayList<String> parsed = new ArrayList<>(algorithms.size());
+        for (String algorithm : algorithms) {
+            parsed.add(Checksums.algorithm(algorithm));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("no algorithms specified");
+        }
+        return new VerifyingSink(output, null, parsed, null, threads);
+    }
+
+    /**
+     * Creates sink that verifies artifact files against checksums recorded in manifest file.
+     */
+    public static VerifyingSink manifest(Output output, Path manifest, int threads) throws IOException {
+        requireNonNull(manifest, "manifest");
+        return new VerifyingSink(
+                output, manifest.toAbsolutePath(), null, ChecksummingSink.readManifest(manifest), threads);
+    }
+
+    /**
+     * Verification outcome of one artifact.
+     */
+    public enum Status {
+        /**
+         * All expected checksums matched.
+         */
+        VERIFIED,
+
+        /**
+         * At least one expected checksum did not match.
+         */
+        MISMATCH,
+
+        /**
+         * No expected checksum was found.
+         */
+        MISSING,
+
+        /**
+         * Artifact file or its checksums could not be read.
+         */
+        ERROR
+    }
+
+    private final Output output;
+    private final Path manifest;
+    private final List<String> algorithms;
+    private final Map<String, Map<String, String>> expected;
+    private final ExecutorService executor;
+    private final LinkedHashMap<Artifact, Future<Status>> statuses;
+    private final LongAdder bytes;
+    private final AtomicBoolean closed;
+    private final long started;
+
+    private VerifyingSink(
+            Output output,
+            Path manifest,
+            List<String> algorithms,
+            Map<String, Map<String, String>> expected,
+            int threads) {
+        this.output = requireNonNull(output, "output");
+        this.manifest = manifest;
+        this.algorithms = algorithms;
+        this.expected = expected;
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "toolbox-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.statuses = new LinkedHashMap<>();
+        this.bytes = new LongAdder();
+        this.closed = new AtomicBoolean(false);
+        this.started = System.nanoTime();
+    }
+
+    public Path getManifest() {
+        return manifest;
+    }
+
+    public List<String> getAlgorithms() {
+        return algorithms != null ? Collections.unmodifiableList(algorithms) : null;
+    }
+
+    @Override
+    public synchronized void accept(Artifact artifact) {
+        requireNonNull(artifact, "artifact");
+        requireNonNull(artifact.getFile(), "unresolved artifact");
+        if (closed.get()) {
+            throw new IllegalStateException("already closed");
+        }
+        if (!statuses.containsKey(artifact)) {
+            statuses.put(artifact, executor.submit(() -> {
+                try {
+                    return verify(artifact);
+                } catch (IOException e) {
+                    output.error("  {}: could not be read: {}", artifact, e.getMessage());
+                    return Status.ERROR;
+                }
+            }));
+        }
+    }
+
+    private Status verify(Artifact artifact) throws IOException {
+        Path file = artifact.getFile().toPath();
+        Map<String, String> checksums;
+        if (expected != null) {
+            checksums = expected.getOrDefault(ArtifactIdUtils.toId(artifact), Collections.emptyMap());
+        } else {
+            checksums = new LinkedHashMap<>();
+            for (String algorithm : algorithms) {
+                String checksum = Checksums.sidecar(file, algorithm);
+                if (checksum != null) {
+                    checksums.put(algorithm, checksum);
+                }
+            }
+        }
+        if (checksums.isEmpty()) {
+            output.warn("  {}: no checksum", artifact);
+            return Status.MISSING;
+        }
+        Map<String, String> actual = Checksums.calculate(file, checksums.keySet());
+        bytes.add(Files.size(file));
+        Status status = Status.VERIFIED;
+        for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+            if (!checksum.getValue().equalsIgnoreCase(actual.get(checksum.getKey()))) {
+                output.error(
+                        "  {}: {} mismatch, expected {} but was {}",
+                        artifact,
+                        checksum.getKey(),
+                        checksum.getValue(),
+                        actual.get(checksum.getKey()));
+                status = Status.MISMATCH;
+            }
+        }
+        if (status == Status.VERIFIED) {
+            output.verbose("  {}: verified {}", artifact, checksums.keySet());
+        }
+        return status;
+    }
+
+    /**
+     * Returns verification outcome of all accepted artifacts, waiting for pending verifications to finish.
+     */
+    public synchronized Map<Artifact, Status> getStatuses() throws IOException {
+        LinkedHashMap<Artifact, Status> result = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Artifact, Future<Status>> entry : statuses.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while verifying checksums", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Checksum verification failed", e.getCause());
+        }
+        return result;
+    }
+
+    @Override
+    public void cleanup(Exception e) {
+        closed.set(true);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                Map<Artifact, Status> result = getStatuses();
+                long mismatched =
+                        result.values().stream().filter(Status.MISMATCH::equals).count();
+                long missing =
+                        result.values().stream().filter(Status.MISSING::equals).count();
+                long failed =
+                        result.values().stream().filter(Status.ERROR::equals).count();
+                long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                output.normal(
+                        "Verified {} artifacts ({}) in {} ms ({}/s): {} OK, {} mismatched, {} unreadable, {} without"
+                                + " checksum",
+                        result.size(),
+                        humanReadableByteCountBin(bytes.sum()),
+                        elapsedMillis,
+                        humanReadableByteCountBin(bytes.sum() * 1000L / elapsedMillis),
+                        result.size() - mismatched - failed - missing,
+                        mismatched,
+                        failed,
+                        missing);
+                if (mismatched + failed > 0) {
+                    throw new IOException(mismatched + failed + " artifact(s) failed checksum verification");
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -7,10 +7,18 @@
  */
 package eu.maveniverse.maven.toolbox.shared;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
@@ -32,6 +40,20 @@ public class ArtifactMatcherTest {
         assertFalse(matcher.test(artifact));
     }
 
+    @Test
+    void uniqueCompact() {
+        ArtifactMatcher matcher = ArtifactMatcher.uniqueCompact();
+        assertTrue(matcher.test(artifact));
+        assertFalse(matcher.test(artifact));
+        assertTrue(matcher.test(new DefaultArtifact("g:a:classifier:jar:1.0")));
+
+        matcher = ArtifactMatcher.build(Collections.emptyMap(), "uniqueByCompact(GAKey())");
+        assertTrue(matcher.test(artifact));
+        assertFalse(matcher.test(new DefaultArtifact("g:a:classifier:jar:1.0")));
+        assertTrue(
+                ArtifactMatcher.build(Collections.emptyMap(), "uniqueCompact()").test(artifact));
+    }
+
     @Test
     void composedAnd() {
         assertTrue(ArtifactMatcher.and(
@@ -170,4 +192,95 @@ public class ArtifactMatcherTest {
         assertFalse(parsed.test(artifact2));
         assertFalse(parsed.test(artifact3));
     }
+
+    @Test
+    void cached() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("groupId", "g2");
+
+        ArtifactMatcher matcher = ArtifactMatcher.build(properties, "artifact(${groupId})");
+        assertSame(matcher, ArtifactMatcher.build(properties, "artifact(${groupId})"));
+
+        // referenced property changed
+        properties.put("groupId", "g1");
+        ArtifactMatcher other = ArtifactMatcher.build(properties, "artifact(${groupId})");
+        assertNotSame(matcher, other);
+        assertTrue(other.test(new DefaultArtifact("g1:a:1")));
+
+        // unique is stateful, is never shared
+        assertNotSame(
+                ArtifactMatcher.build(properties, "and(any(),unique())"),
+                ArtifactMatcher.build(properties, "and(any(),unique())"));
+    }
+
+    @Test
+    void compiledOr() {
+        ArrayList<ArtifactMatcher> patterns = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            patterns.add(ArtifactMatcher.artifact("org.exact" + i + ":a" + i));
+            patterns.add(ArtifactMatcher.artifact("org.prefix" + i + "*"));
+            patterns.add(ArtifactMatcher.artifact("*:*-suffix" + i + ":*"));
+        }
+        patterns.add(ArtifactMatcher.artifact("org.group:*:*:jar:1.0"));
+        patterns.add(ArtifactMatcher.artifact("*:artifact:*:zip:*"));
+        patterns.add(ArtifactMatcher.artifact("*.residual:*"));
+        ArtifactMatcher compiled = ArtifactMatcher.or(patterns);
+        assertInstanceOf(ArtifactMatcher.PatternSetMatcher.class, compiled);
+        assertEquals(3003, ((ArtifactMatcher.PatternSetMatcher) compiled).getSize());
+        assertEquals(1, ((ArtifactMatcher.PatternSetMatcher) compiled).getResidualSize());
+
+        List<Artifact> artifacts = Arrays.asList(
+                new DefaultArtifact("org.exact7:a7:1"),
+                new DefaultArtifact("org.exact7:a8:1"),
+                new DefaultArtifact("org.prefix42:a:1"),
+                new DefaultArtifact("org.prefix42.sub:a:1"),
+                new DefaultArtifact("org.prefi:a:1"),
+                new DefaultArtifact("g:lib-suffix99:1"),
+                new DefaultArtifact("g:lib-suffix99x:1"),
+                new DefaultArtifact("org.group:any:1.0"),
+                new DefaultArtifact("org.group:any:1.1"),
+                new DefaultArtifact("g:artifact:zip:1"),
+                new DefaultArtifact("g:artifact:1"),
+                new DefaultArtifact("com.residual:a:1"),
+                artifact);
+        for (Artifact a : artifacts) {
+            assertEquals(patterns.stream().anyMatch(p -> p.test(a)), compiled.test(a), a.toString());
+        }
+
+        // mixed with non-pattern matchers is not compiled, as order of evaluation matters
+        patterns.add(ArtifactMatcher.unique());
+        assertFalse(ArtifactMatcher.or(patterns) instanceof ArtifactMatcher.PatternSetMatcher);
+    }
+
+    @Test
+    void glob() {
+        Artifact internal = new DefaultArtifact("org.foo.internal:a:1.2.3");
+        Artifact api = new DefaultArtifact("org.foo.api:a:1.2.3");
+        assertTrue(ArtifactMatcher.artifact("org.*.internal").test(internal));
+        assertFalse(ArtifactMatcher.artifact("org.*.internal").test(api));
+        assertTrue(ArtifactMatcher.artifact("*:a:1.?.3").test(internal));
+        assertFalse(ArtifactMatcher.artifact("*:a:1.?.3").test(new DefaultArtifact("g:a:1.22.3")));
+        assertTrue(ArtifactMatcher.artifact("*:*:1.[0-2].*").test(internal));
+        assertFalse(ArtifactMatcher.artifact("*:*:1.[!0-2].*").test(internal));
+        assertTrue(ArtifactMatcher.artifact("*foo*").test(internal));
+        // regex special characters are literal in globs
+        assertFalse(ArtifactMatcher.artifact("org.foo+internal").test(internal));
+
+        ArtifactMatcher parsed = ArtifactMatcher.build(Collections.emptyMap(), "artifact(org.*.internal:*:1.?.3)");
+        assertTrue(parsed.test(internal));
+        assertFalse(parsed.test(api));
+    }
+
+    @Test
+    void regex() {
+        assertTrue(ArtifactMatcher.regex("g:a:classifier:jar:1\\.0-.*").test(artifact));
+        assertFalse(ArtifactMatcher.regex("g:a:jar::.*").test(artifact));
+        assertTrue(ArtifactMatcher.regex("g:a:jar::1").test(new DefaultArtifact("g:a:1")));
+
+        ArtifactMatcher parsed =
+                ArtifactMatcher.build(Collections.emptyMap(), "regex('org\\.foo\\.(api|internal):.*')");
+        assertTrue(parsed.test(new DefaultArtifact("org.foo.api:a:1")));
+        assertTrue(parsed.test(new DefaultArtifact("org.foo.internal:a:1")));
+        assertFalse(parsed.test(new DefaultArtifact("org.foo.impl:a:1")));
+    }
 }
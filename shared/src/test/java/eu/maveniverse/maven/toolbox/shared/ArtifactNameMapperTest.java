@@ -8,6 +8,7 @@
 package eu.maveniverse.maven.toolbox.shared;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -77,4 +78,47 @@ public class ArtifactNameMapperTest {
         mapped = artifactNameMapper.apply(artifact);
         assertEquals(artifact.toString(), mapped);
     }
+
+    @Test
+    void template() {
+        Artifact plain = new DefaultArtifact("org.g:a:1.0");
+        ArtifactNameMapper mapper = ArtifactNameMapper.template("{gp}/{a}-{v}[-{c}].{e}");
+        assertEquals("g/a-1.0-20240322.113300-2-classifier.jar", mapper.apply(artifact));
+        assertEquals("org/g/a-1.0.jar", mapper.apply(plain));
+
+        assertEquals(
+                "g.a-classifier-1.0-20240322.113300-2.jar",
+                ArtifactNameMapper.GACVE().apply(artifact));
+        assertEquals("org.g.a-1.0.jar", ArtifactNameMapper.GACVE().apply(plain));
+        assertEquals(
+                "g.a-classifier-1.0-SNAPSHOT.jar", ArtifactNameMapper.GACbVE().apply(artifact));
+        assertEquals("g.a-classifier.jar", ArtifactNameMapper.GACE().apply(artifact));
+        assertEquals("g.a-1.0-20240322.113300-2.jar", ArtifactNameMapper.GAVE().apply(artifact));
+        assertEquals("g.a-1.0-SNAPSHOT.jar", ArtifactNameMapper.GAbVE().apply(artifact));
+        assertEquals("g.a.jar", ArtifactNameMapper.GAE().apply(artifact));
+        assertEquals(
+                "a-classifier-1.0-20240322.113300-2.jar",
+                ArtifactNameMapper.ACVE().apply(artifact));
+        assertEquals(
+                "a-1.0-20240322.113300-2-classifier.jar",
+                ArtifactNameMapper.AVCE().apply(artifact));
+        assertEquals("a-1.0.jar", ArtifactNameMapper.AVCE().apply(plain));
+        assertEquals("a-classifier-1.0-SNAPSHOT.jar", ArtifactNameMapper.ACbVE().apply(artifact));
+        assertEquals("a-1.0-SNAPSHOT-classifier.jar", ArtifactNameMapper.AbVCE().apply(artifact));
+        assertEquals("a-classifier.jar", ArtifactNameMapper.ACE().apply(artifact));
+        assertEquals("a.jar", ArtifactNameMapper.ACE().apply(plain));
+        assertEquals("a-1.0-20240322.113300-2.jar", ArtifactNameMapper.AVE().apply(artifact));
+        assertEquals("a-1.0-SNAPSHOT.jar", ArtifactNameMapper.AbVE().apply(artifact));
+        assertEquals("a.jar", ArtifactNameMapper.AE().apply(artifact));
+
+        assertEquals(
+                "lib/a-classifier.jar",
+                ArtifactNameMapper.build(Collections.emptyMap(), "template(lib/{a}[-{c}].{e})")
+                        .apply(artifact));
+
+        assertThrows(IllegalArgumentException.class, () -> ArtifactNameMapper.template("{a"));
+        assertThrows(IllegalArgumentException.class, () -> ArtifactNameMapper.template("{x}"));
+        assertThrows(IllegalArgumentException.class, () -> ArtifactNameMapper.template("{a}[-{c}"));
+        assertThrows(IllegalArgumentException.class, () -> ArtifactNameMapper.template("{a}]"));
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveSinkTest {
+    private static String content() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void zip(@TempDir Path source, @TempDir Path target) throws IOException {
+        String text = content();
+        Path a1 = source.resolve("a1");
+        Path a2 = source.resolve("a2");
+        Files.writeString(a1, text, StandardCharsets.UTF_8);
+        Files.writeString(a2, "jar", StandardCharsets.UTF_8);
+        Path a3 = source.resolve("a3");
+        Path a4 = source.resolve("a4");
+        Files.writeString(a3, "small", StandardCharsets.UTF_8);
+        Files.writeString(a4, text + text, StandardCharsets.UTF_8);
+        Path archive = target.resolve("out.zip");
+        try (ArchiveSink sink = ArchiveSink.archive(new NullOutput(), archive, null, ArtifactNameMapper.GACE())) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:txt:1").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a2:1").setFile(a2.toFile()),
+                    new DefaultArtifact("g:a3:txt:1").setFile(a3.toFile()),
+                    new DefaultArtifact("g:a4:txt:1").setFile(a4.toFile())));
+        }
+        // no spool left behind
+        try (Stream<Path> files = Files.list(target)) {
+            assertEquals(1L, files.count());
+        }
+        if (archive.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            // same permissions as any other new file, not owner only of temporary files
+            Path plain = Files.createFile(target.resolve("plain"));
+            assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(archive));
+        }
+
+        try (ZipFile zipFile = ZipFile.builder().setPath(archive).get()) {
+            ZipArchiveEntry e1 = zipFile.getEntry("g.a1.txt");
+            assertEquals(ZipArchiveEntry.DEFLATED, e1.getMethod());
+            try (InputStream is = zipFile.getInputStream(e1)) {
+                assertEquals(text, new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            ZipArchiveEntry e2 = zipFile.getEntry("g.a2.jar");
+            assertEquals(ZipArchiveEntry.STORED, e2.getMethod());
+            try (InputStream is = zipFile.getInputStream(e2)) {
+                assertEquals("jar", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (InputStream is = zipFile.getInputStream(zipFile.getEntry("g.a3.txt"))) {
+                assertEquals("small", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (InputStream is = zipFile.getInputStream(zipFile.getEntry("g.a4.txt"))) {
+                assertEquals(text + text, new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void tgz(@TempDir Path source, @TempDir Path target) throws IOException {
+        String text = content();
+        Path a1 = source.resolve("a1");
+        Path a2 = source.resolve("a2");
+        Files.writeString(a1, text, StandardCharsets.UTF_8);
+        Files.writeString(a2, "jar", StandardCharsets.UTF_8);
+        Path archive = target.resolve("out.tar.gz");
+        try (ArchiveSink sink = ArchiveSink.archive(new NullOutput(), archive, null, ArtifactNameMapper.GACE())) {
+            assertEquals(ArchiveSink.Format.TGZ, sink.getFormat());
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:txt:1").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a2:1").setFile(a2.toFile())));
+        }
+
+        HashMap<String, String> entries = new HashMap<>();
+        try (TarArchiveInputStream tar =
+                new TarArchiveInputStream(new GZIPInputStream(Files.newInputStream(archive)))) {
+            TarArchiveEntry entry = tar.getNextEntry();
+            while (entry != null) {
+                entries.put(entry.getName(), new String(tar.readAllBytes(), StandardCharsets.UTF_8));
+                entry = tar.getNextEntry();
+            }
+        }
+        assertEquals(Map.of("g.a1.txt", text, "g.a2.jar", "jar"), entries);
+    }
+
+    @Test
+    void cleanup(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Path archive = target.resolve("out.zip");
+        try (ArchiveSink sink = ArchiveSink.archive(new NullOutput(), archive, null, ArtifactNameMapper.GACE())) {
+            sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+            sink.cleanup(new IOException("failed"));
+        }
+        assertFalse(Files.exists(archive));
+        try (Stream<Path> files = Files.list(target)) {
+            assertNull(files.findAny().orElse(null));
+        }
+    }
+}
@@ -8,7 +8,10 @@
 package eu.maveniverse.maven.toolbox.shared.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import eu.maveniverse.maven.mima.context.Context;
 import eu.maveniverse.maven.mima.context.ContextOverrides;
@@ -18,7 +21,10 @@ import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.NullOutput;
 import eu.maveniverse.maven.toolbox.shared.Output;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.stream.Collectors;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.junit.jupiter.api.Test;
 
@@ -49,6 +55,43 @@ public class ArtifactSinksTest {
             artifactSink = ArtifactSinks.build(properties, output, tc, "tee(counting(), sizing())");
             assertInstanceOf(ArtifactSinks.TeeArtifactSink.class, artifactSink);
 
+            artifactSink = ArtifactSinks.build(properties, output, tc, "timed(tee(counting(), sizing()))");
+            assertInstanceOf(TimedArtifactSink.Reporting.class, artifactSink);
+            assertEquals(
+                    Collections.singletonList("tee"),
+                    ((TimedArtifactSink.Reporting) artifactSink)
+                            .getTimedSinks().stream()
+                                    .map(TimedArtifactSink::getName)
+                                    .collect(Collectors.toList()));
+
+            artifactSink = ArtifactSinks.build(
+                    properties,
+                    output,
+                    tc,
+                    "timedAll(tee(counting(), mapping(baseVersion(), matching(any(),sizing()))), some/timing.tsv)");
+            assertInstanceOf(TimedArtifactSink.Reporting.class, artifactSink);
+            assertEquals(
+                    context.basedir().resolve("some/timing.tsv"),
+                    ((TimedArtifactSink.Reporting) artifactSink).getReport());
+            assertEquals(
+                    Arrays.asList(
+                            "tee/counting[0]",
+                            "tee/mapping[1]/matching[1]/sizing[1]",
+                            "tee/mapping[1]/matching[1]",
+                            "tee/mapping[1]",
+                            "tee"),
+                    ((TimedArtifactSink.Reporting) artifactSink)
+                            .getTimedSinks().stream()
+                                    .map(TimedArtifactSink::getName)
+                                    .collect(Collectors.toList()));
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "classIndex(some/classes.idx)");
+            assertInstanceOf(ClassIndexSink.class, artifactSink);
+            assertEquals(
+                    ((ClassIndexSink) artifactSink).getIndex(),
+                    context.basedir().resolve("some/classes.idx"));
+            artifactSink.cleanup(null);
+
             artifactSink = ArtifactSinks.build(properties, output, tc, "install()");
             assertInstanceOf(InstallingSink.class, artifactSink);
             assertEquals(
@@ -67,6 +110,20 @@ public class ArtifactSinksTest {
                     ((DeployingSink) artifactSink).getRemoteRepository(),
                     new RemoteRepository.Builder("test", "default", "https://somewhere.com").build());
 
+            artifactSink = ArtifactSinks.build(properties, output, tc, "deploy(test::https://somewhere.com,8,3)");
+            assertInstanceOf(DeployingSink.class, artifactSink);
+            assertEquals(8, ((DeployingSink) artifactSink).getParallelism());
+            assertEquals(3, ((DeployingSink) artifactSink).getRetries());
+            assertFalse(((DeployingSink) artifactSink).isSkipExisting());
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "deploy(test::https://somewhere.com,8,3,true)");
+            assertInstanceOf(DeployingSink.class, artifactSink);
+            assertTrue(((DeployingSink) artifactSink).isSkipExisting());
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "purgePlan()");
+            assertInstanceOf(PurgingSink.class, artifactSink);
+            assertTrue(((PurgingSink) artifactSink).isDryRun());
+
             artifactSink = ArtifactSinks.build(properties, output, tc, "unpack(some/path)");
             assertInstanceOf(UnpackSink.class, artifactSink);
             assertEquals(
@@ -79,18 +136,139 @@ public class ArtifactSinksTest {
                     ((UnpackSink) artifactSink).getDirectory(),
                     context.basedir().resolve("some/path"));
 
+            artifactSink = ArtifactSinks.build(properties, output, tc, "unpack(some/path,ACE(),skip_unchanged)");
+            assertInstanceOf(UnpackSink.class, artifactSink);
+            assertEquals(
+                    ((UnpackSink) artifactSink).getDirectory(),
+                    context.basedir().resolve("some/path"));
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "cas(some/store,some/path,ACE())");
+            assertInstanceOf(ContentAddressedSink.class, artifactSink);
+            assertEquals(
+                    ((ContentAddressedSink) artifactSink).getStore(),
+                    context.basedir().resolve("some/store"));
+            assertEquals(
+                    ((ContentAddressedSink) artifactSink).getDirectory(),
+                    context.basedir().resolve("some/path"));
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "archive(some/path.tar.gz)");
+            assertInstanceOf(ArchiveSink.class, artifactSink);
+            assertEquals(ArchiveSink.Format.TGZ, ((ArchiveSink) artifactSink).getFormat());
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "archive(some/path.bin,zip,ACE())");
+            assertInstanceOf(ArchiveSink.class, artifactSink);
+            assertEquals(
+                    ((ArchiveSink) artifactSink).getArchive(), context.basedir().resolve("some/path.bin"));
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(
+                    properties, output, tc, "repackage(some/path.jar,exclude(module-info.class),merge(**/*.txt))");
+            assertInstanceOf(RepackagingSink.class, artifactSink);
+            assertEquals(
+                    ((RepackagingSink) artifactSink).getJar(), context.basedir().resolve("some/path.jar"));
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "index(some/index.txt.gz,false,size,sha1)");
+            assertInstanceOf(IndexFileSink.class, artifactSink);
+            assertEquals(
+                    ((IndexFileSink) artifactSink).getFile(), context.basedir().resolve("some/index.txt.gz"));
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "checksums(some/path)");
+            assertInstanceOf(ChecksummingSink.class, artifactSink);
+            assertEquals(
+                    ((ChecksummingSink) artifactSink).getDirectory(),
+                    context.basedir().resolve("some/path"));
+            assertEquals(ChecksummingSink.DEFAULT_ALGORITHMS, ((ChecksummingSink) artifactSink).getAlgorithms());
+            artifactSink.cleanup(null);
+
+            artifactSink =
+                    ArtifactSinks.build(properties, output, tc, "checksums(some/path,repositoryDefault(),sha256)");
+            assertInstanceOf(ChecksummingSink.class, artifactSink);
+            assertEquals(
+                    Collections.singletonList(Checksums.SHA_256), ((ChecksummingSink) artifactSink).getAlgorithms());
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "checksumsManifest(some/sums.txt,sha256,md5)");
+            assertInstanceOf(ChecksummingSink.class, artifactSink);
+            assertEquals(
+                    ((ChecksummingSink) artifactSink).getManifest(),
+                    context.basedir().resolve("some/sums.txt"));
+            assertEquals(
+                    Arrays.asList(Checksums.SHA_256, Checksums.MD5), ((ChecksummingSink) artifactSink).getAlgorithms());
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "verify(sha1)");
+            assertInstanceOf(VerifyingSink.class, artifactSink);
+            assertEquals(Collections.singletonList(Checksums.SHA_1), ((VerifyingSink) artifactSink).getAlgorithms());
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "async(counting(),10,2)");
+            assertInstanceOf(AsyncArtifactSink.class, artifactSink);
+            assertInstanceOf(
+                    ArtifactSinks.CountingArtifactSink.class, ((AsyncArtifactSink) artifactSink).getDelegate());
+            artifactSink.cleanup(null);
+
             artifactSink = ArtifactSinks.build(properties, output, tc, "repository(some/path)");
             assertInstanceOf(DirectorySink.class, artifactSink);
             assertEquals(
                     ((DirectorySink) artifactSink).getDirectory(),
                     context.basedir().resolve("some/path"));
 
+            artifactSink = ArtifactSinks.build(properties, output, tc, "repositoryWithMetadata(some/path,SHA-1)");
+            assertInstanceOf(DirectorySink.class, artifactSink);
+            assertTrue(((DirectorySink) artifactSink).isRepositoryWithMetadata());
+            assertEquals(
+                    ((DirectorySink) artifactSink).getDirectory(),
+                    context.basedir().resolve("some/path"));
+
             artifactSink = ArtifactSinks.build(properties, output, tc, "flat(some/path)");
             assertInstanceOf(DirectorySink.class, artifactSink);
             assertEquals(
                     ((DirectorySink) artifactSink).getDirectory(),
                     context.basedir().resolve("some/path"));
 
+            artifactSink = ArtifactSinks.build(properties, output, tc, "staged(flat(some/staged,GACVE()))");
+            assertInstanceOf(DirectorySink.class, artifactSink);
+            assertTrue(((DirectorySink) artifactSink).isStaged());
+            assertEquals(
+                    ((DirectorySink) artifactSink).getDirectory(),
+                    context.basedir().resolve("some/staged"));
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "staged(unpack(some/staged))");
+            assertInstanceOf(UnpackSink.class, artifactSink);
+            assertTrue(((UnpackSink) artifactSink).isStaged());
+            artifactSink.cleanup(null);
+
+            artifactSink = ArtifactSinks.build(properties, output, tc, "timedAll(staged(flat(some/staged,GACVE())))");
+            assertInstanceOf(TimedArtifactSink.Reporting.class, artifactSink);
+            assertEquals(
+                    Arrays.asList("staged/flat[0]", "staged"),
+                    ((TimedArtifactSink.Reporting) artifactSink)
+                            .getTimedSinks().stream()
+                                    .map(TimedArtifactSink::getName)
+                                    .collect(Collectors.toList()));
+            artifactSink.cleanup(null);
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> ArtifactSinks.build(
+                            properties, output, tc, "timedAll(journal(some/journal.tsv,staged(flat(some/staged))))"));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> ArtifactSinks.build(properties, output, tc, "timedAll(staged(counting()))"));
+
+            artifactSink =
+                    ArtifactSinks.build(properties, output, tc, "resume(some/journal.tsv,flat(some/path,GACVE()))");
+            assertInstanceOf(JournalingSink.class, artifactSink);
+            assertTrue(((JournalingSink) artifactSink).isResume());
+            assertEquals(
+                    ((JournalingSink) artifactSink).getJournal(),
+                    context.basedir().resolve("some/journal.tsv"));
+            assertInstanceOf(DirectorySink.class, ((JournalingSink) artifactSink).getDelegate());
+            artifactSink.cleanup(null);
+
             artifactSink = ArtifactSinks.build(properties, output, tc, "flat(some/path,GACVE())");
             assertInstanceOf(DirectorySink.class, artifactSink);
             assertEquals(
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+
+public class AsyncArtifactSinkTest {
+    private static class RecordingSink implements ArtifactSink {
+        private final List<Artifact> accepted = Collections.synchronizedList(new ArrayList<>());
+        private final int failAt;
+        private volatile Exception cleanedUp;
+        private volatile boolean closed;
+
+        private RecordingSink(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void accept(Artifact artifact) throws IOException {
+            if (accepted.size() == failAt) {
+                throw new IOException("boom");
+            }
+            accepted.add(artifact);
+        }
+
+        @Override
+        public void cleanup(Exception e) {
+            cleanedUp = e;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static List<Artifact> artifacts(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new DefaultArtifact("g:a" + i + ":1"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void ordered() throws Exception {
+        List<Artifact> artifacts = artifacts(1000);
+        RecordingSink s1 = new RecordingSink(-1);
+        RecordingSink s2 = new RecordingSink(-1);
+        try (ArtifactSink sink = ArtifactSinks.asyncTeeArtifactSink(Arrays.asList(s1, s2), 10)) {
+            sink.accept(artifacts);
+        }
+        assertEquals(artifacts, s1.accepted);
+        assertEquals(artifacts, s2.accepted);
+        assertTrue(s1.closed);
+        assertTrue(s2.closed);
+    }
+
+    @Test
+    void failure() {
+        List<Artifact> artifacts = artifacts(1000);
+        RecordingSink s1 = new RecordingSink(-1);
+        RecordingSink s2 = new RecordingSink(10);
+        Exception e = assertThrows(Exception.class, () -> {
+            try (ArtifactSink sink = ArtifactSinks.asyncTeeArtifactSink(Arrays.asList(s1, s2), 10)) {
+                sink.accept(artifacts);
+            }
+        });
+        assertEquals("boom", e.getMessage());
+        assertSame(s1.cleanedUp, s2.cleanedUp);
+        assertEquals("boom", s1.cleanedUp.getMessage());
+        assertFalse(s1.closed);
+        assertFalse(s2.closed);
+    }
+
+    @Test
+    void multiThreaded() throws Exception {
+        List<Artifact> artifacts = artifacts(1000);
+        RecordingSink s1 = new RecordingSink(-1);
+        try (ArtifactSink sink = ArtifactSinks.asyncArtifactSink(s1, 10, 4)) {
+            sink.accept(artifacts);
+        }
+        assertEquals(new HashSet<>(artifacts), new HashSet<>(s1.accepted));
+        assertTrue(s1.closed);
+    }
+}
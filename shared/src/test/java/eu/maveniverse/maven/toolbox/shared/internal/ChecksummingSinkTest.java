@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ChecksummingSinkTest {
+    private static final String ONE_SHA1 = "fe05bcdcdc4928012781a5f1a2a77cbb5398e106";
+    private static final String ONE_SHA256 = "7692c3ad3540bb803c020b3aee66cd8887123234ea0c6e7143c0add73ff431ed";
+
+    @Test
+    void sidecars(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1.jar");
+        // bigger than the buffer, to exercise multiple reads
+        byte[] big = new byte[3 * 1024 * 1024 + 17];
+        Arrays.fill(big, (byte) 'x');
+        Files.write(a1, big);
+        try (ChecksummingSink sink = ChecksummingSink.sidecars(
+                new NullOutput(),
+                target,
+                ArtifactNameMapper.repositoryDefault(),
+                Arrays.asList("sha1", "SHA-256", "Sha512"),
+                2)) {
+            sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+        }
+        Path base = target.resolve("g/a1/1");
+        assertEquals(
+                Checksums.calculate(a1, Checksums.SHA_1),
+                Files.readString(base.resolve("a1-1.jar.sha1"), StandardCharsets.UTF_8));
+        assertEquals(
+                Checksums.calculate(a1, Checksums.SHA_256),
+                Files.readString(base.resolve("a1-1.jar.sha256"), StandardCharsets.UTF_8));
+        assertEquals(
+                Checksums.calculate(a1, Checksums.SHA_512),
+                Files.readString(base.resolve("a1-1.jar.sha512"), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(base.resolve("a1-1.jar.md5")));
+        // source is left intact
+        assertFalse(Files.exists(source.resolve("a1.jar.sha1")));
+    }
+
+    @Test
+    void manifest(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1.jar");
+        Path a2 = source.resolve("a2.jar");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Files.writeString(a2, "two", StandardCharsets.UTF_8);
+        Path manifest = target.resolve("checksums.txt");
+        try (ChecksummingSink sink =
+                ChecksummingSink.manifest(new NullOutput(), manifest, Arrays.asList("sha1", "sha256"), 2)) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:1").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a2:1").setFile(a2.toFile())));
+        }
+        assertEquals(
+                "g:a1:jar:1\tSHA-1=" + ONE_SHA1 + "\tSHA-256=" + ONE_SHA256,
+                Files.readAllLines(manifest, StandardCharsets.UTF_8).get(0));
+        Map<String, Map<String, String>> read = ChecksummingSink.readManifest(manifest);
+        assertEquals(Arrays.asList("g:a1:jar:1", "g:a2:jar:1"), new ArrayList<>(read.keySet()));
+        assertEquals(ONE_SHA1, read.get("g:a1:jar:1").get(Checksums.SHA_1));
+        assertFalse(Files.exists(source.resolve("a1.jar.sha1")));
+    }
+
+    @Test
+    void unknownAlgorithm(@TempDir Path target) {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ChecksummingSink.sidecars(
+                        new NullOutput(), target, ArtifactNameMapper.AbVCE(), Arrays.asList("crc32"), 1));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClassIndexSinkTest {
+    private static Path jar(Path path, String... entries) throws IOException {
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path))) {
+            for (String entry : entries) {
+                jar.putNextEntry(new JarEntry(entry));
+                jar.write(new byte[] {1, 2, 3});
+            }
+        }
+        return path;
+    }
+
+    @Test
+    void index(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a = jar(
+                source.resolve("a.jar"),
+                "module-info.class",
+                "org/foo/",
+                "org/foo/Foo.class",
+                "org/foo/Foo$Inner.class",
+                "org/foo/package-info.class",
+                "META-INF/versions/11/org/foo/Foo.class",
+                "META-INF/MANIFEST.MF");
+        Path b = jar(source.resolve("b.jar"), "org/foo/Bar.class", "org/bar/Bar.class", "Default.class");
+        Path pom = source.resolve("c.pom");
+        Files.writeString(pom, "<project/>", StandardCharsets.UTF_8);
+
+        Path index = target.resolve("classes.idx");
+        try (ClassIndexSink sink = ClassIndexSink.classIndex(new NullOutput(), index, 2)) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a:1").setFile(a.toFile()),
+                    new DefaultArtifact("g:b:1").setFile(b.toFile()),
+                    new DefaultArtifact("g:c:pom:1").setFile(pom.toFile())));
+        }
+
+        ClassIndex classIndex = ClassIndex.open(index);
+        assertEquals(Arrays.asList("g:a:jar:1", "g:b:jar:1", "g:c:pom:1"), classIndex.getArtifacts());
+        assertEquals(5, classIndex.getClassCount());
+        assertEquals(Collections.singletonList("g:a:jar:1"), classIndex.findClass("org.foo.Foo"));
+        assertEquals(Collections.singletonList("g:a:jar:1"), classIndex.findClass("org.foo.Foo$Inner"));
+        assertEquals(Collections.singletonList("g:b:jar:1"), classIndex.findClass("Default"));
+        assertTrue(classIndex.findClass("org.foo.Baz").isEmpty());
+        assertTrue(classIndex.findClass("org.foo.package-info").isEmpty());
+        assertEquals(Arrays.asList("g:a:jar:1", "g:b:jar:1"), classIndex.findPackage("org.foo"));
+        assertEquals(Collections.singletonList("g:b:jar:1"), classIndex.findPackage("org.bar"));
+
+        Map<String, List<String>> splitPackages = classIndex.getSplitPackages();
+        assertEquals(1, splitPackages.size());
+        assertEquals(Arrays.asList("g:a:jar:1", "g:b:jar:1"), splitPackages.get("org.foo"));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class CompactKeySetTest {
+    @Test
+    void murmur3() {
+        assertArrayEquals(new long[] {0L, 0L}, CompactKeySet.murmur3(new byte[0]));
+        assertArrayEquals(
+                new long[] {0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L},
+                CompactKeySet.murmur3("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void addAndContains() {
+        CompactKeySet set = new CompactKeySet();
+        assertTrue(set.add(""));
+        assertFalse(set.add(""));
+        assertTrue(set.add("g:a:jar:1"));
+        assertFalse(set.add("g:a:jar:1"));
+        assertTrue(set.contains("g:a:jar:1"));
+        assertFalse(set.contains("g:a:jar:2"));
+        assertEquals(2L, set.size());
+    }
+
+    @Test
+    void concurrentAdds() {
+        CompactKeySet set = new CompactKeySet();
+        LongAdder added = new LongAdder();
+        // every key added twice, from many threads
+        IntStream.range(0, 200_000).parallel().forEach(i -> {
+            if (set.add("g:a" + (i % 100_000) + ":jar:1")) {
+                added.increment();
+            }
+        });
+        assertEquals(100_000L, added.sum());
+        assertEquals(100_000L, set.size());
+        assertTrue(set.contains("g:a99999:jar:1"));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContentAddressedSinkTest {
+    @Test
+    void cas(@TempDir Path source, @TempDir Path store, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1");
+        Path a2 = source.resolve("a2");
+        Files.writeString(a1, "same", StandardCharsets.UTF_8);
+        Files.writeString(a2, "same", StandardCharsets.UTF_8);
+        try (ContentAddressedSink sink =
+                ContentAddressedSink.cas(new NullOutput(), store, target.resolve("one"), ArtifactNameMapper.GACE())) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:1").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a2:1").setFile(a2.toFile())));
+        }
+        assertEquals("same", Files.readString(target.resolve("one/g.a1.jar"), StandardCharsets.UTF_8));
+        assertEquals("same", Files.readString(target.resolve("one/g.a2.jar"), StandardCharsets.UTF_8));
+        assertEquals(1, storedFiles(store.resolve("sha256")));
+
+        // second layout reusing store
+        try (ContentAddressedSink sink =
+                ContentAddressedSink.cas(new NullOutput(), store, target.resolve("two"), ArtifactNameMapper.GACE())) {
+            sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+        }
+        assertTrue(Files.isRegularFile(target.resolve("two/g.a1.jar")));
+        assertEquals(1, storedFiles(store.resolve("sha256")));
+
+        // stale sidecar of same sized file is not trusted
+        Files.writeString(source.resolve("a1.sha1"), Checksums.calculate(a1, Checksums.SHA_1), StandardCharsets.UTF_8);
+        Files.writeString(a1, "diff", StandardCharsets.UTF_8);
+        try (ContentAddressedSink sink =
+                ContentAddressedSink.cas(new NullOutput(), store, target.resolve("three"), ArtifactNameMapper.GACE())) {
+            sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+        }
+        assertEquals("diff", Files.readString(target.resolve("three/g.a1.jar"), StandardCharsets.UTF_8));
+        assertEquals(2, storedFiles(store.resolve("sha256")));
+    }
+
+    private static long storedFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
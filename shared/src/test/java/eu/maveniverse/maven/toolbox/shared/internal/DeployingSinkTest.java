@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.mima.context.Context;
+import eu.maveniverse.maven.mima.context.ContextOverrides;
+import eu.maveniverse.maven.mima.context.Runtime;
+import eu.maveniverse.maven.mima.context.Runtimes;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.deployment.DeploymentException;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeployingSinkTest {
+    @Test
+    void batched(@TempDir Path source, @TempDir Path localRepository, @TempDir Path remoteRepository) throws Exception {
+        Runtime runtime = Runtimes.INSTANCE.getRuntime();
+        try (Context context = runtime.create(ContextOverrides.create()
+                .withLocalRepositoryOverride(localRepository)
+                .build())) {
+            ArrayList<Artifact> artifacts = new ArrayList<>();
+            for (String ga : new String[] {"g:a1", "g:a2"}) {
+                for (String v : new String[] {"1.0", "2.0"}) {
+                    Path file = source.resolve(ga.replace(':', '-') + "-" + v);
+                    Files.writeString(file, ga + ":" + v, StandardCharsets.UTF_8);
+                    artifacts.add(new DefaultArtifact(ga + ":" + v).setFile(file.toFile()));
+                    artifacts.add(new DefaultArtifact(ga + ":pom:" + v).setFile(file.toFile()));
+                }
+            }
+
+            try (DeployingSink sink = DeployingSink.deploying(
+                    new NullOutput(),
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    new RemoteRepository.Builder(
+                                    "test", "default", remoteRepository.toUri().toString())
+                            .build(),
+                    2,
+                    0,
+                    false)) {
+                sink.accept(artifacts);
+            }
+
+            for (String a : new String[] {"a1", "a2"}) {
+                for (String v : new String[] {"1.0", "2.0"}) {
+                    assertTrue(Files.isRegularFile(
+                            remoteRepository.resolve("g/" + a + "/" + v + "/" + a + "-" + v + ".jar")));
+                    assertTrue(Files.isRegularFile(
+                            remoteRepository.resolve("g/" + a + "/" + v + "/" + a + "-" + v + ".pom")));
+                }
+                String metadata = Files.readString(
+                        remoteRepository.resolve("g/" + a + "/maven-metadata.xml"), StandardCharsets.UTF_8);
+                assertTrue(metadata.contains("<version>1.0</version>"));
+                assertTrue(metadata.contains("<version>2.0</version>"));
+            }
+
+            // re-run: one artifact missing remotely, one changed locally
+            Path missing = remoteRepository.resolve("g/a2/1.0/a2-1.0.pom");
+            Files.delete(missing);
+            Files.delete(missing.resolveSibling(missing.getFileName() + ".sha1"));
+            Path changed = remoteRepository.resolve("g/a1/2.0/a1-2.0.jar");
+            Path changedSource = source.resolve("changed");
+            Files.writeString(changedSource, "changed", StandardCharsets.UTF_8);
+            artifacts.replaceAll(a -> a.getArtifactId().equals("a1")
+                            && a.getVersion().equals("2.0")
+                            && a.getExtension().equals("jar")
+                    ? a.setFile(changedSource.toFile())
+                    : a);
+
+            DeployingSink sink = DeployingSink.deploying(
+                    new NullOutput(),
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    new RemoteRepository.Builder(
+                                    "test", "default", remoteRepository.toUri().toString())
+                            .build(),
+                    2,
+                    0,
+                    true);
+            sink.accept(artifacts);
+            DeploymentException e = assertThrows(DeploymentException.class, sink::close);
+            assertTrue(e.getCause().getMessage().contains("different SHA-1"));
+            assertTrue(Files.isRegularFile(missing));
+            assertEquals(1L, sink.getDeployedCount());
+            assertEquals(6L, sink.getSkippedCount());
+            assertEquals("g:a1:2.0", Files.readString(changed, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void plugins(@TempDir Path source, @TempDir Path localRepository, @TempDir Path remoteRepository) throws Exception {
+        Runtime runtime = Runtimes.INSTANCE.getRuntime();
+        try (Context context = runtime.create(ContextOverrides.create()
+                .withLocalRepositoryOverride(localRepository)
+                .build())) {
+            RemoteRepository remote = new RemoteRepository.Builder(
+                            "test", "default", remoteRepository.toUri().toString())
+                    .build();
+            ArrayList<Artifact> artifacts = new ArrayList<>();
+            for (String prefix : new String[] {"one", "two", "three"}) {
+                Path jar = source.resolve(prefix + ".jar");
+                try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jar))) {
+                    jarOutputStream.putNextEntry(new JarEntry("META-INF/maven/plugin.xml"));
+                    jarOutputStream.write(
+                            ("<plugin><name>" + prefix + "</name><goalPrefix>" + prefix + "</goalPrefix></plugin>")
+                                    .getBytes(StandardCharsets.UTF_8));
+                }
+                artifacts.add(new DefaultArtifact("g:" + prefix + "-maven-plugin:1.0").setFile(jar.toFile()));
+            }
+
+            // plugins of same groupId share a lane
+            try (DeployingSink sink = DeployingSink.deploying(
+                    new NullOutput(),
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    remote,
+                    3,
+                    0,
+                    false)) {
+                sink.accept(artifacts);
+            }
+            for (Artifact artifact : artifacts) {
+                assertTrue(DeployingSink.isPlugin(artifact));
+                assertTrue(Files.isRegularFile(remoteRepository.resolve(
+                        "g/" + artifact.getArtifactId() + "/1.0/" + artifact.getArtifactId() + "-1.0.jar")));
+            }
+
+            // default: all at once
+            Path file = source.resolve("a");
+            Files.writeString(file, "a", StandardCharsets.UTF_8);
+            try (DeployingSink sink = DeployingSink.deploying(
+                    new NullOutput(), context.repositorySystem(), context.repositorySystemSession(), remote)) {
+                sink.accept(new DefaultArtifact("h:a:1.0").setFile(file.toFile()));
+                sink.accept(new DefaultArtifact("h:b:1.0").setFile(file.toFile()));
+                assertFalse(DeployingSink.isPlugin(new DefaultArtifact("h:a:1.0").setFile(file.toFile())));
+                assertEquals(0L, sink.getDeployedCount());
+            }
+            assertTrue(Files.isRegularFile(remoteRepository.resolve("h/a/1.0/a-1.0.jar")));
+            assertTrue(Files.isRegularFile(remoteRepository.resolve("h/b/1.0/b-1.0.jar")));
+        }
+    }
+
+    public static final class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(int statusCode) {
+            super("status code: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    private static DeploymentException failure(Exception cause) {
+        return new DeploymentException(
+                "failed", new ArtifactTransferException(new DefaultArtifact("g:a:1"), null, cause));
+    }
+
+    @Test
+    void transientFailures() {
+        assertTrue(DeployingSink.isTransient(failure(new SocketTimeoutException("timeout"))));
+        assertTrue(DeployingSink.isTransient(failure(new HttpStatusException(503))));
+        assertTrue(DeployingSink.isTransient(failure(new HttpStatusException(429))));
+        assertFalse(DeployingSink.isTransient(failure(new HttpStatusException(401))));
+        assertFalse(DeployingSink.isTransient(failure(new HttpStatusException(403))));
+        assertFalse(DeployingSink.isTransient(failure(new AccessDeniedException("/repo"))));
+        assertFalse(DeployingSink.isTransient(failure(new IllegalStateException("bug"))));
+        assertFalse(DeployingSink.isTransient(new DeploymentException("failed")));
+    }
+}
@@ -8,15 +8,21 @@
 package eu.maveniverse.maven.toolbox.shared.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
 import eu.maveniverse.maven.toolbox.shared.NullOutput;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -62,6 +68,53 @@ public class DirectorySinkTest {
         }
     }
 
+    @Test
+    void repositoryWithMetadata(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Path plugin = source.resolve("plugin.jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(plugin))) {
+            jar.putNextEntry(new JarEntry("META-INF/maven/plugin.xml"));
+            jar.write("<plugin><name>Some Plugin</name><goalPrefix>some</goalPrefix></plugin>"
+                    .getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+        try (DirectorySink sink = DirectorySink.repositoryWithMetadata(
+                new NullOutput(), target, DirectorySink.DEFAULT_REPOSITORY_CHECKSUMS, false)) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:1.10").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a1:1.9").setFile(a1.toFile()),
+                    new DefaultArtifact("g:some-maven-plugin:1").setFile(plugin.toFile())));
+        }
+
+        String metadata = Files.readString(target.resolve("g/a1/maven-metadata.xml"), StandardCharsets.UTF_8);
+        assertTrue(metadata.contains("<latest>1.10</latest>"));
+        assertTrue(metadata.contains("<release>1.10</release>"));
+        assertTrue(metadata.indexOf("<version>1.9</version>") < metadata.indexOf("<version>1.10</version>"));
+        String groupMetadata = Files.readString(target.resolve("g/maven-metadata.xml"), StandardCharsets.UTF_8);
+        assertTrue(groupMetadata.contains("<prefix>some</prefix>"));
+        assertTrue(groupMetadata.contains("<artifactId>some-maven-plugin</artifactId>"));
+        assertFalse(groupMetadata.contains("a1"));
+
+        Path a1target = target.resolve("g/a1/1.9/a1-1.9.jar");
+        assertEquals(
+                Files.readString(a1target.resolveSibling("a1-1.9.jar.sha1"), StandardCharsets.UTF_8),
+                Checksums.calculate(a1target, Checksums.SHA_1));
+        assertTrue(Files.isRegularFile(a1target.resolveSibling("a1-1.9.jar.md5")));
+        assertTrue(Files.isRegularFile(a1target.resolveSibling("a1-1.9.jar.sha256")));
+        assertTrue(Files.isRegularFile(target.resolve("g/a1/maven-metadata.xml.sha1")));
+        assertTrue(Files.isRegularFile(target.resolve("g/maven-metadata.xml.sha1")));
+
+        // second run merges with existing metadata
+        try (DirectorySink sink = DirectorySink.repositoryWithMetadata(
+                new NullOutput(), target, DirectorySink.DEFAULT_REPOSITORY_CHECKSUMS, false)) {
+            sink.accept(new DefaultArtifact("g:a1:2").setFile(a1.toFile()));
+        }
+        metadata = Files.readString(target.resolve("g/a1/maven-metadata.xml"), StandardCharsets.UTF_8);
+        assertTrue(metadata.contains("<version>1.9</version>"));
+        assertTrue(metadata.contains("<latest>2</latest>"));
+    }
+
     @Test
     void flatSameADifferentGAccepted(@TempDir Path source, @TempDir Path target) throws IOException {
         sameADifferentGAccepted(
@@ -85,4 +138,78 @@ public class DirectorySinkTest {
                     new DefaultArtifact("g2:a1:1").setFile(a2.toFile())));
         }
     }
+
+    @Test
+    void upToDateOverwritePrevented(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1");
+        Path a2 = source.resolve("a2");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Files.writeString(a2, "two", StandardCharsets.UTF_8);
+        try (DirectorySink sink = DirectorySink.flat(new NullOutput(), target, ArtifactNameMapper.A())) {
+            sink.accept(new DefaultArtifact("g1:a:1").setFile(a1.toFile()));
+        }
+        // plain rerun: existing file is not overwritten
+        try (DirectorySink sink = DirectorySink.flat(new NullOutput(), target, ArtifactNameMapper.A())) {
+            assertThrows(
+                    FileAlreadyExistsException.class,
+                    () -> sink.accept(new DefaultArtifact("g1:a:1").setFile(a1.toFile())));
+        }
+        // resumed rerun: first is up to date, second maps to same name
+        try (DirectorySink sink = DirectorySink.flat(new NullOutput(), target, ArtifactNameMapper.A())) {
+            sink.journaled(true, p -> {});
+            sink.accept(new DefaultArtifact("g1:a:1").setFile(a1.toFile()));
+            IOException e = assertThrows(
+                    IOException.class, () -> sink.accept(new DefaultArtifact("g2:a:1").setFile(a2.toFile())));
+            assertEquals("Overwrite prevented; check mappings", e.getMessage());
+        }
+        assertEquals("one", Files.readString(target.resolve("a"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void staged(@TempDir Path source, @TempDir Path parent) throws IOException {
+        Path a1 = source.resolve("a1");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Path target = parent.resolve("target");
+
+        try (DirectorySink sink = DirectorySink.flat(new NullOutput(), target, ArtifactNameMapper.GACE(), true)) {
+            sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+            // nothing visible until closed
+            assertFalse(Files.exists(target));
+        }
+        assertEquals(Files.readString(target.resolve("g.a1.jar"), StandardCharsets.UTF_8), "one");
+        try (Stream<Path> siblings = Files.list(parent)) {
+            assertEquals(1L, siblings.count());
+        }
+
+        Path failed = parent.resolve("failed");
+        DirectorySink sink = DirectorySink.flat(new NullOutput(), failed, ArtifactNameMapper.GACE(), true);
+        sink.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+        sink.cleanup(new IOException("boom"));
+        assertFalse(Files.exists(failed));
+        // staging directory is gone by the time cleanup returns
+        try (Stream<Path> siblings = Files.list(parent)) {
+            assertEquals(1L, siblings.count());
+        }
+
+        // target appeared meanwhile, publishing fails: staging directory is left to be discarded
+        Path raced = parent.resolve("raced");
+        DirectorySink racing = DirectorySink.flat(new NullOutput(), raced, ArtifactNameMapper.GACE(), true);
+        racing.accept(new DefaultArtifact("g:a1:1").setFile(a1.toFile()));
+        Files.createDirectories(raced.resolve("other"));
+        assertThrows(IOException.class, racing::close);
+        racing.cleanup(new IOException("boom"));
+        try (Stream<Path> siblings = Files.list(parent)) {
+            assertEquals(2L, siblings.count());
+        }
+
+        if (target.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            // same permissions as any other new directory, not owner only of temporary directories
+            Path plain = Files.createDirectory(parent.resolve("plain"));
+            assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(target));
+        }
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> DirectorySink.flat(new NullOutput(), target, ArtifactNameMapper.GACE(), true));
+    }
 }
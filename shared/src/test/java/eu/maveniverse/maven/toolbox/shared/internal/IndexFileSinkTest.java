@@ -10,11 +10,17 @@ package eu.maveniverse.maven.toolbox.shared.internal;
 import static org.junit.jupiter.api.Assertions.*;
 
 import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -74,4 +80,35 @@ public class IndexFileSinkTest {
         assertTrue(lines.contains("g:a1:jar:1"));
         assertTrue(lines.contains("g:a2:jar:1"));
     }
+
+    @Test
+    void columnsGzip(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1-1.jar");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Files.writeString(source.resolve("_remote.repositories"), "a1-1.jar>central=\n", StandardCharsets.UTF_8);
+        Path indexFile = target.resolve("index.txt.gz");
+        try (IndexFileSink sink = IndexFileSink.index(
+                new NullOutput(),
+                indexFile,
+                false,
+                true,
+                Arrays.asList(IndexFileSink.Column.SIZE, IndexFileSink.Column.SHA1, IndexFileSink.Column.REPOSITORY))) {
+            sink.accept(
+                    Arrays.asList(new DefaultArtifact("g:a1:1").setFile(a1.toFile()), new DefaultArtifact("g:a2:1")));
+        }
+
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(Files.newInputStream(indexFile)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        assertEquals(
+                Arrays.asList(
+                        "g:a1:jar:1\t3\t" + Checksums.calculate(a1, Checksums.SHA_1) + "\tcentral",
+                        "g:a2:jar:1\t-\t-\t-"),
+                lines);
+        try (Stream<Path> files = Files.list(target)) {
+            assertEquals(1, files.count());
+        }
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournalingSinkTest {
+    private static Artifact artifact(Path source, String gav, String content) throws IOException {
+        Path file = source.resolve(gav.replace(':', '-'));
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return new DefaultArtifact(gav).setFile(file.toFile());
+    }
+
+    @Test
+    void resume(@TempDir Path source, @TempDir Path target) throws Exception {
+        Artifact a1 = artifact(source, "g:a1:1", "one");
+        Artifact a2 = artifact(source, "g:a2:1", "two");
+        Artifact a3 = artifact(source, "g:a3:1", "three");
+        Path journal = target.resolve("journal.tsv");
+        Path directory = target.resolve("out");
+
+        // interrupted run: a1 completed, a2 copied but process was killed before it was recorded
+        DirectorySink directorySink = DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE());
+        JournalingSink sink = JournalingSink.journaling(new NullOutput(), journal, false, directorySink);
+        sink.accept(a1);
+        directorySink.accept(a2);
+        assertEquals(1, Files.readAllLines(journal).size());
+
+        // resumed run: a1 is skipped, a2 is found up to date in directory, a3 is new
+        List<Artifact> delegated = new ArrayList<>();
+        ArtifactSink recording =
+                new ArtifactSinks.DelegatingArtifactSink(
+                        DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE())) {
+                    @Override
+                    public void accept(Artifact artifact) throws IOException {
+                        delegated.add(artifact);
+                        super.accept(artifact);
+                    }
+                };
+        try (JournalingSink resumed = JournalingSink.journaling(new NullOutput(), journal, true, recording)) {
+            resumed.accept(Arrays.asList(a1, a2, a3));
+            assertEquals(1, resumed.getSkipped());
+            assertEquals(2, resumed.getRecorded());
+        }
+        assertEquals(Arrays.asList(a2, a3), delegated);
+        assertEquals("two", Files.readString(directory.resolve("g.a2.jar"), StandardCharsets.UTF_8));
+        assertEquals("three", Files.readString(directory.resolve("g.a3.jar"), StandardCharsets.UTF_8));
+        assertEquals(3, Files.readAllLines(journal).size());
+
+        // not resuming discards journal
+        try (JournalingSink fresh =
+                JournalingSink.journaling(new NullOutput(), journal, false, ArtifactSinks.nullArtifactSink())) {
+            fresh.accept(a1);
+        }
+        assertEquals(1, Files.readAllLines(journal).size());
+    }
+
+    @Test
+    void cleanupKeepsCompleted(@TempDir Path source, @TempDir Path target) throws Exception {
+        Artifact a1 = artifact(source, "g:a1:1", "one");
+        Artifact a2 = artifact(source, "g:a2:1", "two");
+        Path journal = target.resolve("journal.tsv");
+        Path directory = target.resolve("out");
+        try (JournalingSink sink = JournalingSink.journaling(
+                new NullOutput(),
+                journal,
+                false,
+                DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE()))) {
+            sink.accept(a1);
+        }
+
+        JournalingSink sink = JournalingSink.journaling(
+                new NullOutput(),
+                journal,
+                true,
+                DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE()));
+        sink.accept(a2);
+        assertEquals(2, Files.readAllLines(journal).size());
+        sink.cleanup(new IOException("boom"));
+        assertEquals(2, Files.readAllLines(journal).size());
+        assertTrue(Files.exists(directory.resolve("g.a2.jar")));
+        assertTrue(Files.exists(directory.resolve("g.a1.jar")));
+
+        // target of a1 vanished: it is not skipped
+        Files.delete(directory.resolve("g.a1.jar"));
+        try (JournalingSink resumed = JournalingSink.journaling(
+                new NullOutput(),
+                journal,
+                true,
+                DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE()))) {
+            resumed.accept(Arrays.asList(a1, a2));
+            assertEquals(1, resumed.getSkipped());
+            assertEquals(1, resumed.getRecorded());
+        }
+        assertEquals("one", Files.readString(directory.resolve("g.a1.jar"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void cleanupRollsBackJournal(@TempDir Path source, @TempDir Path target) throws Exception {
+        Artifact a1 = artifact(source, "g:a1:1", "one");
+        Artifact a2 = artifact(source, "g:a2:1", "two");
+        Path journal = target.resolve("journal.tsv");
+        try (JournalingSink sink =
+                JournalingSink.journaling(new NullOutput(), journal, false, ArtifactSinks.nullArtifactSink())) {
+            sink.accept(a1);
+        }
+
+        JournalingSink sink =
+                JournalingSink.journaling(new NullOutput(), journal, true, ArtifactSinks.nullArtifactSink());
+        sink.accept(a2);
+        assertEquals(2, Files.readAllLines(journal).size());
+        sink.cleanup(new IOException("boom"));
+        assertEquals(1, Files.readAllLines(journal).size());
+    }
+
+    @Test
+    void composition(@TempDir Path source, @TempDir Path target) throws Exception {
+        Artifact a1 = artifact(source, "g:a1:1", "one");
+        Artifact a2 = artifact(source, "g:a2:1", "two");
+        Path journal = target.resolve("journal.tsv");
+        Path flat = target.resolve("flat");
+        Path mapped = target.resolve("mapped");
+
+        JournalingSink sink =
+                JournalingSink.journaling(new NullOutput(), journal, false, teeOfDirectories(flat, mapped));
+        sink.accept(a1);
+        sink.accept(a2);
+        // both targets of a1 are recorded, a2 is not matched by first
+        List<String> lines = Files.readAllLines(journal);
+        assertEquals(2, lines.size());
+        assertEquals(9, lines.get(0).split("\t").length);
+        assertEquals(6, lines.get(1).split("\t").length);
+        // composition of directory sinks only: completed work and journal are kept
+        sink.cleanup(new IOException("boom"));
+        assertEquals(2, Files.readAllLines(journal).size());
+        assertTrue(Files.exists(flat.resolve("g.a1.jar")));
+        assertTrue(Files.exists(mapped.resolve("g.a2.jar")));
+
+        // one of targets of a1 vanished: it is not skipped
+        Files.delete(mapped.resolve("g.a1.jar"));
+        try (JournalingSink resumed =
+                JournalingSink.journaling(new NullOutput(), journal, true, teeOfDirectories(flat, mapped))) {
+            resumed.accept(Arrays.asList(a1, a2));
+            assertEquals(1, resumed.getSkipped());
+            assertEquals(1, resumed.getRecorded());
+        }
+        assertEquals("one", Files.readString(mapped.resolve("g.a1.jar"), StandardCharsets.UTF_8));
+    }
+
+    private static ArtifactSink teeOfDirectories(Path flat, Path mapped) throws IOException {
+        return ArtifactSinks.teeArtifactSink(
+                ArtifactSinks.matchingArtifactSink(
+                        a -> a.getArtifactId().equals("a1"),
+                        DirectorySink.flat(new NullOutput(), flat, ArtifactNameMapper.GACE())),
+                ArtifactSinks.mappingArtifactSink(
+                        a -> a.setVersion("2"),
+                        DirectorySink.flat(new NullOutput(), mapped, ArtifactNameMapper.GACE())));
+    }
+
+    @Test
+    void compositionRollsBack(@TempDir Path source, @TempDir Path target) throws Exception {
+        Artifact a1 = artifact(source, "g:a1:1", "one");
+        Path journal = target.resolve("journal.tsv");
+        Path directory = target.resolve("out");
+        JournalingSink sink = JournalingSink.journaling(
+                new NullOutput(),
+                journal,
+                false,
+                ArtifactSinks.teeArtifactSink(
+                        DirectorySink.flat(new NullOutput(), directory, ArtifactNameMapper.GACE()),
+                        ArtifactSinks.countingArtifactSink(new NullOutput())));
+        sink.accept(a1);
+        assertEquals(1, Files.readAllLines(journal).size());
+        // not only directory sinks: delegate is rolled back along with journal
+        sink.cleanup(new IOException("boom"));
+        assertEquals(0, Files.readAllLines(journal).size());
+        assertFalse(Files.exists(directory.resolve("g.a1.jar")));
+    }
+
+    @Test
+    void stagedRejected(@TempDir Path target) throws IOException {
+        DirectorySink staged =
+                DirectorySink.flat(new NullOutput(), target.resolve("out"), ArtifactNameMapper.GACE(), true);
+        try {
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> JournalingSink.journaling(new NullOutput(), target.resolve("journal.tsv"), false, staged));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> JournalingSink.journaling(
+                            new NullOutput(),
+                            target.resolve("journal.tsv"),
+                            false,
+                            ArtifactSinks.teeArtifactSink(
+                                    ArtifactSinks.nullArtifactSink(),
+                                    ArtifactSinks.matchingArtifactSink(a -> true, staged))));
+        } finally {
+            staged.cleanup(null);
+        }
+    }
+}
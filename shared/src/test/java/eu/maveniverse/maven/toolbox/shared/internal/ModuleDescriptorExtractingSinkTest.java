@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ModuleDescriptorExtractingSinkTest {
+    private static Path jar(Path path, String automaticModuleName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (automaticModuleName != null) {
+            manifest.getMainAttributes().putValue("Automatic-Module-Name", automaticModuleName);
+        }
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path), manifest)) {
+            jar.putNextEntry(new JarEntry("org/foo/Foo.class"));
+            jar.write(new byte[] {1, 2, 3});
+        }
+        return path;
+    }
+
+    @Test
+    void automaticModuleName(@TempDir Path source) throws IOException {
+        for (String fileName : new String[] {
+            "foo-bar-1.0.jar", "commons-lang3-3.12.0.jar", "guava-31.1-jre.jar", "a--b..c_-.jar", "foo.jar"
+        }) {
+            String expected = ModuleFinder.of(jar(source.resolve(fileName), null))
+                    .findAll()
+                    .iterator()
+                    .next()
+                    .descriptor()
+                    .name();
+            assertEquals(expected, ModuleDescriptorExtractingSink.automaticModuleName(fileName), fileName);
+        }
+        assertNull(ModuleDescriptorExtractingSink.automaticModuleName("1foo.jar"));
+        assertNull(ModuleDescriptorExtractingSink.automaticModuleName("foo-int.jar"));
+    }
+
+    @Test
+    void extract(@TempDir Path source, @TempDir Path cacheDir) throws Exception {
+        Path module = Paths.get(
+                Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Artifact moduleArtifact = new DefaultArtifact("g:module:1.0").setFile(module.toFile());
+        Artifact manifestArtifact = new DefaultArtifact("g:manifest:1.0")
+                .setFile(jar(source.resolve("manifest-1.0.jar"), "org.foo.manifest")
+                        .toFile());
+        Artifact filenameArtifact = new DefaultArtifact("g:filename:1.0")
+                .setFile(jar(source.resolve("foo-bar-1.0.jar"), null).toFile());
+        Path pom = source.resolve("foo-1.0.pom");
+        Files.writeString(pom, "<project/>", StandardCharsets.UTF_8);
+        Artifact pomArtifact = new DefaultArtifact("g:foo:pom:1.0").setFile(pom.toFile());
+
+        Path cache = cacheDir.resolve("cache/module-descriptors.tsv");
+        try (ModuleDescriptorExtractingSink sink = new ModuleDescriptorExtractingSink(new NullOutput(), cache)) {
+            sink.accept(moduleArtifact);
+            sink.accept(manifestArtifact);
+            sink.accept(filenameArtifact);
+            sink.accept(pomArtifact);
+
+            assertEquals(
+                    "org.junit.jupiter.api",
+                    sink.getModuleDescriptor(moduleArtifact).name());
+            assertFalse(sink.getModuleDescriptor(moduleArtifact).automatic());
+            assertEquals(
+                    "org.foo.manifest",
+                    sink.getModuleDescriptor(manifestArtifact).name());
+            assertTrue(sink.getModuleDescriptor(manifestArtifact).automatic());
+            assertEquals("MANIFEST", sink.getModuleDescriptor(manifestArtifact).moduleNameSource());
+            assertEquals("foo.bar", sink.getModuleDescriptor(filenameArtifact).name());
+            assertEquals("FILENAME", sink.getModuleDescriptor(filenameArtifact).moduleNameSource());
+            assertNull(sink.getModuleDescriptor(pomArtifact));
+            assertEquals(4, sink.getModuleDescriptors().size());
+        }
+        // file name derived module names are not cached
+        assertEquals(3, Files.readAllLines(cache, StandardCharsets.UTF_8).size());
+
+        // cache is keyed by content checksum: cached entry is used instead of extraction
+        Files.writeString(
+                cache,
+                Checksums.calculate(manifestArtifact.getFile().toPath(), Checksums.SHA_1)
+                        + "\tcached.name\tMANIFEST\n"
+                        + Checksums.calculate(filenameArtifact.getFile().toPath(), Checksums.SHA_1)
+                        + "\tstale.name\tFILENAME\n",
+                StandardCharsets.UTF_8);
+        Path renamed = Files.copy(filenameArtifact.getFile().toPath(), source.resolve("baz-1.0.jar"));
+        try (ModuleDescriptorExtractingSink sink = new ModuleDescriptorExtractingSink(new NullOutput(), cache)) {
+            Artifact copyArtifact = new DefaultArtifact("g:copy:1.0").setFile(manifestArtifact.getFile());
+            Artifact renamedArtifact = new DefaultArtifact("g:renamed:1.0").setFile(renamed.toFile());
+            sink.accept(copyArtifact);
+            sink.accept(renamedArtifact);
+            sink.accept(pomArtifact);
+            assertEquals("cached.name", sink.getModuleDescriptor(copyArtifact).name());
+            assertEquals("baz", sink.getModuleDescriptor(renamedArtifact).name());
+        }
+        // cache file is merged: existing entry is kept, stale file name entry dropped, new one added
+        assertEquals(2, Files.readAllLines(cache, StandardCharsets.UTF_8).size());
+    }
+}
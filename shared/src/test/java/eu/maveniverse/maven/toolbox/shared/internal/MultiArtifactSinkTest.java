@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactMatcher;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+
+public class MultiArtifactSinkTest {
+    private static class RecordingSink implements ArtifactSink {
+        private final List<String> accepted = new ArrayList<>();
+
+        @Override
+        public void accept(Artifact artifact) {
+            accepted.add(artifact.toString());
+        }
+    }
+
+    @Test
+    void firstMatchWins() throws Exception {
+        RecordingSink snapshots = new RecordingSink();
+        RecordingSink exact = new RecordingSink();
+        RecordingSink longPrefix = new RecordingSink();
+        RecordingSink shortPrefix = new RecordingSink();
+        RecordingSink poms = new RecordingSink();
+        RecordingSink rest = new RecordingSink();
+        try (MultiArtifactSink sink = MultiArtifactSink.multiBuilder(new NullOutput())
+                .addSink(ArtifactMatcher.snapshot(), snapshots)
+                .addSink(ArtifactMatcher.artifact("org.foo:*:*"), exact)
+                .addSink(ArtifactMatcher.artifact("org.foo.bar*:*:*"), longPrefix)
+                .addSink(ArtifactMatcher.artifact("org.*:*:*"), shortPrefix)
+                .addSink(ArtifactMatcher.artifact("*:*:pom:*"), poms)
+                .addSink(ArtifactMatcher.any(), rest)
+                .build()) {
+            sink.accept(new DefaultArtifact("org.foo:a:1.0-SNAPSHOT"));
+            sink.accept(new DefaultArtifact("org.foo:a:1.0"));
+            sink.accept(new DefaultArtifact("org.foo.bar:a:1.0"));
+            sink.accept(new DefaultArtifact("org.foo.baz:a:1.0"));
+            sink.accept(new DefaultArtifact("org.foo.bar:a:pom:1.0"));
+            sink.accept(new DefaultArtifact("com.foo:a:pom:1.0"));
+            sink.accept(new DefaultArtifact("com.foo:a:1.0"));
+        }
+        assertEquals(List.of("org.foo:a:jar:1.0-SNAPSHOT"), snapshots.accepted);
+        assertEquals(List.of("org.foo:a:jar:1.0"), exact.accepted);
+        assertEquals(List.of("org.foo.bar:a:jar:1.0", "org.foo.bar:a:pom:1.0"), longPrefix.accepted);
+        assertEquals(List.of("org.foo.baz:a:jar:1.0"), shortPrefix.accepted);
+        assertEquals(List.of("com.foo:a:pom:1.0"), poms.accepted);
+        assertEquals(List.of("com.foo:a:jar:1.0"), rest.accepted);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.mima.context.Context;
+import eu.maveniverse.maven.mima.context.ContextOverrides;
+import eu.maveniverse.maven.mima.context.Runtime;
+import eu.maveniverse.maven.mima.context.Runtimes;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PurgingSinkTest {
+    private static final String REGISTRAR = "a-1.0.jar>central=\na-1.0-sources.jar>central=\na-1.0.pom>central=\n";
+
+    private static List<Artifact> populate(Path localRepository) throws IOException {
+        Path gav = localRepository.resolve("g/a/1.0");
+        Files.createDirectories(gav);
+        for (String name : new String[] {
+            "a-1.0.jar",
+            "a-1.0.jar.sha1",
+            "a-1.0-sources.jar",
+            "a-1.0-sources.jar.sha1",
+            "a-1.0.pom",
+            "a-1.0.pom.sha1",
+            "maven-metadata-central.xml"
+        }) {
+            Files.writeString(gav.resolve(name), name, StandardCharsets.UTF_8);
+        }
+        Files.writeString(gav.resolve("_remote.repositories"), REGISTRAR, StandardCharsets.UTF_8);
+        return Arrays.asList(
+                new DefaultArtifact("g:a:1.0").setFile(gav.resolve("a-1.0.jar").toFile()),
+                new DefaultArtifact("g:a:jar:sources:1.0")
+                        .setFile(gav.resolve("a-1.0-sources.jar").toFile()));
+    }
+
+    @Test
+    void exact(@TempDir Path localRepository) throws Exception {
+        Runtime runtime = Runtimes.INSTANCE.getRuntime();
+        try (Context context = runtime.create(ContextOverrides.create()
+                .withLocalRepositoryOverride(localRepository)
+                .build())) {
+            List<Artifact> artifacts = populate(localRepository);
+            try (PurgingSink sink = PurgingSink.purging(
+                    new NullOutput(),
+                    PurgingSink.Mode.EXACT,
+                    true,
+                    false,
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    Collections.singletonList(ContextOverrides.CENTRAL),
+                    2)) {
+                sink.accept(artifacts);
+            }
+
+            Path gav = localRepository.resolve("g/a/1.0");
+            assertFalse(Files.exists(gav.resolve("a-1.0.jar")));
+            assertFalse(Files.exists(gav.resolve("a-1.0.jar.sha1")));
+            assertFalse(Files.exists(gav.resolve("a-1.0-sources.jar")));
+            assertFalse(Files.exists(gav.resolve("a-1.0-sources.jar.sha1")));
+            assertFalse(Files.exists(gav.resolve("maven-metadata-central.xml")));
+            assertTrue(Files.isRegularFile(gav.resolve("a-1.0.pom")));
+            assertTrue(Files.isRegularFile(gav.resolve("a-1.0.pom.sha1")));
+            String registrar = Files.readString(gav.resolve("_remote.repositories"), StandardCharsets.UTF_8);
+            assertFalse(registrar.contains("a-1.0.jar>"));
+            assertFalse(registrar.contains("a-1.0-sources.jar>"));
+            assertTrue(registrar.contains("a-1.0.pom>central="));
+        }
+    }
+
+    @Test
+    void whole(@TempDir Path localRepository) throws Exception {
+        Runtime runtime = Runtimes.INSTANCE.getRuntime();
+        try (Context context = runtime.create(ContextOverrides.create()
+                .withLocalRepositoryOverride(localRepository)
+                .build())) {
+            List<Artifact> artifacts = populate(localRepository);
+            try (PurgingSink sink = PurgingSink.purging(
+                    new NullOutput(),
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    Collections.singletonList(ContextOverrides.CENTRAL))) {
+                sink.accept(artifacts);
+            }
+
+            assertFalse(Files.exists(localRepository.resolve("g/a/1.0")));
+            assertTrue(Files.isDirectory(localRepository.resolve("g/a")));
+        }
+    }
+
+    @Test
+    void dryRun(@TempDir Path localRepository) throws Exception {
+        Runtime runtime = Runtimes.INSTANCE.getRuntime();
+        try (Context context = runtime.create(ContextOverrides.create()
+                .withLocalRepositoryOverride(localRepository)
+                .build())) {
+            List<Artifact> artifacts = populate(localRepository);
+            PurgingSink.Plan plan;
+            try (PurgingSink sink = PurgingSink.purging(
+                    new NullOutput(),
+                    PurgingSink.Mode.EXACT,
+                    true,
+                    true,
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    Collections.singletonList(ContextOverrides.CENTRAL),
+                    2)) {
+                sink.accept(artifacts);
+                plan = sink.getPlan();
+            }
+
+            Path gav = localRepository.resolve("g/a/1.0");
+            assertEquals(2, plan.getArtifacts().size());
+            assertEquals(
+                    new TreeSet<>(Arrays.asList(
+                            gav.resolve("a-1.0.jar"),
+                            gav.resolve("a-1.0.jar.sha1"),
+                            gav.resolve("a-1.0-sources.jar"),
+                            gav.resolve("a-1.0-sources.jar.sha1"),
+                            gav.resolve("maven-metadata-central.xml"))),
+                    plan.getFiles().keySet());
+            assertEquals(88L, plan.getTotalSize());
+            assertEquals(
+                    Arrays.asList("a-1.0-sources.jar>central", "a-1.0.jar>central"),
+                    plan.getRegistrarEntries().get(gav.resolve("_remote.repositories")));
+            assertEquals(Collections.singleton(gav.resolve("maven-metadata-central.xml")), plan.getMetadata());
+            // nothing touched
+            assertTrue(Files.isRegularFile(gav.resolve("a-1.0.jar")));
+            assertTrue(Files.isRegularFile(gav.resolve("maven-metadata-central.xml")));
+            assertEquals(REGISTRAR, Files.readString(gav.resolve("_remote.repositories"), StandardCharsets.UTF_8));
+
+            try (PurgingSink sink = PurgingSink.purging(
+                    new NullOutput(),
+                    PurgingSink.Mode.WHOLE,
+                    true,
+                    true,
+                    context.repositorySystem(),
+                    context.repositorySystemSession(),
+                    Collections.singletonList(ContextOverrides.CENTRAL),
+                    2)) {
+                sink.accept(artifacts);
+                plan = sink.getPlan();
+            }
+            assertEquals(Collections.singleton(gav), plan.getDirectories());
+            assertEquals(8, plan.getFiles().size());
+            assertEquals(
+                    3,
+                    plan.getRegistrarEntries()
+                            .get(gav.resolve("_remote.repositories"))
+                            .size());
+            assertTrue(Files.isDirectory(gav));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RepackagingSinkTest {
+    private static void jar(Path jar, Map<String, String> entries) throws IOException {
+        try (OutputStream out = Files.newOutputStream(jar);
+                ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zos.putArchiveEntry(new ZipArchiveEntry(entry.getKey()));
+                zos.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zos.closeArchiveEntry();
+            }
+        }
+    }
+
+    private static String read(ZipFile zipFile, String name) throws IOException {
+        try (InputStream is = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void repackage(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path j1 = source.resolve("j1.jar");
+        LinkedHashMap<String, String> e1 = new LinkedHashMap<>();
+        e1.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        e1.put("META-INF/services/a.Service", "a.Impl1");
+        e1.put("META-INF/J1.SF", "signature");
+        e1.put("a/One.class", "one");
+        e1.put("a/Same.class", "same");
+        e1.put("a/Conflict.class", "first");
+        jar(j1, e1);
+        Path j2 = source.resolve("j2.jar");
+        LinkedHashMap<String, String> e2 = new LinkedHashMap<>();
+        e2.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nOther: true\n");
+        e2.put("META-INF/services/a.Service", "a.Impl2");
+        e2.put("a/Two.class", "two");
+        e2.put("a/Same.class", "same");
+        e2.put("a/Conflict.class", "second");
+        e2.put("a/Excluded.class", "excluded");
+        jar(j2, e2);
+
+        Path jar = target.resolve("out.jar");
+        RepackagingSink sink = RepackagingSink.repackage(
+                new NullOutput(),
+                jar,
+                Collections.emptyList(),
+                Collections.singletonList("**/Excluded.class"),
+                Collections.emptyList());
+        try (sink) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:j1:1").setFile(j1.toFile()),
+                    new DefaultArtifact("g:j2:1").setFile(j2.toFile())));
+        }
+        assertEquals(1, sink.getConflicts().size());
+        assertTrue(sink.getConflicts().get(0).startsWith("a/Conflict.class"));
+
+        try (ZipFile zipFile = ZipFile.builder().setPath(jar).get()) {
+            assertEquals("Manifest-Version: 1.0\n", read(zipFile, "META-INF/MANIFEST.MF"));
+            assertEquals("a.Impl1\na.Impl2\n", read(zipFile, "META-INF/services/a.Service"));
+            assertNull(zipFile.getEntry("META-INF/J1.SF"));
+            assertNull(zipFile.getEntry("a/Excluded.class"));
+            assertEquals("one", read(zipFile, "a/One.class"));
+            assertEquals("two", read(zipFile, "a/Two.class"));
+            assertEquals("same", read(zipFile, "a/Same.class"));
+            assertEquals("first", read(zipFile, "a/Conflict.class"));
+        }
+    }
+
+    @Test
+    void glob() {
+        assertTrue(RepackagingSink.glob("META-INF/*.SF").test("META-INF/A.SF"));
+        assertFalse(RepackagingSink.glob("META-INF/*.SF").test("META-INF/x/A.SF"));
+        assertTrue(RepackagingSink.glob("META-INF/**").test("META-INF/x/A.SF"));
+        assertTrue(RepackagingSink.glob("a/?.class").test("a/B.class"));
+        assertFalse(RepackagingSink.glob("a/?.class").test("a/BC.class"));
+    }
+}
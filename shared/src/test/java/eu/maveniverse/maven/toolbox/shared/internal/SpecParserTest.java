@@ -9,6 +9,7 @@ package eu.maveniverse.maven.toolbox.shared.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -80,4 +81,41 @@ public class SpecParserTest {
 
         root.accept(new SpecParser.Dump());
     }
+
+    @Test
+    void immutableAndCached() {
+        SpecParser.Op root = SpecParser.parse("a(b(c),d)");
+        assertSame(root, SpecParser.parse("a(b(c),d)"));
+        assertThrows(
+                UnsupportedOperationException.class, () -> root.getChildren().clear());
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> root.getChildren().get(0).getChildren().clear());
+        assertThrows(IllegalArgumentException.class, () -> SpecParser.parse("a()b()"));
+        assertThrows(IllegalArgumentException.class, () -> SpecParser.parse("a())"));
+    }
+
+    @Test
+    void longLiteral() {
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < 1_000_000; i++) {
+            literal.append('x');
+        }
+        SpecParser.Op root = SpecParser.parse("a(" + literal + ")");
+        assertEquals(literal.toString(), root.getChildren().get(0).getValue());
+    }
+
+    @Test
+    void quoted() {
+        SpecParser.Op root = SpecParser.parse("a('b(c), d', \"it''s\", 'it''s', '', x?y)");
+        assertEquals(5, root.getChildren().size());
+        assertEquals("b(c), d", root.getChildren().get(0).getValue());
+        assertEquals("it''s", root.getChildren().get(1).getValue());
+        assertEquals("it's", root.getChildren().get(2).getValue());
+        assertEquals("", root.getChildren().get(3).getValue());
+        assertEquals("x?y", root.getChildren().get(4).getValue());
+
+        assertThrows(IllegalArgumentException.class, () -> SpecParser.parse("a('b)"));
+        assertThrows(IllegalArgumentException.class, () -> SpecParser.parse("'a'()"));
+    }
 }
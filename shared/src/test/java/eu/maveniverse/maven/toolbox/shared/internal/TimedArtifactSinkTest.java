@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TimedArtifactSinkTest {
+    @Test
+    void timed(@TempDir Path source, @TempDir Path target) throws Exception {
+        Path file = source.resolve("a");
+        Files.writeString(file, "0123456789", StandardCharsets.UTF_8);
+
+        ArtifactSinks.CountingArtifactSink counting = ArtifactSinks.countingArtifactSink(new NullOutput());
+        TimedArtifactSink child = TimedArtifactSink.timed("tee/counting[0]", counting);
+        TimedArtifactSink parent = TimedArtifactSink.timed("tee", ArtifactSinks.teeArtifactSink(child));
+        Path report = target.resolve("timing.tsv");
+        try (TimedArtifactSink.Reporting sink =
+                TimedArtifactSink.reporting(new NullOutput(), Arrays.asList(child, parent), report, parent)) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a:1").setFile(file.toFile()),
+                    new DefaultArtifact("g:b:1").setFile(file.toFile()),
+                    new DefaultArtifact("g:c:1")));
+        }
+
+        assertEquals(3, counting.count());
+        assertEquals(3, parent.getCount());
+        assertEquals(20L, parent.getBytes());
+        assertTrue(parent.getAcceptNanos() >= child.getAcceptNanos());
+        assertTrue(parent.getLatencyPercentile(50) <= parent.getLatencyPercentile(100));
+
+        List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("sink\tartifacts\tbytes\t"));
+        assertTrue(lines.get(1).startsWith("tee/counting[0]\t3\t20\t"));
+        assertTrue(lines.get(2).startsWith("tee\t3\t20\t"));
+    }
+
+    @Test
+    void latencyPercentiles() {
+        TimedArtifactSink timed = TimedArtifactSink.timed("null", ArtifactSinks.nullArtifactSink());
+        assertEquals(0L, timed.getLatencyPercentile(50));
+        for (long micros = 1; micros <= 1000; micros++) {
+            timed.latency(micros * 1000L);
+        }
+        // histogram buckets are within 12.5% of exact value
+        for (int percentile : new int[] {1, 50, 90, 99}) {
+            long exact = percentile * 10L * 1000L;
+            long approximate = timed.getLatencyPercentile(percentile);
+            assertTrue(approximate >= exact && approximate <= exact * 1.125, percentile + ": " + approximate);
+        }
+        assertEquals(1_000_000L, timed.getLatencyPercentile(100));
+
+        for (long nanos : new long[] {0L, 7L, 8L, 1_234_567L, Long.MAX_VALUE}) {
+            int bucket = TimedArtifactSink.bucket(nanos);
+            assertTrue(nanos <= TimedArtifactSink.bucketUpperBound(bucket));
+            assertTrue(bucket == 0 || nanos > TimedArtifactSink.bucketUpperBound(bucket - 1));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.maveniverse.maven.toolbox.shared.ArtifactNameMapper;
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class UnpackSinkTest {
+    private static void zip(Path zip, Map<String, String> entries) throws IOException {
+        try (OutputStream out = Files.newOutputStream(zip);
+                ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zos.putArchiveEntry(new ZipArchiveEntry(entry.getKey()));
+                zos.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zos.closeArchiveEntry();
+            }
+        }
+    }
+
+    @Test
+    void unpack(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path z1 = source.resolve("z1.zip");
+        zip(z1, Map.of("one.txt", "one", "dir/two.txt", "two"));
+        try (UnpackSink sink = UnpackSink.unpack(new NullOutput(), target, ArtifactNameMapper.A(), false)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        assertEquals("one", Files.readString(target.resolve("z1/one.txt"), StandardCharsets.UTF_8));
+        assertEquals("two", Files.readString(target.resolve("z1/dir/two.txt"), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(target.resolve("z1").resolve(UnpackSink.MARKER_FILE_NAME)));
+    }
+
+    @Test
+    void concurrentSharedRoot(@TempDir Path source, @TempDir Path target) throws Exception {
+        try (AsyncArtifactSink sink = ArtifactSinks.asyncArtifactSink(
+                UnpackSink.unpack(new NullOutput(), target, a -> "shared", false, UnpackSink.Mode.SKIP_UNCHANGED),
+                4,
+                4)) {
+            for (int i = 0; i < 16; i++) {
+                Path zip = source.resolve("z" + i + ".zip");
+                zip(zip, Map.of("entry" + i + ".txt", "content" + i));
+                sink.accept(new DefaultArtifact("g:z" + i + ":zip:1").setFile(zip.toFile()));
+            }
+        }
+        Properties marker = new Properties();
+        try (InputStream input = Files.newInputStream(target.resolve("shared").resolve(UnpackSink.MARKER_FILE_NAME))) {
+            marker.load(input);
+        }
+        assertEquals(16, marker.size());
+    }
+
+    @Test
+    void skipUnchanged(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path z1 = source.resolve("z1.zip");
+        zip(z1, Map.of("one.txt", "one"));
+        try (UnpackSink sink = UnpackSink.unpack(
+                new NullOutput(), target, ArtifactNameMapper.A(), true, UnpackSink.Mode.SKIP_UNCHANGED)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        Path one = target.resolve("z1/one.txt");
+        assertTrue(Files.isRegularFile(target.resolve("z1").resolve(UnpackSink.MARKER_FILE_NAME)));
+
+        // unchanged source: root is skipped, local modification survives
+        Files.writeString(one, "modified", StandardCharsets.UTF_8);
+        try (UnpackSink sink = UnpackSink.unpack(
+                new NullOutput(), target, ArtifactNameMapper.A(), true, UnpackSink.Mode.SKIP_UNCHANGED)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        assertEquals("modified", Files.readString(one, StandardCharsets.UTF_8));
+
+        // changed source: root is re-extracted
+        zip(z1, Map.of("one.txt", "changed"));
+        try (UnpackSink sink = UnpackSink.unpack(
+                new NullOutput(), target, ArtifactNameMapper.A(), true, UnpackSink.Mode.SKIP_UNCHANGED)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        assertEquals("changed", Files.readString(one, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void cleanChanged(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path z1 = source.resolve("z1.zip");
+        zip(z1, Map.of("one.txt", "one", "two.txt", "two"));
+        try (UnpackSink sink = UnpackSink.unpack(
+                new NullOutput(), target, ArtifactNameMapper.A(), true, UnpackSink.Mode.CLEAN_CHANGED)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        assertTrue(Files.isRegularFile(target.resolve("z1/two.txt")));
+
+        zip(z1, Map.of("one.txt", "changed"));
+        try (UnpackSink sink = UnpackSink.unpack(
+                new NullOutput(), target, ArtifactNameMapper.A(), true, UnpackSink.Mode.CLEAN_CHANGED)) {
+            sink.accept(new DefaultArtifact("g:z1:zip:1").setFile(z1.toFile()));
+        }
+        assertEquals("changed", Files.readString(target.resolve("z1/one.txt"), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(target.resolve("z1/two.txt")));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.maveniverse.maven.toolbox.shared.NullOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class VerifyingSinkTest {
+    @Test
+    void sidecars(@TempDir Path source) throws IOException {
+        Path a1 = source.resolve("a1.jar");
+        Path a2 = source.resolve("a2.jar");
+        Path a3 = source.resolve("a3.jar");
+        Path a4 = source.resolve("a4.jar");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Files.writeString(a4, "four", StandardCharsets.UTF_8);
+        Files.writeString(a2, "two", StandardCharsets.UTF_8);
+        Files.writeString(a3, "three", StandardCharsets.UTF_8);
+        // sidecars are laid out as artifacts in source
+        try (ChecksummingSink sink = ChecksummingSink.sidecars(
+                new NullOutput(),
+                source,
+                a -> a.getArtifactId() + "." + a.getExtension(),
+                Arrays.asList(Checksums.SHA_1, Checksums.MD5),
+                1)) {
+            sink.accept(Arrays.asList(
+                    new DefaultArtifact("g:a1:1").setFile(a1.toFile()),
+                    new DefaultArtifact("g:a2:1").setFile(a2.toFile()),
+                    new DefaultArtifact("g:a4:1").setFile(a4.toFile())));
+        }
+        // corrupt a2, lose a4
+        Files.writeString(a2, "corrupted", StandardCharsets.UTF_8);
+        Files.delete(a4);
+
+        Artifact artifact1 = new DefaultArtifact("g:a1:1").setFile(a1.toFile());
+        Artifact artifact2 = new DefaultArtifact("g:a2:1").setFile(a2.toFile());
+        Artifact artifact3 = new DefaultArtifact("g:a3:1").setFile(a3.toFile());
+        Artifact artifact4 = new DefaultArtifact("g:a4:1").setFile(a4.toFile());
+        VerifyingSink sink = VerifyingSink.sidecars(new NullOutput(), Checksums.ALGORITHMS, 2);
+        sink.accept(Arrays.asList(artifact1, artifact2, artifact3, artifact4));
+        Map<Artifact, VerifyingSink.Status> statuses = sink.getStatuses();
+        assertEquals(VerifyingSink.Status.VERIFIED, statuses.get(artifact1));
+        assertEquals(VerifyingSink.Status.MISMATCH, statuses.get(artifact2));
+        assertEquals(VerifyingSink.Status.MISSING, statuses.get(artifact3));
+        // read failure does not abort verification of others
+        assertEquals(VerifyingSink.Status.ERROR, statuses.get(artifact4));
+        IOException e = assertThrows(IOException.class, sink::close);
+        assertEquals("2 artifact(s) failed checksum verification", e.getMessage());
+    }
+
+    @Test
+    void manifest(@TempDir Path source, @TempDir Path target) throws IOException {
+        Path a1 = source.resolve("a1.jar");
+        Path a2 = source.resolve("a2.jar");
+        Files.writeString(a1, "one", StandardCharsets.UTF_8);
+        Files.writeString(a2, "two", StandardCharsets.UTF_8);
+        Artifact artifact1 = new DefaultArtifact("g:a1:1").setFile(a1.toFile());
+        Artifact artifact2 = new DefaultArtifact("g:a2:1").setFile(a2.toFile());
+        Path manifest = target.resolve("checksums.txt");
+        try (ChecksummingSink sink =
+                ChecksummingSink.manifest(new NullOutput(), manifest, ChecksummingSink.DEFAULT_ALGORITHMS, 2)) {
+            sink.accept(artifact1);
+        }
+
+        try (VerifyingSink sink = VerifyingSink.manifest(new NullOutput(), manifest, 2)) {
+            sink.accept(Arrays.asList(artifact1, artifact2));
+            Map<Artifact, VerifyingSink.Status> statuses = sink.getStatuses();
+            assertEquals(VerifyingSink.Status.VERIFIED, statuses.get(artifact1));
+            assertEquals(VerifyingSink.Status.MISSING, statuses.get(artifact2));
+        }
+    }
+}
@@ -18,6 +18,7 @@ import picocli.CommandLine;
 @CommandLine.Command(
         name = "toolbox",
         subcommands = {
+            GavClassIndexMojo.class,
             GavClasspathMojo.class,
             GavCopyMojo.class,
             GavCopyRecordedMojo.class,
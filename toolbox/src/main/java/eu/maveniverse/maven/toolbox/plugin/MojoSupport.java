@@ -22,12 +22,15 @@ import eu.maveniverse.maven.mima.context.Context;
 import eu.maveniverse.maven.mima.context.ContextOverrides;
 import eu.maveniverse.maven.mima.context.Runtime;
 import eu.maveniverse.maven.mima.context.Runtimes;
+import eu.maveniverse.maven.toolbox.shared.ArtifactSink;
 import eu.maveniverse.maven.toolbox.shared.Output;
 import eu.maveniverse.maven.toolbox.shared.Slf4jOutput;
 import eu.maveniverse.maven.toolbox.shared.ToolboxCommando;
 import eu.maveniverse.maven.toolbox.shared.ToolboxCommandoVersion;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -229,6 +232,21 @@ public abstract class MojoSupport extends AbstractMojo implements Callable<Integ
         return getOrCreate(ToolboxCommando.class, () -> ToolboxCommando.create(getRuntime(), getContext()));
     }
 
+    /**
+     * Provides {@link ArtifactSink} according to spec, journaled if journal is given.
+     */
+    protected ArtifactSink artifactSink(
+            Output output, ToolboxCommando toolboxCommando, String sinkSpec, String journal, boolean resume)
+            throws IOException {
+        if (journal == null || journal.trim().isEmpty()) {
+            if (resume) {
+                throw new IllegalArgumentException("resume requires journal");
+            }
+            return toolboxCommando.artifactSink(output, sinkSpec);
+        }
+        return toolboxCommando.artifactSink(output, sinkSpec, Paths.get(journal), resume);
+    }
+
     private void verbose(String format, Object... args) {
         if (!verbose) {
             return;
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2023-2024 Maveniverse Org.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package eu.maveniverse.maven.toolbox.plugin.gav;
+
+import eu.maveniverse.maven.toolbox.plugin.GavMojoSupport;
+import eu.maveniverse.maven.toolbox.shared.Output;
+import eu.maveniverse.maven.toolbox.shared.ToolboxCommando;
+import java.nio.file.Paths;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import picocli.CommandLine;
+
+/**
+ * Queries class index (built by "classIndex" sink) for artifacts providing classes or packages, or lists split
+ * packages.
+ */
+@CommandLine.Command(
+        name = "class-index",
+        description = "Queries class index for artifacts providing classes or packages, or lists split packages")
+@Mojo(name = "gav-class-index", requiresProject = false, threadSafe = true)
+public final class GavClassIndexMojo extends GavMojoSupport {
+    /**
+     * The class index file.
+     */
+    @CommandLine.Parameters(index = "0", description = "The class index file", arity = "1")
+    @Parameter(property = "index", required = true)
+    private String index;
+
+    /**
+     * The comma separated class or package names to look up; if none, split packages are listed.
+     */
+    @CommandLine.Parameters(
+            index = "1",
+            description = "The comma separated class or package names to look up; if none, split packages are listed",
+            arity = "0..1")
+    @Parameter(property = "names")
+    private String names;
+
+    @Override
+    protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
+        return toolboxCommando.classIndex(Paths.get(index), slurp(names), output);
+    }
+}
@@ -27,8 +27,27 @@ public final class GavCopyRecordedMojo extends GavMojoSupport {
     @Parameter(property = "sinkSpec", required = true)
     private String sinkSpec;
 
+    /**
+     * The journal file to record completed artifacts into, making the job resumable.
+     */
+    @CommandLine.Option(
+            names = {"--journal"},
+            description = "The journal file to record completed artifacts into, making the job resumable")
+    @Parameter(property = "journal")
+    private String journal;
+
+    /**
+     * Resume the job recorded in journal, skipping completed artifacts.
+     */
+    @CommandLine.Option(
+            names = {"--resume"},
+            description = "Resume the job recorded in journal, skipping completed artifacts")
+    @Parameter(property = "resume", defaultValue = "false")
+    private boolean resume;
+
     @Override
     protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
-        return toolboxCommando.copyAllRecorded(toolboxCommando.artifactSink(output, sinkSpec), true, output);
+        return toolboxCommando.copyAllRecorded(
+                artifactSink(output, toolboxCommando, sinkSpec, journal, resume), true, output);
     }
 }
@@ -57,12 +57,30 @@ public final class GavCopyTransitiveMojo extends GavMojoSupport {
     @Parameter(property = "boms")
     private String boms;
 
+    /**
+     * The journal file to record completed artifacts into, making the job resumable.
+     */
+    @CommandLine.Option(
+            names = {"--journal"},
+            description = "The journal file to record completed artifacts into, making the job resumable")
+    @Parameter(property = "journal")
+    private String journal;
+
+    /**
+     * Resume the job recorded in journal, skipping completed artifacts.
+     */
+    @CommandLine.Option(
+            names = {"--resume"},
+            description = "Resume the job recorded in journal, skipping completed artifacts")
+    @Parameter(property = "resume", defaultValue = "false")
+    private boolean resume;
+
     @Override
     protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
         return toolboxCommando.copyTransitive(
                 ResolutionScope.parse(scope),
                 toolboxCommando.loadGavs(slurp(gav), slurp(boms)),
-                toolboxCommando.artifactSink(output, sinkSpec),
+                artifactSink(output, toolboxCommando, sinkSpec, journal, resume),
                 output);
     }
 }
@@ -71,6 +71,36 @@ public final class GavDeployMojo extends GavMojoSupport {
     @Parameter(property = "javadoc")
     private File javadoc;
 
+    /**
+     * Skip release artifacts already present in remote repository with same SHA-1.
+     */
+    @CommandLine.Option(
+            names = {"--skipExisting"},
+            description = "Skip release artifacts already present in remote repository with same SHA-1")
+    @Parameter(property = "skipExisting", defaultValue = "false")
+    private boolean skipExisting;
+
+    /**
+     * The count of GAs deployed in parallel. Values above 1 deploy in per GAV batches.
+     */
+    @CommandLine.Option(
+            names = {"--parallelism"},
+            defaultValue = "1",
+            description = "The count of GAs deployed in parallel (default 1)")
+    @Parameter(property = "parallelism", defaultValue = "1")
+    private int parallelism;
+
+    /**
+     * The count of retries of batches failed due to transient transport failures. Values above 0 deploy in per GAV
+     * batches.
+     */
+    @CommandLine.Option(
+            names = {"--retries"},
+            defaultValue = "0",
+            description = "The count of retries of batches failed due to transient failures (default 0)")
+    @Parameter(property = "retries", defaultValue = "0")
+    private int retries;
+
     @Override
     protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
         ProjectArtifacts projectArtifacts = new ProjectArtifacts(gav);
@@ -85,6 +115,11 @@ public final class GavDeployMojo extends GavMojoSupport {
             projectArtifacts.addJavadoc(javadoc.toPath());
         }
         return toolboxCommando.deploy(
-                toolboxCommando.parseRemoteRepository(remoteRepositorySpec), projectArtifacts, output);
+                toolboxCommando.parseRemoteRepository(remoteRepositorySpec),
+                projectArtifacts,
+                skipExisting,
+                parallelism,
+                retries,
+                output);
     }
 }
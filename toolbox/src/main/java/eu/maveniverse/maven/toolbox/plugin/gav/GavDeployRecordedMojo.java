@@ -29,9 +29,44 @@ public final class GavDeployRecordedMojo extends GavMojoSupport {
     @Parameter(property = "remoteRepositorySpec", required = true)
     private String remoteRepositorySpec;
 
+    /**
+     * Skip release artifacts already present in remote repository with same SHA-1.
+     */
+    @CommandLine.Option(
+            names = {"--skipExisting"},
+            description = "Skip release artifacts already present in remote repository with same SHA-1")
+    @Parameter(property = "skipExisting", defaultValue = "false")
+    private boolean skipExisting;
+
+    /**
+     * The count of GAs deployed in parallel. Values above 1 deploy in per GAV batches.
+     */
+    @CommandLine.Option(
+            names = {"--parallelism"},
+            defaultValue = "1",
+            description = "The count of GAs deployed in parallel (default 1)")
+    @Parameter(property = "parallelism", defaultValue = "1")
+    private int parallelism;
+
+    /**
+     * The count of retries of batches failed due to transient transport failures. Values above 0 deploy in per GAV
+     * batches.
+     */
+    @CommandLine.Option(
+            names = {"--retries"},
+            defaultValue = "0",
+            description = "The count of retries of batches failed due to transient failures (default 0)")
+    @Parameter(property = "retries", defaultValue = "0")
+    private int retries;
+
     @Override
     protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
         return toolboxCommando.deployAllRecorded(
-                toolboxCommando.parseRemoteRepository(remoteRepositorySpec), true, output);
+                toolboxCommando.parseRemoteRepository(remoteRepositorySpec),
+                true,
+                skipExisting,
+                parallelism,
+                retries,
+                output);
     }
 }
@@ -40,6 +40,18 @@ public final class CopyTransitiveMojo extends MPMojoSupport {
     @Parameter(property = "depSpec", required = true)
     private String depSpec;
 
+    /**
+     * The journal file to record completed artifacts into, making the job resumable.
+     */
+    @Parameter(property = "journal")
+    private String journal;
+
+    /**
+     * Resume the job recorded in journal, skipping completed artifacts.
+     */
+    @Parameter(property = "resume", defaultValue = "false")
+    private boolean resume;
+
     @Override
     protected boolean doExecute(Output output, ToolboxCommando toolboxCommando) throws Exception {
         ResolutionRoot project = projectAsResolutionRoot();
@@ -51,7 +63,7 @@ public final class CopyTransitiveMojo extends MPMojoSupport {
                                 .withManagedDependencies(project.getManagedDependencies())
                                 .build())
                         .collect(Collectors.toList()),
-                toolboxCommando.artifactSink(output, sinkSpec),
+                artifactSink(output, toolboxCommando, sinkSpec, journal, resume),
                 output);
     }
 }